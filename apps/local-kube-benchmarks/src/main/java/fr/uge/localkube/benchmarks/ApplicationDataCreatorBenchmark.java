@@ -0,0 +1,76 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.ApplicationData;
+import fr.uge.localkube.ApplicationDataCreator;
+import fr.uge.localkube.PortPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class ApplicationDataCreatorBenchmark {
+    /**
+     * benchmark of the registry of the apps when 'registered' apps are already running:
+     * the parsing of a start request, the add, stop and kill of an app, and the list of the apps
+     * @field FIRST_PORT the port of the first registered app (the benchmarked app takes 9000)
+     * @field registered the number of running apps
+     * @field creator the registry of the apps
+     * @field request the start request of the benchmarked app
+     */
+    private static final int FIRST_PORT = 10_000;
+
+    @Param({"10", "1000", "100000"})
+    public int registered;
+
+    private ApplicationDataCreator creator;
+    private final String request = "{\"app\": \"bench:9000\"}";
+
+    /**
+     * register and add the 'registered' apps, each one on its own port
+     */
+    @Setup
+    public void setup(){
+        creator = new ApplicationDataCreator(Integer.MAX_VALUE, new PortPool(8081, 9080, port -> true));
+        for (var i = 0; i < registered; i++){
+            creator.add(creator.toApplicationData("{\"app\": \"app" + i % 100 + ":" + (FIRST_PORT + i) + "\"}"));
+        }
+    }
+
+    /**
+     * parse a start request then give its id and port back, to stay in the same state
+     * @return the parsed app
+     */
+    @Benchmark
+    public ApplicationData toApplicationData(){
+        var app = creator.toApplicationData(request);
+        creator.abandon(app);
+        return app;
+    }
+
+    /**
+     * the whole life of an app in the registry: parse, add, stop and kill
+     * @return the killed app
+     */
+    @Benchmark
+    public ApplicationData addStopKill(){
+        var app = creator.toApplicationData(request);
+        creator.add(app);
+        creator.stop(app.id());
+        return creator.kill(app.id());
+    }
+
+    /**
+     * list the running apps, as '/app/list' does
+     * @return the running apps
+     */
+    @Benchmark
+    public List<ApplicationData> list(){
+        return creator.getAppDatas();
+    }
+}
@@ -0,0 +1,39 @@
+package fr.uge.localkube.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchmarkMain {
+    /**
+     * class which runs the JMH benchmarks and saves their results as JSON, one file per run
+     * (target/jmh/yyyyMMdd-HHmmss.json), so the results of two builds can be compared;
+     * '-rf' and '-rff' given on the command line are kept
+     * @field RESULTS the directory of the results
+     */
+    private static final Path RESULTS = Path.of("target", "jmh");
+
+    /**
+     * run the benchmarks
+     * @param args the JMH command line (ex: 'LogStore -f 1' to run only the log store benchmarks)
+     * @throws IOException when the directory of the results can't be created
+     */
+    public static void main(String[] args) throws IOException {
+        var arguments = new ArrayList<>(List.of(args));
+        if (!arguments.contains("-rf")){
+            arguments.addAll(List.of("-rf", "json"));
+        }
+        if (!arguments.contains("-rff")){
+            Files.createDirectories(RESULTS);
+            var name = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+            arguments.addAll(List.of("-rff", RESULTS.resolve(name).toString()));
+        }
+        Main.main(arguments.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,67 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.IdAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class IdAllocatorBenchmark {
+    /**
+     * benchmark of the allocation of an app id when 'registered' ids are already taken:
+     * the IdAllocator stays flat, the former linear scan of ApplicationDataCreator grows with the number of apps
+     * @field registered the number of ids already allocated
+     * @field allocator the allocator of the ids
+     * @field runningApps the map scanned by the former allocation
+     */
+    @Param({"10", "1000", "100000"})
+    public int registered;
+
+    private IdAllocator allocator;
+    private HashMap<Integer, Object> runningApps;
+
+    /**
+     * allocate the 'registered' ids, then free one in the middle
+     */
+    @Setup
+    public void setup(){
+        allocator = new IdAllocator();
+        runningApps = new HashMap<>();
+        for (var i = 1; i <= registered; i++){
+            allocator.allocate();
+            runningApps.put(i, Boolean.TRUE);
+        }
+        allocator.release(registered / 2 + 1);
+        runningApps.remove(registered / 2 + 1);
+    }
+
+    /**
+     * allocate an id and release it, to stay in the same state
+     * @return the allocated id
+     */
+    @Benchmark
+    public int allocateAndRelease(){
+        var id = allocator.allocate();
+        allocator.release(id);
+        return id;
+    }
+
+    /**
+     * the former calculateNextId of ApplicationDataCreator, without its 1000 apps cap
+     * @return the first id without running app
+     */
+    @Benchmark
+    public int linearScan(){
+        int id;
+        for (id = 1; runningApps.get(id) != null; id++){
+            // scan until a free id
+        }
+        return id;
+    }
+}
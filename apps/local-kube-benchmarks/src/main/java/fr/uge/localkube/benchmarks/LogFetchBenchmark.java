@@ -0,0 +1,88 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.ApplicationData;
+import fr.uge.localkube.LogFetcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class LogFetchBenchmark {
+    /**
+     * benchmark of a /logs request over 'instances' apps whose fetch takes 'latency' ms (the time of docker logs):
+     * the serial loop costs instances * latency, the LogFetcher about instances / parallelism * latency
+     * @field instances the number of apps
+     * @field latency the duration of the fetch of one app, in milliseconds
+     * @field apps the apps
+     * @field fetcher the concurrent fetcher, with the default parallelism of LocalKube
+     */
+    @Param({"1", "10", "50"})
+    public int instances;
+
+    @Param({"5"})
+    public int latency;
+
+    private List<ApplicationData> apps;
+    private LogFetcher fetcher;
+
+    /**
+     * create the apps and the fetcher
+     */
+    @Setup
+    public void setup(){
+        apps = IntStream.rangeClosed(1, instances)
+                .mapToObj(i -> new ApplicationData(i, "hello:" + (8080 + i), 8080 + i, "hello-" + i))
+                .collect(Collectors.toList());
+        fetcher = new LogFetcher(8, 10_000);
+    }
+
+    /**
+     * the simulated fetch of the logs of an app
+     * @param app the app
+     * @return the logs
+     * @throws IOException when interrupted
+     */
+    private String fetch(ApplicationData app) throws IOException {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        return app.dockerInstance();
+    }
+
+    /**
+     * the former loop of LocalKubeLogs, one app after the other
+     * @return the logs
+     * @throws IOException when interrupted
+     */
+    @Benchmark
+    public String serial() throws IOException {
+        var logs = new StringJoiner(",\n", "[\n", "\n]");
+        for (var app : apps){
+            logs.add(fetch(app));
+        }
+        return logs.toString();
+    }
+
+    /**
+     * the fan-out of the LogFetcher
+     * @return the logs
+     * @throws InterruptedException when interrupted
+     */
+    @Benchmark
+    public String parallel() throws InterruptedException {
+        return fetcher.fetch(apps, (app, onTimeout) -> fetch(app), (app, error) -> error).stream().collect(Collectors.joining(",\n", "[\n", "\n]"));
+    }
+}
@@ -0,0 +1,62 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.SpringLogReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class LogParsingBenchmark {
+    /**
+     * benchmark of the parsing of the output of 'docker logs' as the /logs requests do it (parsingLogs of LocalKubeLogs):
+     * the fixture is the start of a Spring Boot app, requests of all levels and a stack trace, repeated 'copies' times
+     * @field FIXTURE the resource of the logs
+     * @field copies the number of copies of the fixture
+     * @field logs the logs to parse
+     */
+    private static final String FIXTURE = "/fixtures/spring-boot.log";
+
+    @Param({"1", "100"})
+    public int copies;
+
+    private String logs;
+
+    /**
+     * read the fixture and repeat it
+     */
+    @Setup
+    public void setup(){
+        try (InputStream input = requireNonNull(LogParsingBenchmark.class.getResourceAsStream(FIXTURE), FIXTURE)) {
+            logs = new String(input.readAllBytes(), StandardCharsets.UTF_8).repeat(copies);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * read all the entries of the logs, the stack traces folded into their entry
+     * @param blackhole the sink of the entries
+     * @throws IOException never, the logs are in memory
+     */
+    @Benchmark
+    public void parsingLogs(Blackhole blackhole) throws IOException {
+        var entries = new SpringLogReader(new BufferedReader(new StringReader(logs)));
+        for (var entry = entries.next(); entry != null; entry = entries.next()){
+            blackhole.consume(entry);
+        }
+    }
+}
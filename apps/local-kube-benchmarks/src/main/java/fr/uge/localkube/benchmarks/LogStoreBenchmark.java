@@ -0,0 +1,89 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.LogLine;
+import fr.uge.localkube.LogStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class LogStoreBenchmark {
+    /**
+     * benchmark of the append of a batch of 'batchSize' log lines of two apps to the log store,
+     * one transaction per app and batch (the full-text index is updated in the same transaction):
+     * the time of a batch divided by its size gives the cost of one line
+     * @field batchSize the number of lines of a batch
+     * @field directory the temporary directory of the store
+     * @field store the log store
+     * @field batch the lines appended, their time is moved forward after each append
+     * @field ts the time of the next line
+     */
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private Path directory;
+    private LogStore store;
+    private final List<LogLine> batch = new ArrayList<>();
+    private long ts = System.currentTimeMillis();
+
+    /**
+     * create the store in a temporary directory
+     * @throws IOException when the directory can't be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("lk-bench-logs");
+        store = new LogStore(directory, 7, Long.MAX_VALUE, 60_000, 256);
+    }
+
+    /**
+     * delete the store
+     * @throws IOException when the directory can't be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * prepare the next batch, out of the measure
+     */
+    @Setup(Level.Invocation)
+    public void nextBatch(){
+        batch.clear();
+        for (var i = 0; i < batchSize; i++){
+            var instance = i % 2 == 0 ? "hello-1" : "world-1";
+            batch.add(new LogLine(instance.split("-")[0], instance, ts++, "INFO",
+                    "Completed 200 OK for GET /hello/" + ts + " in " + i % 50 + " ms"));
+        }
+    }
+
+    /**
+     * append the batch
+     */
+    @Benchmark
+    public void append(){
+        store.append(batch);
+    }
+}
@@ -0,0 +1,59 @@
+package fr.uge.localkube.benchmarks;
+
+import fr.uge.localkube.SpringLogParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class SpringLogParserBenchmark {
+    /**
+     * benchmark of the parsing of Spring Boot console lines of all levels, with stack trace lines between them:
+     * the SpringLogParser against the former split on "INFO .* : " of LocalKubeLogs
+     * @field LINES the parsed lines
+     * @field parser the parser of the lines
+     */
+    private static final String[] LINES = {
+            "2020-11-20 10:00:00.000  INFO 12345 --- [           main] f.u.l.LocalKubeApplication    : Starting LocalKubeApplication",
+            "2020-11-20 10:00:00.120 DEBUG 12345 --- [           main] o.s.b.c.c.ConfigFileApplicationListener : Loaded config file",
+            "2020-11-20 10:00:01.337  WARN 12345 --- [nio-8081-exec-1] o.s.web.servlet.PageNotFound  : No mapping for GET /favicon.ico",
+            "2020-11-20 10:00:02.001 ERROR 12345 --- [nio-8081-exec-2] o.a.c.c.C.[.[.[/].[dispatcherServlet] : Servlet.service() threw exception",
+            "java.lang.IllegalStateException: hello",
+            "\tat fr.uge.hello.HelloController.hello(HelloController.java:12) ~[classes!/:na]",
+            "2020-11-20 10:00:03.500 TRACE 12345 --- [nio-8081-exec-3] o.s.w.s.DispatcherServlet     : Completed 200 OK",
+            "2020-11-20 10:00:04.000  INFO 12345 --- [nio-8081-exec-4] fr.uge.hello.HelloController  : Say hi to " + "x".repeat(80),
+    };
+
+    private final SpringLogParser parser = new SpringLogParser();
+
+    /**
+     * parse the lines with the SpringLogParser, only the level and the message offsets are read
+     * @param blackhole the sink of the results
+     */
+    @Benchmark
+    public void parser(Blackhole blackhole){
+        for (var line : LINES){
+            if (parser.parse(line)){
+                blackhole.consume(parser.level());
+                blackhole.consume(parser.start(SpringLogParser.Field.MESSAGE));
+            }
+        }
+    }
+
+    /**
+     * the former parseLine of LocalKubeLogs, which only understood the INFO lines
+     * @param blackhole the sink of the results
+     */
+    @Benchmark
+    public void split(Blackhole blackhole){
+        for (var line : LINES){
+            blackhole.consume(line.split("INFO .* : "));
+        }
+    }
+}
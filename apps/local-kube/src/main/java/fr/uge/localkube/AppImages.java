@@ -0,0 +1,280 @@
+package fr.uge.localkube;
+
+import com.google.cloud.tools.jib.api.Containerizer;
+import com.google.cloud.tools.jib.api.DockerDaemonImage;
+import com.google.cloud.tools.jib.api.InvalidImageReferenceException;
+import com.google.cloud.tools.jib.api.TarImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class AppImages {
+    /**
+     * class which names the image of an app after the digest of its jar, so all the instances of a version of an app
+     * share one image, built and loaded once: the port and the identity of an instance are given to its container at
+     * creation (environment), they are not baked into the image anymore. A jar is hashed again only when its size or
+     * its modification time changes. An image is built either in a tar loaded by docker afterwards (TAR, the tar can be
+     * exported to an air-gapped host) or straight into the docker daemon (DAEMON, the image is streamed to docker load
+     * and never written on disk)
+     * @field DIGEST_LENGTH the number of hexadecimal characters of the digest kept in the tag of an image
+     * @field jars the directory of the jars of the apps
+     * @field tars the directory of the tars of the images
+     * @field target where the images are built
+     * @field dockerEnvironment the environment of the docker command loading the images built into the daemon
+     * @field digests a map (jar, digest) of the hashed jars
+     * @field built the images built in a tar
+     * @field loaded the images loaded in docker
+     * @field locks a map (image, lock) preventing two concurrent builds or loads of an image
+     * @field builds the number of built images
+     * @field loads the number of loaded images
+     * @field reuses the number of starts which found their image already loaded
+     * @field buildMillis the total time of the builds
+     * @field loadMillis the total time of the loads
+     */
+    public enum Target {
+        TAR, DAEMON;
+
+        /**
+         * the target of a setting
+         * @param target the setting ("tar" or "daemon")
+         * @return the target
+         * @throws LKArgumentsException when the setting is neither "tar" nor "daemon"
+         */
+        static Target of(String target){
+            try {
+                return valueOf(requireNonNull(target).trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new LKArgumentsException("Image target should be tar or daemon, get : " + target);
+            }
+        }
+    }
+
+    private record Digest(long size, FileTime modified, String hex) {
+        /**
+         * record which represent the digest of a jar
+         * @field size the size of the jar when it was hashed
+         * @field modified the modification time of the jar when it was hashed
+         * @field hex the SHA-256 of the content of the jar, in hexadecimal
+         */
+    }
+
+    private static final int DIGEST_LENGTH = 12;
+
+    private final Path jars;
+    private final Path tars;
+    private final Target target;
+    private final Map<String, String> dockerEnvironment;
+    private final ConcurrentHashMap<Path, Digest> digests = new ConcurrentHashMap<>();
+    private final Set<String> built = ConcurrentHashMap.newKeySet();
+    private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong buildMillis = new AtomicLong();
+    private final AtomicLong loadMillis = new AtomicLong();
+
+    /**
+     * Constructor of AppImages
+     * @param jars the directory of the jars of the apps
+     * @param tars the directory of the tars of the images
+     * @param settings the LocalKube settings (target of the images and docker host)
+     */
+    public AppImages(Path jars, Path tars, LocalKubeSettings settings){
+        this(jars, tars, Target.of(settings.imageTarget()), settings.dockerHost());
+    }
+
+    /**
+     * Constructor of AppImages
+     * @param jars the directory of the jars of the apps
+     * @param tars the directory of the tars of the images
+     * @param target where the images are built
+     * @param dockerHost the docker host the images built into the daemon are loaded in
+     */
+    public AppImages(Path jars, Path tars, Target target, String dockerHost){
+        this.jars = requireNonNull(jars);
+        this.tars = requireNonNull(tars);
+        this.target = requireNonNull(target);
+        dockerEnvironment = Map.of("DOCKER_HOST", requireNonNull(dockerHost));
+    }
+
+    /**
+     * get where the images are built
+     * @return the target of the images
+     */
+    public Target target(){
+        return target;
+    }
+
+    /**
+     * the jar of an app
+     * @param nameApp the app name
+     * @return the path of the jar
+     */
+    public Path jar(String nameApp){
+        return jars.resolve(requireNonNull(nameApp) + ".jar");
+    }
+
+    /**
+     * the image of an app, named after the app and tagged with the digest of its jar (ex: helloworld:3f9a1c0b2d4e)
+     * @param app the app
+     * @return the image reference, shared by all the instances of the same jar
+     * @throws LKArgumentsException when the jar of the app can't be read
+     */
+    public String image(ApplicationData app){
+        var nameApp = requireNonNull(app).getNameApp();
+        var jar = jar(nameApp);
+        try {
+            var size = Files.size(jar);
+            var modified = Files.getLastModifiedTime(jar);
+            var digest = digests.get(jar);
+            if (digest == null || digest.size() != size || !digest.modified().equals(modified)){
+                digest = new Digest(size, modified, sha256(jar));
+                digests.put(jar, digest);
+            }
+            return nameApp.toLowerCase(Locale.ROOT) + ":" + digest.hex().substring(0, DIGEST_LENGTH);
+        } catch (IOException e) {
+            throw new LKArgumentsException("The application " + nameApp + " is not found (" + jar + ")");
+        }
+    }
+
+    /**
+     * hash the content of a file
+     * @param file the file
+     * @return the SHA-256 of the file, in hexadecimal
+     * @throws IOException when the file can't be read
+     */
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);    // every JVM has SHA-256
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            var buffer = new byte[8192];
+            for (var read = input.read(buffer); read != -1; read = input.read(buffer)){
+                digest.update(buffer, 0, read);
+            }
+        }
+        var hex = new StringBuilder();
+        for (var b : digest.digest()){
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * the tar of an image
+     * @param image the image reference
+     * @return the path of the tar (ex: docker-images/helloworld-3f9a1c0b2d4e.tar)
+     */
+    public Path tar(String image){
+        return tars.resolve(requireNonNull(image).replace(':', '-') + ".tar");
+    }
+
+    /**
+     * the Jib containerizer of an image, to the tar of the image or to the docker daemon
+     * @param image the image reference
+     * @return the containerizer
+     * @throws InvalidImageReferenceException when the image reference is invalid
+     */
+    public Containerizer containerizer(String image) throws InvalidImageReferenceException {
+        if (target == Target.DAEMON){
+            return Containerizer.to(DockerDaemonImage.named(image).setDockerEnvironment(dockerEnvironment));
+        }
+        return Containerizer.to(TarImage.at(tar(image)).named(image));
+    }
+
+    /**
+     * the lock of an image, held while the image is built or loaded so the concurrent starts of an app wait for it
+     * @param image the image reference
+     * @return the lock
+     */
+    public Object lock(String image){
+        return locks.computeIfAbsent(requireNonNull(image), k -> new Object());
+    }
+
+    /**
+     * tell if an image is already built
+     * @param image the image reference
+     * @return true if the tar of the image was built
+     */
+    public boolean isBuilt(String image){
+        return built.contains(requireNonNull(image));
+    }
+
+    /**
+     * record a built image, an image built into the daemon is loaded too
+     * @param image the image reference
+     * @param millis the time of the build
+     */
+    public void built(String image, long millis){
+        if (built.add(requireNonNull(image))){
+            builds.incrementAndGet();
+            buildMillis.addAndGet(millis);
+        }
+        if (target == Target.DAEMON){ loaded.add(image); }
+    }
+
+    /**
+     * tell if an image is already loaded in docker, a loaded image is counted as reused
+     * @param image the image reference
+     * @return true if the image was loaded
+     */
+    public boolean isLoaded(String image){
+        var found = loaded.contains(requireNonNull(image));
+        if (found){ reuses.incrementAndGet(); }
+        return found;
+    }
+
+    /**
+     * record an image loaded in docker from its tar
+     * @param image the image reference
+     * @param millis the time of the load
+     */
+    public void loaded(String image, long millis){
+        if (loaded.add(requireNonNull(image))){
+            loads.incrementAndGet();
+            loadMillis.addAndGet(millis);
+        }
+    }
+
+    /**
+     * the statistics of the images
+     * @return the target, the number of images, builds, loads and reuses and the mean time of the builds and the loads
+     */
+    public JsonResponses.Images stats(){
+        var builds = this.builds.get();
+        var loads = this.loads.get();
+        return new JsonResponses.Images(target, built.size(), builds, loads, reuses.get(),
+                builds == 0 ? null : buildMillis.get() / builds, loads == 0 ? null : loadMillis.get() / loads);
+    }
+
+    /**
+     * string format (json format) of the statistics of the images
+     * @return the json statistics format
+     */
+    @Override
+    public String toString(){
+        var stats = stats();
+        return "{\n\ttarget:" + stats.target() + ",\n\timages:" + stats.images() + ",\n\tbuilds:" + stats.builds()
+                + ",\n\tloads:" + stats.loads() + ",\n\treuses:" + stats.reuses()
+                + (stats.buildMillis() == null ? "" : ",\n\tbuild-time:" + stats.buildMillis() + "ms")
+                + (stats.loadMillis() == null ? "" : ",\n\tload-time:" + stats.loadMillis() + "ms")
+                + "\n}";
+    }
+}
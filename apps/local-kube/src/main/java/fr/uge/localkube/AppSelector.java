@@ -0,0 +1,47 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record AppSelector(@JsonProperty("app") String app,
+                          @JsonProperty("instancePrefix") String instancePrefix,
+                          @JsonProperty("ids") List<Integer> ids) {
+    /**
+     * record which selects apps for a bulk operation, an app is selected when it matches all the given criteria
+     * @field app the short app name, null to select any name
+     * @field instancePrefix the start of the docker instance, null to select any instance
+     * @field ids the ids to select, null to select any id
+     */
+
+    /**
+     * Constructor for AppSelector
+     * @param app the short app name on json format, null to select any name
+     * @param instancePrefix the start of the docker instance on json format, null to select any instance
+     * @param ids the ids to select on json format, null to select any id
+     */
+    @JsonCreator
+    public AppSelector {
+        ids = ids == null ? null : List.copyOf(ids);
+    }
+
+    /**
+     * a selector of all the apps
+     * @return the selector
+     */
+    public static AppSelector all(){
+        return new AppSelector(null, null, null);
+    }
+
+    /**
+     * tell if an app is selected
+     * @param data the app
+     * @return true if the app matches all the given criteria
+     */
+    public boolean matches(ApplicationData data){
+        return (app == null || app.equals(data.getNameApp()))
+                && (instancePrefix == null || data.dockerInstance().startsWith(instancePrefix))
+                && (ids == null || ids.contains(data.id()));
+    }
+}
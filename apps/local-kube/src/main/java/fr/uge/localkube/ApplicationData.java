@@ -64,12 +64,20 @@ public record ApplicationData(@JsonProperty("id") int id,
                 + "\n}";
     }
 
+    /**
+     * the time since LocalKube started
+     * @return the elapsed time in milliseconds
+     */
+    public long elapsedTime(){
+        return System.currentTimeMillis() - startedTimeStamp;
+    }
+
     /**
      * string format (json format) of an app which is stopped
      * @return the json app format
      */
     public String toStringStop(){
-        var ellapsed = System.currentTimeMillis() - startedTimeStamp;
+        var ellapsed = elapsedTime();
         return "{\n\tid:" + id
                 + ",\n\tapp:" + app
                 + ",\n\tport:" + port
@@ -1,11 +1,10 @@
 package fr.uge.localkube;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -13,91 +12,273 @@ import static java.util.Objects.requireNonNull;
 
 public class ApplicationDataCreator {
     /**
-     * class which represent the data of applications
+     * class which represent the data of applications, safe to use from concurrent requests:
+     * the mutations are atomic (short lock, no docker call inside), the reads never take the lock
      * @field runningApps a map (id, apps) of apps which are running
      * @field stoppedApps a map (id, apps) of apps which are stopped
      * @field instanceApps a map (appName, number of instance) of all docker instance
-     * @field maxApp
+     * @field ports an index (port, id) of the ports taken by starting, running and stopped apps
+     * @field instances an index (dockerInstance, id) of running and stopped apps
+     * @field names an index (appName, ids) of running and stopped apps
+     * @field lock the lock of the mutations
+     * @field version the number of mutations, to know if the snapshot is still valid
+     * @field snapshot the last immutable list of running apps
+     * @field ids the allocator of the app ids, an id is recycled only after the kill of its app
+     * @field portPool the pool of the ports given to the apps started without port
+     * @field journal the journal of the mutations on disk, null when the registry is only in memory
      */
-    private final HashMap<Integer, ApplicationData> runningApps = new HashMap<>();
-    private final HashMap<Integer, ApplicationData> stoppedApps = new HashMap<>();
-    private final HashMap<String, Integer> instanceApps = new HashMap<>();
-    private static final int maxApp = 1000;
+    public enum State { RUNNING, STOPPED, KILLED }
+
+    private record Snapshot(long version, List<ApplicationData> apps) {}
+
+    private final ConcurrentSkipListMap<Integer, ApplicationData> runningApps = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, ApplicationData> stoppedApps = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Integer> instanceApps = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> ports = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> instances = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Integer>> names = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private volatile long version;
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+    private final IdAllocator ids;
+    private final PortPool portPool;
+    private final RegistryJournal journal;
 
     /**
-     * Constructor of ApplicationDataCreator
+     * Constructor of ApplicationDataCreator without limit of apps, the ports 8081 to 9080 are given automatically
      */
     public ApplicationDataCreator(){
+        this(Integer.MAX_VALUE, new PortPool(8081, 9080));
+    }
+
+    /**
+     * Constructor of ApplicationDataCreator
+     * @param maxApps the max number of apps (running or stopped) at the same time
+     * @param portPool the pool of the ports given to the apps started without port
+     */
+    public ApplicationDataCreator(int maxApps, PortPool portPool){
+        this(maxApps, portPool, null);
     }
 
     /**
-     * the parsing method from json entry format to an ApplicationData format
+     * Constructor of ApplicationDataCreator, the apps and the instance counters of the journal are replayed
+     * @param maxApps the max number of apps (running or stopped) at the same time
+     * @param portPool the pool of the ports given to the apps started without port
+     * @param journal the journal of the mutations on disk, null to keep the registry only in memory
+     */
+    public ApplicationDataCreator(int maxApps, PortPool portPool, RegistryJournal journal){
+        ids = new IdAllocator(maxApps);
+        this.portPool = requireNonNull(portPool);
+        if (journal != null){ journal.replay(new Replayer()); }
+        this.journal = journal;
+    }
+
+    private final class Replayer implements RegistryJournal.Target {
+        /**
+         * class which applies the records of the journal to the registry, without journaling them again,
+         * a record replayed twice (a mutation both in the snapshot and in the journal) changes nothing
+         */
+
+        @Override
+        public void added(ApplicationData app){
+            if (state(app.id()) == State.KILLED){ ids.claim(app.id()); } else { remove(app.id()); }
+            put(app);
+        }
+
+        @Override
+        public void stopped(int id){
+            var app = runningApps.remove(id);
+            if (app != null){
+                stoppedApps.put(id, app);
+                version++;
+            }
+        }
+
+        @Override
+        public void killed(int id){
+            if (stoppedApps.containsKey(id)){
+                remove(id);
+                ids.release(id);
+            }
+        }
+
+        @Override
+        public void counted(String name, int count){
+            instanceApps.merge(name, count, Math::max);
+        }
+    }
+
+    /**
+     * the parsing method from json entry format ({"app": "name:port"} or {"app": "name"}) to an ApplicationData format,
+     * the port is reserved before the id and the docker instance are computed, a free port is given when there is none
      * @param jsonData the json entry format to parse
      * @return the parsed ApplicationData
+     * @throws LKArgumentsException when the json is invalid or the port is already taken
      */
     public ApplicationData toApplicationData(String jsonData) throws LKArgumentsException {
         requireNonNull(jsonData, "should have a non null json to parse to ApplicationData");
-        if (jsonData.length() < 17){
-            throw new LKArgumentsException("Not possible to have less than 17 characters in the json entry : " + jsonData);
+        return fromSpec(RequestDecoder.app(jsonData));
+    }
+
+    /**
+     * create an ApplicationData from the app of a start request ("name:port" or "name"), like toApplicationData
+     * @param app the app name, with its port or not
+     * @return the ApplicationData
+     * @throws LKArgumentsException when the app is invalid or the port is already taken
+     */
+    public ApplicationData fromSpec(String app) throws LKArgumentsException {
+        requireNonNull(app);
+        var colon = app.indexOf(':');
+        var name = colon == -1 ? app : app.substring(0, colon);
+        if (name.isEmpty()){
+            throw new LKArgumentsException("Usage for app : name or name:port , get : " + app);
+        }
+        var id = ids.allocate();
+        try {
+            var port = colon == -1 ? portPool.acquire() : parsePort(app.substring(colon + 1));
+            port = reserve(port, id, colon == -1);
+            return create(id, name, port);
+        } catch (RuntimeException e){
+            ids.release(id);
+            throw e;
+        }
+    }
+
+    /**
+     * parse the port of an app
+     * @param port the port as text
+     * @return the port
+     * @throws LKArgumentsException when the port is not an Integer
+     */
+    private static int parsePort(String port){
+        try {
+            return Integer.parseInt(port);
+        } catch (NumberFormatException e){
+            throw new LKArgumentsException("Input format for port is Integer, get : " + port);
         }
-        var id = calculateNextId();
-        var dockerInstance = calculateNextDockerInstance(jsonData.split(":")[1]);
+    }
 
-        jsonData = "{\"id\":" + id + ", "
-                + jsonData.substring(1, jsonData.length() - 1)
-                + ", \"port\":" + jsonData.substring(jsonData.length() - 6, jsonData.length() - 2)
-                + ", \"docker-instance\":" + dockerInstance + "\"}";
-        ObjectMapper om = new ObjectMapper();
+    /**
+     * reserve a port for an app which is starting, a pooled port already taken by an explicit start is replaced
+     * by another pooled port
+     * @param port the port
+     * @param id the id of the starting app
+     * @param pooled true if the port comes from the port pool
+     * @return the reserved port
+     * @throws LKArgumentsException when the specified port is already taken, or when the pool is exhausted
+     */
+    private int reserve(int port, int id, boolean pooled){
+        for (;;){
+            var owner = ports.putIfAbsent(port, id);
+            if (owner == null){
+                portPool.reserve(port);
+                return port;
+            }
+            if (!pooled){
+                throw new LKArgumentsException("The specified port " + port + " is already taken by " +
+                        describe(owner) + "-> Please retry with a valid port");
+            }
+            port = portPool.acquire();
+        }
+    }
+
+    /**
+     * create the app once its port is reserved
+     * @param id the app id
+     * @param name the app name (short)
+     * @param port the reserved port
+     * @return the app
+     * @throws LKArgumentsException when the app is invalid (the port is given back)
+     */
+    private ApplicationData create(int id, String name, int port){
         try {
-            return om.readValue(jsonData, ApplicationData.class);
-        } catch (JsonProcessingException e){
-            throw new LKArgumentsException(e.getOriginalMessage());
+            return new ApplicationData(id, name + ":" + port, port, calculateNextDockerInstance(name));
+        } catch (RuntimeException e){
+            ports.remove(port, id);
+            portPool.release(port);
+            throw e;
         }
     }
 
     /**
      * add an app to the runningApps
      * @param app the app to add
-     * @throws LKArgumentsException when the port is already taken
+     * @throws LKArgumentsException when the port, the id or the docker instance is already taken
      */
     public void add(ApplicationData app) throws LKArgumentsException {
         requireNonNull(app, "should have a non null app to add");
-        checkInApps(runningApps, app);
-        checkInApps(stoppedApps, app);
+        synchronized (lock) {
+            checkInApps(app);
+            put(app);
+            if (journal != null){ journal.added(app); }
+            snapshotIfDue();
+        }
+    }
+
+    /**
+     * index an app and put it in the runningApps
+     * @param app the app to put
+     */
+    private void put(ApplicationData app){
+        ports.put(app.port(), app.id());
+        portPool.reserve(app.port());
+        instances.put(app.dockerInstance(), app.id());
+        names.computeIfAbsent(app.getNameApp(), k -> new ConcurrentSkipListSet<>()).add(app.id());
         runningApps.put(app.id(), app);
+        version++;
     }
 
     /**
-     * check if an new app port is already taken
-     * @param apps a list of app to browse
-     * @param app the app to add
-     * @throws LKArgumentsException when the port is already taken
-     */
-    private void checkInApps(HashMap<Integer, ApplicationData> apps, ApplicationData app) throws LKArgumentsException {
-        requireNonNull(apps, "Should have a non null map to browse");
-        requireNonNull(app, "Should have a non null app");
-        for (var value : apps.values()){
-            if (app.port() == value.port()){
-                throw new LKArgumentsException("The specified port " + app.port() + " is already taken by " +
-                        value.dockerInstance() + "-> Please retry with a valid port");
-            }
+     * write a snapshot of the registry when the journal is long enough (called with the lock)
+     */
+    private void snapshotIfDue(){
+        if (journal != null && journal.isSnapshotDue()){
+            journal.snapshot(Map.copyOf(instanceApps), runningApps.values(), stoppedApps.values());
         }
     }
 
     /**
-     * calculate a next app id
-     * @return the next id
+     * check if a new app port, id or docker instance is already taken (by a running or a stopped app)
+     * @param app the app to add
+     * @throws LKArgumentsException when the port, the id or the docker instance is already taken
      */
-    private int calculateNextId() {
-        int id;
-        for (id = 1; id < maxApp; id++){
-            var app = runningApps.get(id);
-            if(app == null){ break; }
+    private void checkInApps(ApplicationData app) throws LKArgumentsException {
+        var owner = ports.get(app.port());
+        if (owner != null && owner != app.id()){
+            throw new LKArgumentsException("The specified port " + app.port() + " is already taken by " +
+                    describe(owner) + "-> Please retry with a valid port");
+        }
+        if (runningApps.containsKey(app.id()) || stoppedApps.containsKey(app.id())){
+            throw new LKArgumentsException("The id " + app.id() + " is already taken by " + describe(app.id()));
         }
-        if (id == maxApp){
-            throw new IllegalStateException("Number of authorized apps exceed");
+        if (instances.containsKey(app.dockerInstance())){
+            throw new LKArgumentsException("The docker instance " + app.dockerInstance() + " is already taken");
+        }
+    }
+
+    /**
+     * get the name of an app which takes a port or an id
+     * @param id the app id
+     * @return the docker instance of the app, or a description of the starting app
+     */
+    private String describe(int id){
+        var app = runningApps.get(id);
+        if (app == null){ app = stoppedApps.get(id); }
+        return app == null ? "the starting app " + id : app.dockerInstance();
+    }
+
+    /**
+     * give back the id and the port of an app which has not been added (its start failed)
+     * @param app the app which will never be added
+     */
+    public void abandon(ApplicationData app){
+        requireNonNull(app);
+        synchronized (lock) {
+            if (state(app.id()) == State.KILLED){
+                if (ports.remove(app.port(), app.id())){ portPool.release(app.port()); }
+                ids.release(app.id());
+            }
         }
-        return id;
     }
 
     /**
@@ -110,9 +291,15 @@ public class ApplicationDataCreator {
         if (name.length() == 0){
             throw new IllegalArgumentException("Docker instance should not be \"\"");
         }
-        var nextInstance = instanceApps.getOrDefault(name, 0) + 1;
-        instanceApps.put(name, nextInstance);
-        return name + "-" + nextInstance;
+        if (journal == null){
+            return name + "-" + instanceApps.merge(name, 1, Integer::sum);
+        }
+        synchronized (lock) {
+            var count = instanceApps.merge(name, 1, Integer::sum);
+            journal.counted(name, count);
+            snapshotIfDue();
+            return name + "-" + count;
+        }
     }
 
     /**
@@ -122,10 +309,14 @@ public class ApplicationDataCreator {
      * @throws NullPointerException when the id is invalid (not founded)
      */
     public ApplicationData stop(int id) throws NullPointerException {
-        requireNonNull(runningApps.get(id));
-        var app = runningApps.remove(id);
-        stoppedApps.put(id, app);
-        return app;
+        synchronized (lock) {
+            var app = requireNonNull(runningApps.remove(id));
+            stoppedApps.put(id, app);
+            version++;
+            if (journal != null){ journal.stopped(id); }
+            snapshotIfDue();
+            return app;
+        }
     }
 
     /**
@@ -135,36 +326,178 @@ public class ApplicationDataCreator {
      * @throws NullPointerException when the id is invalid (not founded)
      */
     public ApplicationData kill(int id) throws NullPointerException {
-        requireNonNull(stoppedApps.get(id));
-        return stoppedApps.remove(id);
+        synchronized (lock) {
+            var app = requireNonNull(stoppedApps.get(id));
+            remove(id);
+            ids.release(id);
+            if (journal != null){ journal.killed(id); }
+            snapshotIfDue();
+            return app;
+        }
     }
 
     /**
-     * delete all apps from the running apps list and add them to the stopped apps list
-     * @return the list of all stopped apps
+     * delete an app from the running or stopped apps and from the indexes, its id is kept
+     * @param id the id of the app to remove
      */
-    public Collection<ApplicationData> killAll(){
-        var cpy = new HashMap<>(stoppedApps);
-        cpy.forEach((k, v) -> stoppedApps.remove(k));
-        return cpy.values();
+    private void remove(int id){
+        var app = runningApps.remove(id);
+        if (app == null){ app = stoppedApps.remove(id); } else { version++; }
+        if (app == null){ return; }
+        ports.remove(app.port(), id);
+        portPool.release(app.port());
+        instances.remove(app.dockerInstance(), id);
+        names.computeIfPresent(app.getNameApp(), (k, set) -> set.remove(id) && set.isEmpty() ? null : set);
     }
 
     /**
      * delete all apps from the stopped apps list
      * @return the list of all killed apps
      */
+    public Collection<ApplicationData> killAll(){
+        return killAll(app -> true);
+    }
+
+    /**
+     * delete the selected apps from the stopped apps list
+     * @param selector the selection of the apps to kill
+     * @return the list of the killed apps
+     */
+    public List<ApplicationData> killAll(Predicate<? super ApplicationData> selector){
+        requireNonNull(selector);
+        synchronized (lock) {
+            return stoppedApps.values().stream().filter(selector).map(app -> kill(app.id())).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * delete all apps from the running apps list and add them to the stopped apps list
+     * @return the list of all stopped apps
+     */
     public Collection<ApplicationData> stopAll(){
-        var cpy = new HashMap<>(runningApps);
-        cpy.forEach((k, v) -> stop(k));
-        return cpy.values();
+        return stopAll(app -> true);
+    }
+
+    /**
+     * delete the selected apps from the running apps list and add them to the stopped apps list
+     * @param selector the selection of the apps to stop
+     * @return the list of the stopped apps
+     */
+    public List<ApplicationData> stopAll(Predicate<? super ApplicationData> selector){
+        requireNonNull(selector);
+        synchronized (lock) {
+            return runningApps.values().stream().filter(selector).map(app -> stop(app.id())).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * get the state of an app
+     * @param id the app id
+     * @return RUNNING, STOPPED or KILLED (an unknown id is considered as killed)
+     */
+    public State state(int id){
+        if (runningApps.containsKey(id)){ return State.RUNNING; }
+        return stoppedApps.containsKey(id) ? State.STOPPED : State.KILLED;
     }
 
     /**
-     * get a list of running apps
-     * @return the list of all running apps
+     * find the running apps matching a filter, using the indexes
+     * @param by the field to filter on: byId, byInstance, byApp (name:port) or byName
+     * @param filter the value of the field
+     * @return the running apps matching the filter, sorted by id
+     * @throws LKArgumentsException when the field is unknown
+     */
+    public List<ApplicationData> find(String by, String filter){
+        requireNonNull(by);
+        requireNonNull(filter);
+        switch (by) {
+            case "byId": return running(parseId(filter));
+            case "byInstance": return running(instances.get(filter));
+            case "byApp": return running(owner(filterPort(filter))).stream()
+                    .filter(app -> app.app().equals(filter)).collect(Collectors.toUnmodifiableList());
+            case "byName": return names.getOrDefault(filter, Set.of()).stream().map(runningApps::get)
+                    .filter(Objects::nonNull).collect(Collectors.toUnmodifiableList());
+            default: throw new LKArgumentsException("Filter should be byId, byInstance, byApp or byName, get : " + by);
+        }
+    }
+
+    /**
+     * find the running apps whose id, docker instance or full name (name:port) is the filter
+     * @param filter the id, the docker instance or the full name
+     * @return the running apps matching the filter, sorted by id
+     */
+    public List<ApplicationData> find(String filter){
+        requireNonNull(filter);
+        var found = new TreeMap<Integer, ApplicationData>();
+        for (var by : List.of("byId", "byInstance", "byApp")){
+            find(by, filter).forEach(app -> found.put(app.id(), app));
+        }
+        return List.copyOf(found.values());
+    }
+
+    /**
+     * get the running app of an id as a list
+     * @param id the id, may be null
+     * @return a list with the running app, empty if there is none
+     */
+    private List<ApplicationData> running(Integer id){
+        var app = id == null ? null : runningApps.get(id);
+        return app == null ? List.of() : List.of(app);
+    }
+
+    /**
+     * get the id of the app which owns a port
+     * @param port the port, may be null
+     * @return the id, null if the port is free
+     */
+    private Integer owner(Integer port){
+        return port == null ? null : ports.get(port);
+    }
+
+    /**
+     * parse an id filter
+     * @param filter the filter
+     * @return the id, null if the filter is not an id
+     */
+    private static Integer parseId(String filter){
+        try {
+            return Integer.valueOf(filter);
+        } catch (NumberFormatException e){
+            return null;
+        }
+    }
+
+    /**
+     * parse the port of a full app name filter (name:port)
+     * @param filter the filter
+     * @return the port, null if the filter is not a full app name
+     */
+    private static Integer filterPort(String filter){
+        var colon = filter.lastIndexOf(':');
+        return colon == -1 ? null : parseId(filter.substring(colon + 1));
+    }
+
+    /**
+     * get an immutable snapshot of the running apps, without taking the lock
+     * @return the list of all running apps, sorted by id
      */
     public List<ApplicationData> getAppDatas(){
-        return runningApps.values().stream().collect(Collectors.toList());
+        var current = version;
+        var last = snapshot;
+        if (last.version() == current){
+            return last.apps();
+        }
+        var apps = List.copyOf(runningApps.values());
+        snapshot = new Snapshot(current, apps);
+        return apps;
+    }
+
+    /**
+     * get the stopped apps (not killed yet)
+     * @return the list of all stopped apps, sorted by id
+     */
+    public List<ApplicationData> getStoppedApps(){
+        return List.copyOf(stoppedApps.values());
     }
 
     /**
@@ -173,8 +506,8 @@ public class ApplicationDataCreator {
      */
     @Override
     public String toString() {
-        return runningApps.values().stream()
+        return getAppDatas().stream()
                 .map(ApplicationData::toString)
                 .collect(Collectors.joining(",\n", "[\n", "\n]"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,284 @@
+package fr.uge.localkube;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class AutoScaler {
+    /**
+     * class which keeps a target number of running instances per app: on a fixed tick, the target of each app is
+     * compared with its running instances, the missing instances are started in one parallel batch and the extra ones
+     * (the newest first) are stopped and removed in one parallel bulk, until the running instances match the targets
+     * @field running the running apps, as observed
+     * @field starter the parallel start of instances
+     * @field stopper the parallel stop and removal of instances
+     * @field tickMillis the delay between the end of a reconciliation and the start of the next one
+     * @field retainedActions the number of last actions kept in memory
+     * @field targets a map (app name, target) of the auto-scaled apps
+     * @field actions the last actions, the oldest first
+     * @field scheduler the executor of the reconciliations (one at a time)
+     * @field tick the scheduled reconciliation, null when the auto-scale is off
+     */
+    @FunctionalInterface
+    public interface Starter {
+        /**
+         * start instances and wait for all of them
+         * @param apps the names of the apps, once per instance to start
+         * @return the result of each instance
+         * @throws InterruptedException when interrupted while waiting for the starts
+         */
+        List<StartResult> start(List<String> apps) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface Stopper {
+        /**
+         * stop and remove instances and wait for all of them
+         * @param apps the instances to stop
+         * @return the result of each instance
+         * @throws InterruptedException when interrupted while waiting for the containers
+         */
+        List<ContainerResult> stop(List<ApplicationData> apps) throws InterruptedException;
+    }
+
+    private record Target(int desired, long since, Long convergenceMillis) {
+        /**
+         * record which represent the target of an app
+         * @field desired the number of instances to keep running
+         * @field since the time of the last update of the target, in nanoseconds
+         * @field convergenceMillis the time from the update to the first reconciliation which matched it, null before
+         */
+    }
+
+    private final Supplier<List<ApplicationData>> running;
+    private final Starter starter;
+    private final Stopper stopper;
+    private final long tickMillis;
+    private final int retainedActions;
+    private final ConcurrentHashMap<String, Target> targets = new ConcurrentHashMap<>();
+    private final ArrayDeque<JsonResponses.ScaleAction> actions = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> tick;
+
+    /**
+     * Constructor of AutoScaler
+     * @param settings the LocalKube settings (tick and retained actions of the auto-scale)
+     * @param running the running apps, as observed
+     * @param starter the parallel start of instances
+     * @param stopper the parallel stop and removal of instances
+     */
+    public AutoScaler(LocalKubeSettings settings, Supplier<List<ApplicationData>> running, Starter starter, Stopper stopper){
+        this(settings.autoScaleTickMillis(), settings.autoScaleRetainedActions(), running, starter, stopper);
+    }
+
+    /**
+     * Constructor of AutoScaler
+     * @param tickMillis the delay between two reconciliations
+     * @param retainedActions the number of last actions kept in memory
+     * @param running the running apps, as observed
+     * @param starter the parallel start of instances
+     * @param stopper the parallel stop and removal of instances
+     * @throws LKArgumentsException when the tick or the retained actions are not positive
+     */
+    public AutoScaler(long tickMillis, int retainedActions, Supplier<List<ApplicationData>> running, Starter starter, Stopper stopper){
+        if (tickMillis <= 0){ throw new LKArgumentsException("Tick cannot be <= 0, " + tickMillis); }
+        if (retainedActions <= 0){ throw new LKArgumentsException("Retained actions cannot be <= 0, " + retainedActions); }
+        this.tickMillis = tickMillis;
+        this.retainedActions = retainedActions;
+        this.running = requireNonNull(running);
+        this.starter = requireNonNull(starter);
+        this.stopper = requireNonNull(stopper);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "lk-autoscale");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * set the targets of apps and turn the auto-scale on, the other apps keep their target
+     * @param desired a map (app name, number of instances to keep running)
+     * @return the status of the auto-scale
+     */
+    public JsonResponses.Scaling update(Map<String, Integer> desired){
+        requireNonNull(desired);
+        var now = System.nanoTime();
+        desired.forEach((app, count) -> targets.merge(app, new Target(count, now, null),
+                (old, target) -> old.desired() == count ? old : target));
+        synchronized (scheduler) {
+            if (tick == null){
+                tick = scheduler.scheduleWithFixedDelay(this::reconcile, 0, tickMillis, TimeUnit.MILLISECONDS);
+            } else {
+                scheduler.execute(this::reconcile);
+            }
+        }
+        return status();
+    }
+
+    /**
+     * turn the auto-scale off and forget the targets, the running instances are left as they are
+     * @return the last status of the auto-scale
+     */
+    public JsonResponses.Scaling stop(){
+        synchronized (scheduler) {
+            if (tick != null){
+                tick.cancel(false);
+                tick = null;
+            }
+        }
+        var status = status();
+        targets.clear();
+        return status;
+    }
+
+    /**
+     * reconcile the running instances with the targets once: start the missing instances and stop the extra ones
+     * (the reconciliations never overlap)
+     */
+    synchronized void reconcile(){
+        try {
+            var observed = observe();
+            var starts = new ArrayList<String>();
+            var stops = new ArrayList<ApplicationData>();
+            targets.forEach((app, target) -> plan(app, target.desired(), observed.getOrDefault(app, List.of()), starts, stops));
+            if (!stops.isEmpty()){ stopped(stopper.stop(stops)); }
+            if (!starts.isEmpty()){ started(starter.start(starts)); }
+            converge(observe());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LKArgumentsException.report("Auto-scale reconciliation failed: " + e);  // the next tick retries
+        }
+    }
+
+    /**
+     * the running instances of the apps
+     * @return a map (app name, running instances, the oldest first)
+     */
+    private Map<String, List<ApplicationData>> observe(){
+        return running.get().stream().sorted(Comparator.comparingInt(ApplicationData::id))
+                .collect(Collectors.groupingBy(ApplicationData::getNameApp));
+    }
+
+    /**
+     * plan the actions converging an app to its target
+     * @param app the app name
+     * @param desired the target of the app
+     * @param instances the running instances of the app, the oldest first
+     * @param starts the names of the instances to start, once per instance
+     * @param stops the instances to stop
+     */
+    private static void plan(String app, int desired, List<ApplicationData> instances, List<String> starts, List<ApplicationData> stops){
+        for (var i = instances.size(); i < desired; i++){
+            starts.add(app);
+        }
+        stops.addAll(instances.subList(Math.min(desired, instances.size()), instances.size()));
+    }
+
+    /**
+     * record the starts of a reconciliation
+     * @param results the result of each start
+     */
+    private void started(List<StartResult> results){
+        results.forEach(r -> act(r.app() == null
+                ? new JsonResponses.ScaleAction(now(), r.spec(), "start", null, null, r.error())
+                : new JsonResponses.ScaleAction(now(), r.app().getNameApp(), "start", r.app().id(), r.app().dockerInstance(), r.error())));
+    }
+
+    /**
+     * record the stops of a reconciliation
+     * @param results the result of each stop
+     */
+    private void stopped(List<ContainerResult> results){
+        results.forEach(r -> act(new JsonResponses.ScaleAction(now(), r.app().getNameApp(), "stop", r.app().id(),
+                r.app().dockerInstance(), r.isSuccess() ? null : r.error() != null ? r.error() : "docker status " + r.status())));
+    }
+
+    /**
+     * keep an action, the oldest one is forgotten above 'retainedActions'
+     * @param action the action
+     */
+    private void act(JsonResponses.ScaleAction action){
+        synchronized (actions) {
+            actions.addLast(action);
+            if (actions.size() > retainedActions){ actions.removeFirst(); }
+        }
+    }
+
+    /**
+     * note the time of convergence of the apps whose running instances match their target for the first time
+     * @param observed the running instances of the apps
+     */
+    private void converge(Map<String, List<ApplicationData>> observed){
+        var now = System.nanoTime();
+        targets.replaceAll((app, target) -> target.convergenceMillis() == null
+                && observed.getOrDefault(app, List.of()).size() == target.desired()
+                ? new Target(target.desired(), target.since(), TimeUnit.NANOSECONDS.toMillis(now - target.since()))
+                : target);
+    }
+
+    /**
+     * the current time, for the actions
+     * @return the local time, to the second
+     */
+    private static String now(){
+        return LocalDateTime.now().withNano(0).toString();
+    }
+
+    /**
+     * the status of the auto-scale
+     * @return the targets and the running instances of the apps, and the last actions
+     */
+    public JsonResponses.Scaling status(){
+        var observed = observe();
+        var apps = new TreeMap<>(targets).entrySet().stream().map(e -> {
+            var count = observed.getOrDefault(e.getKey(), List.of()).size();
+            return new JsonResponses.Scaled(e.getKey(), e.getValue().desired(), count, count == e.getValue().desired(),
+                    e.getValue().convergenceMillis());
+        }).collect(Collectors.toList());
+        boolean enabled;
+        synchronized (scheduler) {
+            enabled = tick != null;
+        }
+        synchronized (actions) {
+            return new JsonResponses.Scaling(enabled, tickMillis, apps, List.copyOf(actions));
+        }
+    }
+
+    /**
+     * string format (json format) of the status of the auto-scale
+     * @return the json status format
+     */
+    @Override
+    public String toString(){
+        return toText(status());
+    }
+
+    /**
+     * string format (json format) of a status of the auto-scale
+     * @param status the status
+     * @return the json status format
+     */
+    public static String toText(JsonResponses.Scaling status){
+        return "{\n\tenabled:" + status.enabled() + ",\n\ttick:" + status.tickMillis() + "ms"
+                + ",\n\tapps:" + status.apps().stream().map(app -> "{app:" + app.app() + ", desired:" + app.desired()
+                        + ", running:" + app.running() + ", converged:" + app.converged()
+                        + (app.convergenceMillis() == null ? "" : ", convergence:" + app.convergenceMillis() + "ms") + "}")
+                        .collect(Collectors.joining(",\n\t\t", "[\n\t\t", "\n\t]"))
+                + ",\n\tactions:" + status.actions().stream().map(action -> "{time:" + action.time() + ", app:" + action.app()
+                        + ", action:" + action.action()
+                        + (action.dockerInstance() == null ? "" : ", docker-instance:" + action.dockerInstance())
+                        + (action.error() == null ? "" : ", error:" + action.error()) + "}")
+                        .collect(Collectors.joining(",\n\t\t", "[\n\t\t", "\n\t]"))
+                + "\n}";
+    }
+}
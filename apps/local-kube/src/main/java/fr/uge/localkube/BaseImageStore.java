@@ -0,0 +1,127 @@
+package fr.uge.localkube;
+
+import com.google.cloud.tools.jib.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class BaseImageStore {
+    /**
+     * class which keeps the base image of the apps as a local tar, so the registry is contacted only once
+     * @field baseImage the base image reference (ex: openjdk:15)
+     * @field tar the path of the pre-fetched base image
+     * @field layerCache the directory of the persistent Jib layer cache
+     * @field offline true when the registry must never be contacted
+     * @field hits the number of builds which found the base image in the store
+     * @field misses the number of builds which had to fetch the base image
+     * @field lock the lock preventing two concurrent fetches of the base image
+     */
+    private final String baseImage;
+    private final Path tar;
+    private final Path layerCache;
+    private final boolean offline;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Object lock = new Object();
+
+    /**
+     * Constructor of BaseImageStore
+     * @param settings the LocalKube settings (base image, store directory, layer cache directory)
+     */
+    public BaseImageStore(LocalKubeSettings settings){
+        requireNonNull(settings);
+        baseImage = settings.baseImage();
+        tar = settings.baseImageDirectory().resolve(baseImage.replaceAll("[/:@]", "_") + ".tar");
+        layerCache = settings.layerCacheDirectory();
+        offline = settings.offline();
+    }
+
+    /**
+     * get a Jib builder starting from the local base image, fetching it first when it is not stored yet
+     * @return the Jib builder
+     * @throws LKArgumentsException when the base image is missing and LocalKube is offline
+     */
+    public JibContainerBuilder from() throws InvalidImageReferenceException, IOException, InterruptedException,
+            ExecutionException, RegistryException, CacheDirectoryCreationException {
+        if (Files.exists(tar)) {
+            hits.incrementAndGet();
+        } else {
+            fetch();
+        }
+        return Jib.from(TarImage.at(tar).named(baseImage));
+    }
+
+    /**
+     * fetch the base image from the registry and store it as a tar (only once, even with concurrent starts)
+     * @throws LKArgumentsException when LocalKube is offline
+     */
+    private void fetch() throws InvalidImageReferenceException, IOException, InterruptedException,
+            ExecutionException, RegistryException, CacheDirectoryCreationException {
+        synchronized (lock) {
+            if (Files.exists(tar)) { hits.incrementAndGet(); return; }
+            misses.incrementAndGet();
+            if (offline) {
+                throw new LKArgumentsException("Base image " + baseImage + " is not in " + tar + " and LocalKube is offline");
+            }
+            Files.createDirectories(tar.getParent());
+            var part = tar.resolveSibling(tar.getFileName() + ".part");
+            Jib.from(baseImage).containerize(cached(Containerizer.to(TarImage.at(part).named(baseImage))));
+            Files.move(part, tar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * make a containerizer use the persistent layer cache
+     * @param containerizer the containerizer to configure
+     * @return the configured containerizer
+     */
+    public Containerizer cached(Containerizer containerizer){
+        requireNonNull(containerizer);
+        return containerizer.setBaseImageLayersCache(layerCache.resolve("base"))
+                .setApplicationLayersCache(layerCache.resolve("application"));
+    }
+
+    /**
+     * the number of builds which found the base image in the store
+     * @return the hit count
+     */
+    public long hits(){
+        return hits.get();
+    }
+
+    /**
+     * the number of builds which had to fetch the base image
+     * @return the miss count
+     */
+    public long misses(){
+        return misses.get();
+    }
+
+    /**
+     * the statistics of the store
+     * @return the base image, the store and the number of hits and misses
+     */
+    public JsonResponses.Cache stats(){
+        return new JsonResponses.Cache(baseImage, tar.toString(), hits.get(), misses.get());
+    }
+
+    /**
+     * string format (json format) of the cache statistics
+     * @return the json cache format
+     */
+    @Override
+    public String toString(){
+        return "{\n\tbase-image:" + baseImage
+                + ",\n\tstore:" + tar
+                + ",\n\thits:" + hits.get()
+                + ",\n\tmisses:" + misses.get()
+                + "\n}";
+    }
+}
@@ -0,0 +1,157 @@
+package fr.uge.localkube;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class BatchStarter {
+    /**
+     * class which starts the apps of a batch at the same time, with a bounded parallelism: the apps which share an image
+     * build and load it once, the container of an app is run as soon as its image is loaded, so the batch takes about
+     * the time of its slowest start instead of the sum of the starts
+     * @field image the image of an app, the apps with the same image share its build and its load
+     * @field build the step creating the image of an app
+     * @field load the step loading the image in docker
+     * @field run the step running the container and registering the app
+     * @field abandon the code giving back what was reserved for an app whose start failed
+     * @field executor the executor of the builds, loads and runs
+     */
+    private final Function<ApplicationData, String> image;
+    private final StartPipeline.Step build;
+    private final StartPipeline.Step load;
+    private final StartPipeline.Step run;
+    private final Consumer<ApplicationData> abandon;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor of BatchStarter
+     * @param settings the LocalKube settings (parallelism of the batch starts)
+     * @param image the image of an app
+     * @param build the step creating the image of an app
+     * @param load the step loading the image in docker
+     * @param run the step running the container and registering the app
+     * @param abandon the code giving back what was reserved for an app whose start failed
+     */
+    public BatchStarter(LocalKubeSettings settings, Function<ApplicationData, String> image, StartPipeline.Step build,
+                        StartPipeline.Step load, StartPipeline.Step run, Consumer<ApplicationData> abandon){
+        this(settings.batchParallelism(), image, build, load, run, abandon);
+    }
+
+    /**
+     * Constructor of BatchStarter
+     * @param parallelism the max number of builds, loads and runs at the same time
+     * @param image the image of an app
+     * @param build the step creating the image of an app
+     * @param load the step loading the image in docker
+     * @param run the step running the container and registering the app
+     * @param abandon the code giving back what was reserved for an app whose start failed
+     * @throws LKArgumentsException when the parallelism is not positive
+     */
+    public BatchStarter(int parallelism, Function<ApplicationData, String> image, StartPipeline.Step build,
+                        StartPipeline.Step load, StartPipeline.Step run, Consumer<ApplicationData> abandon){
+        if (parallelism <= 0){ throw new LKArgumentsException("Parallelism cannot be <= 0, " + parallelism); }
+        this.image = requireNonNull(image);
+        this.build = requireNonNull(build);
+        this.load = requireNonNull(load);
+        this.run = requireNonNull(run);
+        this.abandon = requireNonNull(abandon);
+        var counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> {
+            var thread = new Thread(r, "lk-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * start apps and wait for all of them
+     * @param specs the apps as they were asked ("name:port" or "name")
+     * @param create the creation of an app from its spec, which reserves its id and its port
+     * @return the result of each app, in the order of the specs
+     * @throws InterruptedException when interrupted while waiting for the starts
+     */
+    public List<StartResult> start(List<String> specs, Function<String, ApplicationData> create) throws InterruptedException {
+        requireNonNull(specs);
+        requireNonNull(create);
+        var begin = System.nanoTime();
+        var images = new HashMap<String, CompletableFuture<Void>>();
+        var starts = new ArrayList<CompletableFuture<StartResult>>(specs.size());
+        for (var spec : specs){
+            ApplicationData app;
+            try {
+                app = create.apply(spec);
+            } catch (LKArgumentsException e) {
+                starts.add(CompletableFuture.completedFuture(new StartResult(spec, null, elapsed(begin), e.getMessage())));
+                continue;
+            }
+            String key;
+            try {
+                key = image.apply(app);
+            } catch (LKArgumentsException e) {
+                starts.add(CompletableFuture.completedFuture(result(spec, app, begin, e)));
+                continue;
+            }
+            var loaded = images.computeIfAbsent(key, k -> CompletableFuture.runAsync(() -> {
+                step(build, app);
+                step(load, app);
+            }, executor));
+            starts.add(loaded.thenRunAsync(() -> step(run, app), executor)
+                    .handle((v, e) -> result(spec, app, begin, e)));
+        }
+        var results = new ArrayList<StartResult>(starts.size());
+        for (var start : starts){
+            try {
+                results.add(start.get());
+            } catch (ExecutionException e) {
+                throw new AssertionError(e);    // a start never fails, its error is in its result
+            }
+        }
+        return results;
+    }
+
+    /**
+     * apply a step of the start of an app
+     * @param step the step
+     * @param app the app
+     */
+    private static void step(StartPipeline.Step step, ApplicationData app){
+        try {
+            step.apply(app);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * end the start of an app, successfully or not
+     * @param spec the app as it was asked
+     * @param app the app
+     * @param begin the start of the batch, in nanoseconds
+     * @param error the failure of a step, null if all steps succeeded
+     * @return the result of the app
+     */
+    private StartResult result(String spec, ApplicationData app, long begin, Throwable error){
+        if (error == null){
+            return new StartResult(spec, app, elapsed(begin), null);
+        }
+        abandon.accept(app);
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return new StartResult(spec, app, elapsed(begin), cause instanceof LKArgumentsException ? cause.getMessage() : cause.toString());
+    }
+
+    /**
+     * the time since the start of the batch
+     * @param begin the start of the batch, in nanoseconds
+     * @return the elapsed time in milliseconds
+     */
+    private static long elapsed(long begin){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+}
@@ -0,0 +1,136 @@
+package fr.uge.localkube;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class BulkExecutor {
+    /**
+     * class which runs a docker operation on the containers of many apps, with a bounded parallelism
+     * and a timeout for each container (the time spent waiting for a thread is not counted)
+     * @field executor the executor running the operations
+     * @field watchdog the executor interrupting the operations which take too long
+     * @field timeoutMillis the max duration of the operation on one container
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * apply a docker operation on the container of an app
+         * @param app the app
+         * @return the exit status of the operation (0 on success)
+         * @throws IOException when docker can't be reached
+         * @throws InterruptedException when interrupted while waiting for docker
+         */
+        int apply(ApplicationData app) throws IOException, InterruptedException;
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor of BulkExecutor
+     * @param settings the LocalKube settings (parallelism and timeout of the bulk operations)
+     */
+    public BulkExecutor(LocalKubeSettings settings){
+        this(settings.bulkParallelism(), TimeUnit.SECONDS.toMillis(settings.bulkTimeoutSeconds()));
+    }
+
+    /**
+     * Constructor of BulkExecutor
+     * @param parallelism the max number of containers handled at the same time
+     * @param timeoutMillis the max duration of the operation on one container
+     * @throws LKArgumentsException when the parallelism or the timeout is not positive
+     */
+    public BulkExecutor(int parallelism, long timeoutMillis){
+        if (parallelism <= 0){ throw new LKArgumentsException("Parallelism cannot be <= 0, " + parallelism); }
+        if (timeoutMillis <= 0){ throw new LKArgumentsException("Timeout cannot be <= 0, " + timeoutMillis); }
+        var counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> daemon(r, "lk-bulk-" + counter.incrementAndGet()));
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "lk-bulk-watchdog"));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * create a daemon thread, so a pending operation never blocks the exit
+     * @param r the code of the thread
+     * @param name the name of the thread
+     * @return the thread
+     */
+    private static Thread daemon(Runnable r, String name){
+        var thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * run an operation on the containers of apps and wait for all of them
+     * @param apps the apps
+     * @param operation the docker operation
+     * @return the result of each container, in the order of the apps
+     * @throws InterruptedException when interrupted while waiting for the results
+     */
+    public List<ContainerResult> run(List<ApplicationData> apps, Operation operation) throws InterruptedException {
+        requireNonNull(apps);
+        requireNonNull(operation);
+        var futures = new ArrayList<Future<ContainerResult>>(apps.size());
+        for (var app : apps){
+            futures.add(executor.submit(() -> apply(app, operation)));
+        }
+        var results = new ArrayList<ContainerResult>(apps.size());
+        for (var i = 0; i < apps.size(); i++){
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(new ContainerResult(apps.get(i), -1, 0, e.getCause().toString()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * apply an operation on one container, the worker is interrupted when the timeout expires
+     * @param app the app
+     * @param operation the docker operation
+     * @return the result of the container
+     */
+    private ContainerResult apply(ApplicationData app, Operation operation){
+        var worker = Thread.currentThread();
+        var guard = new Object();
+        var done = new boolean[1];
+        var start = System.nanoTime();
+        var alarm = watchdog.schedule(() -> {
+            synchronized (guard) {
+                if (!done[0]){ worker.interrupt(); }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return new ContainerResult(app, operation.apply(app), elapsed(start), null);
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            return new ContainerResult(app, -1, elapsed(start), "timeout after " + timeoutMillis + "ms");
+        } catch (IOException e) {
+            return new ContainerResult(app, -1, elapsed(start), e.toString());
+        } finally {
+            alarm.cancel(false);
+            synchronized (guard) {
+                done[0] = true;
+            }
+            Thread.interrupted(); // a late alarm must not interrupt the next operation of this worker
+        }
+    }
+
+    /**
+     * the duration since a start
+     * @param start the start given by System.nanoTime()
+     * @return the duration in milliseconds
+     */
+    private static long elapsed(long start){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,47 @@
+package fr.uge.localkube;
+
+import static java.util.Objects.requireNonNull;
+
+public record ContainerResult(ApplicationData app, int status, long millis, String error) {
+    /**
+     * record which represent the result of a docker operation on the container of an app
+     * @field app the app
+     * @field status the exit status of the operation (0 on success)
+     * @field millis the duration of the operation
+     * @field error the error message, null if there is none
+     */
+
+    /**
+     * Constructor for ContainerResult
+     * @param app the app
+     * @param status the exit status of the operation (0 on success)
+     * @param millis the duration of the operation
+     * @param error the error message, null if there is none
+     */
+    public ContainerResult {
+        requireNonNull(app);
+        if (millis < 0){ throw new LKArgumentsException("Duration cannot be < 0, " + millis); }
+    }
+
+    /**
+     * tell if the operation succeeded
+     * @return true if the status is 0 and there is no error
+     */
+    public boolean isSuccess(){
+        return status == 0 && error == null;
+    }
+
+    /**
+     * string format (json format) of a result
+     * @return the json result format
+     */
+    @Override
+    public String toString(){
+        return "{\n\tid:" + app.id()
+                + ",\n\tdocker-instance:" + app.dockerInstance()
+                + ",\n\tstatus:" + status
+                + ",\n\ttime:" + millis + "ms"
+                + (error == null ? "" : ",\n\terror:" + error)
+                + "\n}";
+    }
+}
@@ -0,0 +1,125 @@
+package fr.uge.localkube;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+
+public interface ContainerRuntime {
+    /**
+     * interface which represent the way LocalKube talks to docker (docker CLI or docker Engine API)
+     * the int returned by the container operations is an exit status: 0 on success, an error code otherwise
+     */
+
+    /**
+     * load an image (docker load)
+     * @param image the tar of the image
+     * @return the exit status
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    int load(Path image) throws IOException, InterruptedException;
+
+    /**
+     * tell if a container exists, running or not (docker ps -a)
+     * @param name the container name
+     * @return true if the container exists
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    boolean exists(String name) throws IOException, InterruptedException;
+
+    /**
+     * start an existing container (docker start)
+     * @param name the container name
+     * @return the exit status
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    int start(String name) throws IOException, InterruptedException;
+
+    /**
+     * create and start a container in background, publishing a port (docker run -d -p port:port -e name=value)
+     * @param name the container name
+     * @param port the port published on the host
+     * @param image the image of the container
+     * @param env the environment of the container, a map (variable name, value)
+     * @return the exit status
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    int run(String name, int port, String image, Map<String, String> env) throws IOException, InterruptedException;
+
+    /**
+     * stop a container (docker stop)
+     * @param name the container name
+     * @return the exit status
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    int stop(String name) throws IOException, InterruptedException;
+
+    /**
+     * remove a container, even a running one (docker rm --force)
+     * @param name the container name
+     * @return the exit status
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    int remove(String name) throws IOException, InterruptedException;
+
+    /**
+     * get the logs of a container (docker logs --since), the stream must be closed by the caller, closing it from another
+     * thread ends a pending read
+     * @param name the container name
+     * @param minutes the number of minutes of logs to get
+     * @return the stream of the logs lines (stdout and stderr)
+     * @throws IOException when docker can't be reached
+     */
+    InputStream logs(String name, long minutes) throws IOException;
+
+    /**
+     * follow the logs of a container (docker logs --follow), the stream ends when the container stops or when it is
+     * closed, from any thread
+     * @param name the container name
+     * @param since the epoch second of the first logs to get
+     * @return the stream of the logs lines (stdout and stderr)
+     * @throws IOException when docker can't be reached
+     */
+    InputStream follow(String name, long since) throws IOException;
+
+    /**
+     * list all the containers, running or not, with their state (docker ps -a)
+     * @return a map (container name, docker state: created, running, paused, restarting, removing, exited or dead)
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    Map<String, String> containers() throws IOException, InterruptedException;
+
+    /**
+     * subscribe to the events of the containers (docker events), the stream never ends while docker is up
+     * @param since the epoch second of the first events to get
+     * @return the stream of the events, one json object per line
+     * @throws IOException when docker can't be reached
+     */
+    InputStream events(long since) throws IOException;
+
+    /**
+     * create the runtime given by the settings: 'cli', 'engine' or 'auto' (the engine API if it answers, the CLI otherwise)
+     * @param settings the LocalKube settings
+     * @return the container runtime
+     */
+    static ContainerRuntime of(LocalKubeSettings settings){
+        requireNonNull(settings);
+        switch (settings.dockerRuntime()) {
+            case "cli": return new DockerCliRuntime();
+            case "engine": return new DockerEngineRuntime(new EngineClient(settings.dockerHost()));
+            case "auto": return DockerEngineRuntime.ifReachable(new EngineClient(settings.dockerHost()))
+                    .orElseGet(DockerCliRuntime::new);
+            default: throw new LKArgumentsException("Docker runtime should be cli, engine or auto, get : " + settings.dockerRuntime());
+        }
+    }
+}
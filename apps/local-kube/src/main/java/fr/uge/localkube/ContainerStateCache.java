@@ -0,0 +1,251 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class ContainerStateCache {
+    /**
+     * class which keeps the state of the docker containers in memory, so LocalKube never polls docker to know them:
+     * the states are listed once at boot, then kept current by a long-lived subscription to the container events
+     * (docker events). When the subscription breaks, it reconnects after a growing delay and lists the containers
+     * again (resync), so what happened while disconnected is not missed. A container which stops running outside
+     * LocalKube (crash, docker stop, docker rm) is reported to 'exited'
+     * @field MAPPER the reader of the events
+     * @field MAX_RECONNECT_MILLIS the max delay before a reconnection
+     * @field runtime the way to talk to docker
+     * @field exited the code run with the name of a container which stops running
+     * @field reconnectMillis the first delay before a reconnection, doubled after each failure
+     * @field states a map (container name, state) of the existing containers
+     * @field synced true while the subscription is up (the states are current)
+     * @field events the number of applied events
+     * @field resyncs the number of lists of the containers
+     */
+    public enum State {
+        CREATED, RUNNING, PAUSED, RESTARTING, REMOVING, EXITED, DEAD;
+
+        /**
+         * the state of a docker state
+         * @param state the docker state (ex: "running")
+         * @return the state, DEAD when the docker state is unknown
+         */
+        static State of(String state){
+            try {
+                return valueOf(state.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return DEAD;
+            }
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long MAX_RECONNECT_MILLIS = 30_000;
+
+    private final ContainerRuntime runtime;
+    private final Consumer<String> exited;
+    private final long reconnectMillis;
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+    private volatile boolean synced;
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    /**
+     * Constructor of ContainerStateCache
+     * @param runtime the way to talk to docker
+     * @param settings the LocalKube settings (delay before a reconnection)
+     * @param exited the code run with the name of a container which stops running
+     */
+    public ContainerStateCache(ContainerRuntime runtime, LocalKubeSettings settings, Consumer<String> exited){
+        this(runtime, settings.dockerEventsReconnectMillis(), exited);
+    }
+
+    /**
+     * Constructor of ContainerStateCache, the subscription thread is started
+     * @param runtime the way to talk to docker
+     * @param reconnectMillis the first delay before a reconnection
+     * @param exited the code run with the name of a container which stops running
+     * @throws LKArgumentsException when the delay is not positive
+     */
+    public ContainerStateCache(ContainerRuntime runtime, long reconnectMillis, Consumer<String> exited){
+        if (reconnectMillis <= 0){ throw new LKArgumentsException("Reconnect delay cannot be <= 0, " + reconnectMillis); }
+        this.runtime = requireNonNull(runtime);
+        this.exited = requireNonNull(exited);
+        this.reconnectMillis = reconnectMillis;
+        var thread = new Thread(this::subscribe, "lk-docker-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * list the containers, subscribe to their events and apply them, again and again when the subscription breaks
+     */
+    private void subscribe(){
+        var delay = reconnectMillis;
+        while (true){
+            try {
+                var since = resync();
+                try (var reader = new BufferedReader(new InputStreamReader(runtime.events(since), StandardCharsets.UTF_8))) {
+                    synced = true;
+                    delay = reconnectMillis;
+                    for (var line = reader.readLine(); line != null; line = reader.readLine()){
+                        apply(line);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (synced || resyncs.get() == 0){ LKArgumentsException.report("Docker events lost (" + e + "), reconnecting"); }
+            } catch (InterruptedException e) {
+                return;
+            }
+            synced = false;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_MILLIS);
+        }
+    }
+
+    /**
+     * replace the states by the list of the containers, the running containers which are not running anymore are reported
+     * @return the epoch second before the list, the events are replayed from it so none is missed
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    long resync() throws IOException, InterruptedException {
+        var since = System.currentTimeMillis() / 1000;
+        var listed = new HashMap<String, State>();
+        runtime.containers().forEach((name, state) -> listed.put(name, State.of(state)));
+        resyncs.incrementAndGet();
+        states.forEach((name, state) -> {
+            if (state == State.RUNNING && listed.get(name) != State.RUNNING && states.remove(name, state)){ exited.accept(name); }
+        });
+        states.keySet().retainAll(listed.keySet());
+        states.putAll(listed);
+        return since;
+    }
+
+    /**
+     * apply an event of a container
+     * @param line the event, a json object (docker events --format '{{json .}}' or the Engine API)
+     */
+    void apply(String line){
+        if (line.isBlank()){ return; }
+        try {
+            var event = MAPPER.readTree(line);
+            var name = event.path("Actor").path("Attributes").path("name").asText();
+            var action = event.path("Action").asText(event.path("status").asText());
+            if (name.isEmpty() || !"container".equals(event.path("Type").asText("container"))){ return; }
+            events.incrementAndGet();
+            apply(name, action.split(":")[0]);
+        } catch (JsonProcessingException e) {
+            LKArgumentsException.report("Invalid docker event : " + line);
+        }
+    }
+
+    /**
+     * apply the action of an event to a container
+     * @param name the container name
+     * @param action the action (create, start, restart, unpause, pause, die or destroy, the others do not change the state)
+     */
+    private void apply(String name, String action){
+        switch (action) {
+            case "create": change(name, State.CREATED); break;
+            case "start": case "restart": case "unpause": change(name, State.RUNNING); break;
+            case "pause": change(name, State.PAUSED); break;
+            case "die": change(name, State.EXITED); break;
+            case "destroy": change(name, null); break;
+            default: break;
+        }
+    }
+
+    /**
+     * change the state of a container, a container which stops running is reported
+     * @param name the container name
+     * @param state the new state, null when the container is removed
+     */
+    private void change(String name, State state){
+        var old = state == null ? states.remove(name) : states.put(name, state);
+        if (old == State.RUNNING && state != State.RUNNING && state != State.PAUSED){ exited.accept(name); }
+    }
+
+    /**
+     * record a container LocalKube just started, before its event arrives
+     * @param name the container name
+     */
+    public void started(String name){
+        states.put(requireNonNull(name), State.RUNNING);
+    }
+
+    /**
+     * tell if a container exists, running or not, docker is asked while the states are not current
+     * @param name the container name
+     * @return true if the container exists
+     * @throws IOException when docker can't be reached
+     * @throws InterruptedException when interrupted while waiting for docker
+     */
+    public boolean exists(String name) throws IOException, InterruptedException {
+        requireNonNull(name);
+        return synced ? states.containsKey(name) : runtime.exists(name);
+    }
+
+    /**
+     * tell if a container may be running: it is running, or the states are not current
+     * @param name the container name
+     * @return false only when the container is known as not running
+     */
+    public boolean mayRun(String name){
+        return !synced || states.get(requireNonNull(name)) == State.RUNNING;
+    }
+
+    /**
+     * get the state of a container
+     * @param name the container name
+     * @return the state, empty if the container does not exist
+     */
+    public Optional<State> state(String name){
+        return Optional.ofNullable(states.get(requireNonNull(name)));
+    }
+
+    /**
+     * tell if the states are current
+     * @return true while the subscription to the events is up
+     */
+    public boolean isSynced(){
+        return synced;
+    }
+
+    /**
+     * the statistics of the cache
+     * @return the subscription state, the containers, the applied events and the resyncs
+     */
+    public JsonResponses.Containers stats(){
+        return new JsonResponses.Containers(synced, states.size(),
+                states.values().stream().filter(State.RUNNING::equals).count(), events.get(), resyncs.get());
+    }
+
+    /**
+     * string format (json format) of the statistics of the cache
+     * @return the json statistics format
+     */
+    @Override
+    public String toString(){
+        var stats = stats();
+        return "{\n\tsynced:" + stats.synced() + ",\n\tcontainers:" + stats.containers() + ",\n\trunning:" + stats.running()
+                + ",\n\tevents:" + stats.events() + ",\n\tresyncs:" + stats.resyncs() + "\n}";
+    }
+}
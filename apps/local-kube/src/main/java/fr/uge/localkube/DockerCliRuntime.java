@@ -0,0 +1,134 @@
+package fr.uge.localkube;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class DockerCliRuntime implements ContainerRuntime {
+    /**
+     * class which talks to docker by forking the docker command line (one process per operation)
+     */
+
+    /**
+     * run a docker command and wait for it
+     * @param command the command and its arguments
+     * @return the exit status of the command
+     * @throws IOException for start in ProcessBuilder
+     * @throws InterruptedException for waitFor in ProcessBuilder
+     */
+    private static int exec(String... command) throws IOException, InterruptedException {
+        return waitFor(new ProcessBuilder(command).inheritIO().start());
+    }
+
+    /**
+     * wait for a docker command, the command is killed when the wait is interrupted (a timeout of a bulk operation),
+     * so it never ends in background after being reported as failed
+     * @param process the docker command
+     * @return the exit status of the command
+     * @throws InterruptedException when interrupted while waiting, the command is then killed
+     */
+    private static int waitFor(Process process) throws InterruptedException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    /**
+     * the output of a docker command, closing it kills the command so a read blocked on it ends
+     * @param process the docker command
+     * @return the output of the command
+     */
+    private static InputStream output(Process process){
+        return new FilterInputStream(process.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                process.destroy();
+                super.close();
+            }
+        };
+    }
+
+    @Override
+    public int load(Path image) throws IOException, InterruptedException {
+        return exec("docker", "load", "-i", image.toString());
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException, InterruptedException {
+        requireNonNull(name);
+        var ps = new ProcessBuilder("docker", "ps", "-a", "-f", "name=^" + name + "$", "--format", "{{.Names}}").start();
+        try (var reader = new BufferedReader(new InputStreamReader(ps.getInputStream()))) {
+            var found = reader.lines().anyMatch(name::equals);
+            waitFor(ps);
+            return found;
+        }
+    }
+
+    @Override
+    public int start(String name) throws IOException, InterruptedException {
+        return exec("docker", "start", requireNonNull(name));
+    }
+
+    @Override
+    public int run(String name, int port, String image, Map<String, String> env) throws IOException, InterruptedException {
+        var command = new ArrayList<>(List.of("docker", "run", "-d", "-p", port + ":" + port, "--name", requireNonNull(name)));
+        env.forEach((variable, value) -> command.addAll(List.of("-e", variable + "=" + value)));
+        command.add(requireNonNull(image));
+        return exec(command.toArray(String[]::new));
+    }
+
+    @Override
+    public int stop(String name) throws IOException, InterruptedException {
+        return exec("docker", "stop", requireNonNull(name));
+    }
+
+    @Override
+    public int remove(String name) throws IOException, InterruptedException {
+        return exec("docker", "rm", "--force", requireNonNull(name));
+    }
+
+    @Override
+    public Map<String, String> containers() throws IOException, InterruptedException {
+        var ps = new ProcessBuilder("docker", "ps", "-a", "--format", "{{.Names}}\t{{.State}}").start();
+        var containers = new HashMap<String, String>();
+        try (var reader = new BufferedReader(new InputStreamReader(ps.getInputStream()))) {
+            reader.lines().map(line -> line.split("\t")).filter(fields -> fields.length == 2)
+                    .forEach(fields -> containers.put(fields[0], fields[1]));
+        }
+        if (waitFor(ps) != 0){ throw new IOException("docker ps failed with status " + ps.exitValue()); }
+        return containers;
+    }
+
+    @Override
+    public InputStream events(long since) throws IOException {
+        return output(new ProcessBuilder("docker", "events", "--filter", "type=container", "--format", "{{json .}}", "--since=" + since)
+                .start());
+    }
+
+    @Override
+    public InputStream logs(String name, long minutes) throws IOException {
+        requireNonNull(name);
+        return output(new ProcessBuilder("docker", "logs", "--since=" + minutes + "m", name)
+                .redirectErrorStream(true).start());
+    }
+
+    @Override
+    public InputStream follow(String name, long since) throws IOException {
+        requireNonNull(name);
+        return output(new ProcessBuilder("docker", "logs", "--follow", "--since=" + since, name)
+                .redirectErrorStream(true).start());
+    }
+}
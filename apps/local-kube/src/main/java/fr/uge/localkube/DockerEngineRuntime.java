@@ -0,0 +1,220 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class DockerEngineRuntime implements ContainerRuntime {
+    /**
+     * class which talks to docker through the Engine HTTP API (no process is forked)
+     * the exit status of an operation is 0 on success, the HTTP status of the error otherwise
+     * @field MAPPER the reader of the json answers
+     * @field CONTAINER_EVENTS the filter of the container events, url encoded ({"type":["container"]})
+     * @field client the HTTP client of the docker host
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONTAINER_EVENTS = "%7B%22type%22%3A%5B%22container%22%5D%7D";
+
+    private final EngineClient client;
+
+    /**
+     * Constructor of DockerEngineRuntime
+     * @param client the HTTP client of the docker host
+     */
+    public DockerEngineRuntime(EngineClient client){
+        this.client = requireNonNull(client);
+    }
+
+    /**
+     * create an engine runtime only if the docker host answers to a ping
+     * @param client the HTTP client of the docker host
+     * @return the runtime, empty if the docker host can't be reached
+     */
+    public static Optional<ContainerRuntime> ifReachable(EngineClient client){
+        requireNonNull(client);
+        try (var response = client.send("GET", "/_ping", null)) {
+            response.text();
+            return response.isSuccess() ? Optional.of(new DockerEngineRuntime(client)) : Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Docker Engine API not reachable (" + e.getMessage() + "), using the docker CLI");
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * send a request and give its exit status
+     * @param method the HTTP method
+     * @param path the path (and query) of the request
+     * @param body the body of the request, null if there is none
+     * @return 0 on success, the HTTP status otherwise
+     * @throws IOException when the docker host can't be reached
+     */
+    private int exec(String method, String path, EngineClient.Body body) throws IOException {
+        try (var response = client.send(method, path, body)) {
+            var text = response.text();
+            if (response.isSuccess()){ return 0; }
+            LKArgumentsException.report("docker " + method + " " + path + " : " + text.trim());
+            return response.status();
+        }
+    }
+
+    @Override
+    public int load(Path image) throws IOException {
+        return exec("POST", "/images/load?quiet=1", EngineClient.Body.file(image, "application/x-tar"));
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException {
+        try (var response = client.send("GET", "/containers/" + requireNonNull(name) + "/json", null)) {
+            response.text();
+            return response.isSuccess();
+        }
+    }
+
+    @Override
+    public int start(String name) throws IOException {
+        return exec("POST", "/containers/" + requireNonNull(name) + "/start", null);
+    }
+
+    @Override
+    public int run(String name, int port, String image, Map<String, String> env) throws IOException {
+        requireNonNull(name);
+        requireNonNull(image);
+        var binding = "\"" + port + "/tcp\"";
+        var variables = MAPPER.writeValueAsString(env.entrySet().stream()
+                .map(variable -> variable.getKey() + "=" + variable.getValue()).collect(Collectors.toList()));
+        var create = exec("POST", "/containers/create?name=" + name, EngineClient.Body.json(
+                "{\"Image\":\"" + image + "\",\"Env\":" + variables + ",\"ExposedPorts\":{" + binding + ":{}},"
+                + "\"HostConfig\":{\"PortBindings\":{" + binding + ":[{\"HostPort\":\"" + port + "\"}]}}}"));
+        return create != 0 ? create : start(name);
+    }
+
+    @Override
+    public int stop(String name) throws IOException {
+        return exec("POST", "/containers/" + requireNonNull(name) + "/stop", null);
+    }
+
+    @Override
+    public int remove(String name) throws IOException {
+        return exec("DELETE", "/containers/" + requireNonNull(name) + "?force=1", null);
+    }
+
+    @Override
+    public Map<String, String> containers() throws IOException {
+        try (var response = client.send("GET", "/containers/json?all=1", null)) {
+            var text = response.text();
+            if (!response.isSuccess()){ throw new IOException("docker ps : " + text.trim()); }
+            var containers = new HashMap<String, String>();
+            for (var container : MAPPER.readTree(text)){
+                for (var name : container.path("Names")){
+                    containers.put(name.asText().substring(1), container.path("State").asText());   // names start with '/'
+                }
+            }
+            return containers;
+        }
+    }
+
+    @Override
+    public InputStream events(long since) throws IOException {
+        var response = client.send("GET", "/events?since=" + since + "&filters=" + CONTAINER_EVENTS, null);
+        if (!response.isSuccess()) {
+            try (response) {
+                throw new IOException("docker events : " + response.text().trim());
+            }
+        }
+        return response.body();
+    }
+
+    @Override
+    public InputStream logs(String name, long minutes) throws IOException {
+        return logs(name, "since=" + (System.currentTimeMillis() / 1000 - minutes * 60));
+    }
+
+    @Override
+    public InputStream follow(String name, long since) throws IOException {
+        return logs(name, "follow=1&since=" + since);
+    }
+
+    /**
+     * get the demultiplexed logs of a container
+     * @param name the container name
+     * @param query the query parameters added to stdout and stderr
+     * @return the stream of the logs lines
+     * @throws IOException when docker can't be reached or answers an error
+     */
+    private InputStream logs(String name, String query) throws IOException {
+        var response = client.send("GET", "/containers/" + requireNonNull(name) + "/logs?stdout=1&stderr=1&" + query, null);
+        if (!response.isSuccess()) {
+            try (response) {
+                throw new IOException("docker logs " + name + " : " + response.text().trim());
+            }
+        }
+        return new Frames(response.body());
+    }
+
+    private static final class Frames extends FilterInputStream {
+        /**
+         * class which removes the 8 bytes header of each frame of a multiplexed stream (stdout and stderr of a container)
+         * @field remaining the number of bytes left in the current frame
+         */
+        private long remaining;
+
+        /**
+         * Constructor of Frames
+         * @param multiplexed the multiplexed stream
+         */
+        private Frames(InputStream multiplexed){
+            super(multiplexed);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0 && !nextFrame()){ return -1; }
+            var n = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n == -1){ throw new EOFException("Log stream closed in the middle of a frame"); }
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * the bytes readable without waiting, without the header of the next frame when the current frame is over
+         * @return an estimate of the readable bytes
+         * @throws IOException when the stream is broken
+         */
+        @Override
+        public int available() throws IOException {
+            var available = in.available();
+            return remaining == 0 ? Math.max(0, available - 8) : (int) Math.min(remaining, available);
+        }
+
+        /**
+         * read the header of the next frame
+         * @return false when the stream is over
+         * @throws IOException when the header is broken
+         */
+        private boolean nextFrame() throws IOException {
+            var header = in.readNBytes(8);
+            if (header.length == 0){ return false; }
+            if (header.length < 8){ throw new EOFException("Log stream closed in the middle of a frame header"); }
+            remaining = ((header[4] & 0xFFL) << 24) | ((header[5] & 0xFF) << 16) | ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
+            return remaining != 0 || nextFrame();
+        }
+    }
+}
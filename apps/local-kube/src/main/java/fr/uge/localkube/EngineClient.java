@@ -0,0 +1,434 @@
+package fr.uge.localkube;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class EngineClient implements Closeable {
+    /**
+     * class which is a minimal HTTP/1.1 client for the docker Engine API, with keep-alive connections and streamed bodies
+     * @field host the docker host: unix:///var/run/docker.sock or tcp://host:port
+     * @field idle the connections waiting for a new request
+     */
+    private final String host;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+    /**
+     * record which represent the body of a request
+     * @field contentType the content type of the body
+     * @field length the length in bytes of the body
+     * @field writer the code writing the body
+     */
+    public record Body(String contentType, long length, Writer writer) {
+        @FunctionalInterface
+        public interface Writer {
+            /**
+             * write the body
+             * @param output the stream of the request
+             * @throws IOException when the body can't be written
+             */
+            void writeTo(OutputStream output) throws IOException;
+        }
+
+        /**
+         * Constructor of Body
+         * @param contentType the content type of the body
+         * @param length the length in bytes of the body
+         * @param writer the code writing the body
+         */
+        public Body {
+            requireNonNull(contentType);
+            requireNonNull(writer);
+            if (length < 0){ throw new LKArgumentsException("Body length cannot be < 0, " + length); }
+        }
+
+        /**
+         * a json body
+         * @param json the json to send
+         * @return the body
+         */
+        public static Body json(String json){
+            var bytes = json.getBytes(StandardCharsets.UTF_8);
+            return new Body("application/json", bytes.length, output -> output.write(bytes));
+        }
+
+        /**
+         * a body streamed from a file
+         * @param path the file to send
+         * @param contentType the content type of the file
+         * @return the body
+         * @throws IOException when the file can't be read
+         */
+        public static Body file(Path path, String contentType) throws IOException {
+            requireNonNull(path);
+            return new Body(contentType, Files.size(path), output -> Files.copy(path, output));
+        }
+    }
+
+    /**
+     * record which represent a response, the body must be closed to give the connection back
+     * @field status the HTTP status
+     * @field body the streamed body of the response
+     */
+    public record Response(int status, InputStream body) implements Closeable {
+        /**
+         * tell if the status is a success (2xx) or 'not modified' (304)
+         * @return true on success
+         */
+        public boolean isSuccess(){
+            return (status >= 200 && status < 300) || status == 304;
+        }
+
+        /**
+         * read the whole body as a String
+         * @return the body
+         * @throws IOException when the body can't be read
+         */
+        public String text() throws IOException {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * Constructor of EngineClient
+     * @param host the docker host: unix:///var/run/docker.sock or tcp://host:port
+     */
+    public EngineClient(String host){
+        this.host = requireNonNull(host);
+        if (!host.startsWith("unix://") && !host.startsWith("tcp://")){
+            throw new LKArgumentsException("Docker host should be unix://[path] or tcp://[host]:[port], get : " + host);
+        }
+    }
+
+    /**
+     * send a request, reusing an idle connection if one is available
+     * @param method the HTTP method
+     * @param path the path (and query) of the request
+     * @param body the body of the request, null if there is none
+     * @return the response, to be closed
+     * @throws IOException when the docker host can't be reached
+     */
+    public Response send(String method, String path, Body body) throws IOException {
+        requireNonNull(method);
+        requireNonNull(path);
+        var connection = idle.pollFirst();
+        if (connection != null) {
+            try {
+                return connection.exchange(method, path, body);
+            } catch (IOException e) {
+                connection.close(); // the daemon has closed the keep-alive connection, retry on a new one
+            }
+        }
+        return new Connection(open()).exchange(method, path, body);
+    }
+
+    /**
+     * open a new channel to the docker host
+     * @return the channel
+     * @throws IOException when the docker host can't be reached
+     */
+    private SocketChannel open() throws IOException {
+        if (host.startsWith("tcp://")) {
+            var uri = URI.create(host);
+            return SocketChannel.open(new InetSocketAddress(uri.getHost(), uri.getPort()));
+        }
+        return SocketChannel.open(unixAddress(host.substring("unix://".length())));
+    }
+
+    /**
+     * get the address of a unix domain socket (java.net.UnixDomainSocketAddress is only available since Java 16)
+     * @param path the path of the socket
+     * @return the address
+     * @throws IOException when the running JVM has no unix domain socket support
+     */
+    private static SocketAddress unixAddress(String path) throws IOException {
+        try {
+            var type = Class.forName("java.net.UnixDomainSocketAddress");
+            return (SocketAddress) type.getMethod("of", String.class).invoke(null, path);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unix domain sockets need Java 16 or later, use a tcp:// docker host", e);
+        }
+    }
+
+    /**
+     * close all the idle connections
+     */
+    @Override
+    public void close() {
+        for (var connection = idle.pollFirst(); connection != null; connection = idle.pollFirst()) {
+            connection.close();
+        }
+    }
+
+    /**
+     * read a line ending with CRLF (or LF)
+     * @param input the stream to read
+     * @return the line without its end
+     * @throws IOException when the stream ends before the end of the line
+     */
+    static String readLine(InputStream input) throws IOException {
+        var line = new ByteArrayOutputStream(64);
+        for (var b = input.read(); b != '\n'; b = input.read()) {
+            if (b == -1){ throw new EOFException("Connection closed by the docker host"); }
+            if (b != '\r'){ line.write(b); }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private final class Connection {
+        /**
+         * class which represent a keep-alive connection to the docker host
+         * @field channel the channel of the connection
+         * @field input the buffered stream of the responses
+         * @field output the buffered stream of the requests
+         */
+        private final SocketChannel channel;
+        private final InputStream input;
+        private final OutputStream output;
+
+        /**
+         * Constructor of Connection
+         * @param channel the connected channel
+         */
+        private Connection(SocketChannel channel){
+            this.channel = channel;
+            input = new BufferedInputStream(Channels.newInputStream(channel));
+            output = new BufferedOutputStream(Channels.newOutputStream(channel));
+        }
+
+        /**
+         * send a request and read the head of its response
+         * @param method the HTTP method
+         * @param path the path (and query) of the request
+         * @param body the body of the request, null if there is none
+         * @return the response, its body is streamed from the connection
+         * @throws IOException when the connection is broken
+         */
+        private Response exchange(String method, String path, Body body) throws IOException {
+            var head = new StringBuilder().append(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: docker\r\n");
+            if (body != null) {
+                head.append("Content-Type: ").append(body.contentType())
+                        .append("\r\nContent-Length: ").append(body.length()).append("\r\n");
+            }
+            output.write(head.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null){ body.writer().writeTo(output); }
+            output.flush();
+            return readResponse(method);
+        }
+
+        /**
+         * read the status line and the headers of a response
+         * @param method the HTTP method of the request
+         * @return the response
+         * @throws IOException when the connection is broken
+         */
+        private Response readResponse(String method) throws IOException {
+            var status = Integer.parseInt(readLine(input).split(" ")[1]);
+            var headers = new HashMap<String, String>();
+            for (var line = readLine(input); !line.isEmpty(); line = readLine(input)) {
+                var colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            var keepAlive = !"close".equalsIgnoreCase(headers.get("connection"));
+            if (method.equals("HEAD") || status == 204 || status == 304 || status < 200) {
+                return new Response(status, new BodyStream(new BoundedStream(input, 0), keepAlive));
+            }
+            if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+                return new Response(status, new BodyStream(new ChunkedStream(input), keepAlive));
+            }
+            var length = headers.get("content-length");
+            if (length != null) {
+                return new Response(status, new BodyStream(new BoundedStream(input, Long.parseLong(length)), keepAlive));
+            }
+            return new Response(status, new BodyStream(input, false));
+        }
+
+        /**
+         * close the channel of the connection
+         */
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing to do, the connection is dropped anyway
+            }
+        }
+
+        private final class BodyStream extends FilterInputStream {
+            /**
+             * class which is the body of a response, giving the connection back when fully read and closed, a body closed
+             * before its end (an endless stream of logs or events) closes the connection, it is never read on close
+             * @field keepAlive true if the connection can be reused
+             * @field ended true when the body has been fully read
+             * @field closed true when the body is closed
+             */
+            private final boolean keepAlive;
+            private boolean ended;
+            private boolean closed;
+
+            /**
+             * Constructor of BodyStream
+             * @param body the stream of the body
+             * @param keepAlive true if the connection can be reused
+             */
+            private BodyStream(InputStream body, boolean keepAlive){
+                super(body);
+                this.keepAlive = keepAlive;
+            }
+
+            @Override
+            public int read() throws IOException {
+                var b = super.read();
+                ended |= b == -1;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                var n = super.read(buffer, offset, length);
+                ended |= n == -1;
+                return n;
+            }
+
+            @Override
+            public void close() {
+                if (closed){ return; }
+                closed = true;
+                if (keepAlive && (ended || atEnd())) {
+                    idle.offerFirst(Connection.this);
+                } else {
+                    Connection.this.close();
+                }
+            }
+
+            /**
+             * tell, without reading, if the body is already at its end (an empty body, or a body read up to its length)
+             * @return true if nothing is left to read
+             */
+            private boolean atEnd() {
+                if (in instanceof BoundedStream){ return ((BoundedStream) in).remaining == 0; }
+                return in instanceof ChunkedStream && ((ChunkedStream) in).ended;
+            }
+        }
+    }
+
+    private static final class BoundedStream extends InputStream {
+        /**
+         * class which reads a body of a known length (Content-Length)
+         * @field input the stream of the connection
+         * @field remaining the number of bytes left to read
+         */
+        private final InputStream input;
+        private long remaining;
+
+        /**
+         * Constructor of BoundedStream
+         * @param input the stream of the connection
+         * @param length the length of the body
+         */
+        private BoundedStream(InputStream input, long length){
+            this.input = input;
+            remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0){ return -1; }
+            var n = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n == -1){ throw new EOFException("Connection closed by the docker host"); }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(remaining, input.available());
+        }
+    }
+
+    private static final class ChunkedStream extends InputStream {
+        /**
+         * class which reads a chunked body (Transfer-Encoding: chunked), chunk by chunk as they arrive
+         * @field input the stream of the connection
+         * @field remaining the number of bytes left in the current chunk
+         * @field ended true when the last chunk has been read
+         */
+        private final InputStream input;
+        private long remaining;
+        private boolean ended;
+
+        /**
+         * Constructor of ChunkedStream
+         * @param input the stream of the connection
+         */
+        private ChunkedStream(InputStream input){
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0 && !ended){ nextChunk(); }
+            if (ended){ return -1; }
+            var n = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n == -1){ throw new EOFException("Connection closed by the docker host"); }
+            remaining -= n;
+            if (remaining == 0){ readLine(input); }
+            return n;
+        }
+
+        /**
+         * the bytes readable without waiting, the size line of the next chunk is counted when the current chunk is over
+         * @return an estimate of the readable bytes
+         * @throws IOException when the connection is broken
+         */
+        @Override
+        public int available() throws IOException {
+            if (ended){ return 0; }
+            return remaining == 0 ? input.available() : (int) Math.min(remaining, input.available());
+        }
+
+        /**
+         * read the size of the next chunk (and the trailers after the last one)
+         * @throws IOException when the connection is broken
+         */
+        private void nextChunk() throws IOException {
+            var size = readLine(input).split(";")[0].trim();
+            remaining = Long.parseLong(size, 16);
+            if (remaining == 0) {
+                while (!readLine(input).isEmpty()) {
+                    // skip the trailers
+                }
+                ended = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package fr.uge.localkube;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class HealthProber {
+    /**
+     * class which checks on a fixed interval that the running instances are serving: each instance is probed with an
+     * HTTP GET on its port, all the probes of a round are sent at once by a single asynchronous client (a few threads
+     * for thousands of instances), each one with its own timeout. An instance which answers with a status below 500
+     * is healthy, an instance which fails 'failures' probes in a row is unhealthy (the failures of a new instance
+     * are not counted during the grace period), the unhealthy instances are replaced when 'replace' is set
+     * @field running the running apps, as observed
+     * @field replacer the replacement of the unhealthy instances
+     * @field host the host the ports of the instances are published on
+     * @field path the path of the probes
+     * @field timeout the max duration of a probe
+     * @field failures the number of failed probes in a row making an instance unhealthy
+     * @field graceNanos the time after its first probe during which a new instance is only starting
+     * @field replace true if the unhealthy instances are replaced
+     * @field client the asynchronous HTTP client of the probes
+     * @field scheduler the executor of the rounds of probes (one at a time)
+     * @field probes a map (id, last probe) of the probed instances
+     * @field replacements the number of replaced instances
+     */
+    public enum State { STARTING, HEALTHY, UNHEALTHY }
+
+    @FunctionalInterface
+    public interface Replacer {
+        /**
+         * replace instances and wait for all of them
+         * @param apps the unhealthy instances
+         * @return the start result of each new instance
+         * @throws InterruptedException when interrupted while waiting for the replacements
+         */
+        List<StartResult> replace(List<ApplicationData> apps) throws InterruptedException;
+    }
+
+    private record Probe(ApplicationData app, long firstSeen, State state, int failures, Long latencyMillis,
+                         long answers, long totalLatencyMillis, String error) {
+        /**
+         * record which represent the last probe of an instance
+         * @field app the instance
+         * @field firstSeen the time of the first probe of the instance, in nanoseconds
+         * @field state the health of the instance
+         * @field failures the number of failed probes in a row
+         * @field latencyMillis the latency of the last answer, null before the first answer
+         * @field answers the number of answered probes
+         * @field totalLatencyMillis the sum of the latencies of the answers
+         * @field error the error of the last probe, null if it was answered
+         */
+    }
+
+    private final Supplier<List<ApplicationData>> running;
+    private final Replacer replacer;
+    private final String host;
+    private final String path;
+    private final Duration timeout;
+    private final int failures;
+    private final long graceNanos;
+    private final boolean replace;
+    private final HttpClient client;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<Integer, Probe> probes = new ConcurrentHashMap<>();
+    private final AtomicLong replacements = new AtomicLong();
+
+    /**
+     * Constructor of HealthProber, the rounds of probes start after one interval
+     * @param settings the LocalKube settings (host, path, interval, timeout, failures, grace, replacement and threads of the probes)
+     * @param running the running apps, as observed
+     * @param replacer the replacement of the unhealthy instances
+     */
+    public HealthProber(LocalKubeSettings settings, Supplier<List<ApplicationData>> running, Replacer replacer){
+        requireNonNull(settings);
+        this.running = requireNonNull(running);
+        this.replacer = requireNonNull(replacer);
+        host = settings.healthHost();
+        path = settings.healthPath();
+        timeout = Duration.ofMillis(settings.healthTimeoutMillis());
+        failures = settings.healthFailures();
+        graceNanos = TimeUnit.SECONDS.toNanos(settings.healthGraceSeconds());
+        replace = settings.healthReplace();
+        var counter = new AtomicInteger();
+        client = HttpClient.newBuilder().connectTimeout(timeout)
+                .executor(Executors.newFixedThreadPool(settings.healthThreads(), r -> daemon(r, "lk-health-" + counter.incrementAndGet())))
+                .build();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "lk-health-rounds"));
+        var interval = settings.healthIntervalMillis();
+        scheduler.scheduleWithFixedDelay(this::round, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * create a daemon thread, so a pending probe never blocks the exit
+     * @param r the code of the thread
+     * @param name the name of the thread
+     * @return the thread
+     */
+    private static Thread daemon(Runnable r, String name){
+        var thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * run a round of probes, an unexpected failure is only reported so the next rounds still run
+     */
+    private void round(){
+        try {
+            probeAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LKArgumentsException.report("Health probe round failed: " + e);
+        }
+    }
+
+    /**
+     * probe all the running instances at once and wait for the probes, then replace the unhealthy instances
+     * (the rounds never overlap)
+     * @throws InterruptedException when interrupted while waiting for the replacements
+     */
+    synchronized void probeAll() throws InterruptedException {
+        var apps = running.get();
+        var ids = apps.stream().map(ApplicationData::id).collect(Collectors.toSet());
+        probes.keySet().retainAll(ids);
+        CompletableFuture.allOf(apps.stream().map(this::probe).toArray(CompletableFuture[]::new)).join();
+        if (replace){
+            var unhealthy = probes.values().stream().filter(probe -> probe.state() == State.UNHEALTHY)
+                    .map(Probe::app).collect(Collectors.toList());
+            if (!unhealthy.isEmpty()){
+                unhealthy.forEach(app -> probes.remove(app.id()));
+                replaced(replacer.replace(unhealthy));
+            }
+        }
+    }
+
+    /**
+     * send the probe of an instance
+     * @param app the instance
+     * @return the probe, which always completes normally once its answer, its failure or its timeout is recorded
+     */
+    private CompletableFuture<Void> probe(ApplicationData app){
+        var request = HttpRequest.newBuilder(URI.create("http://" + host + ":" + app.port() + path)).timeout(timeout).GET().build();
+        var begin = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    record(app, begin, response, error);
+                    return null;
+                });
+    }
+
+    /**
+     * record the result of the probe of an instance
+     * @param app the instance
+     * @param begin the time the probe was sent, in nanoseconds
+     * @param response the answer, null if the probe failed
+     * @param error the failure of the probe, null if it was answered
+     */
+    private void record(ApplicationData app, long begin, HttpResponse<Void> response, Throwable error){
+        var now = System.nanoTime();
+        var latency = TimeUnit.NANOSECONDS.toMillis(now - begin);
+        var failure = error != null ? describe(error) : response.statusCode() >= 500 ? "HTTP " + response.statusCode() : null;
+        probes.compute(app.id(), (id, last) -> {
+            var firstSeen = last == null ? now : last.firstSeen();
+            var answers = (last == null ? 0 : last.answers()) + (error == null ? 1 : 0);
+            var total = (last == null ? 0 : last.totalLatencyMillis()) + (error == null ? latency : 0);
+            var lastLatency = error == null ? Long.valueOf(latency) : last == null ? null : last.latencyMillis();
+            if (failure == null){
+                return new Probe(app, firstSeen, State.HEALTHY, 0, lastLatency, answers, total, null);
+            }
+            var failed = (last == null ? 0 : last.failures()) + 1;
+            var state = last == null ? State.STARTING : last.state();
+            if (failed >= failures && (state == State.HEALTHY || now - firstSeen >= graceNanos)){ state = State.UNHEALTHY; }
+            return new Probe(app, firstSeen, state, failed, lastLatency, answers, total, failure);
+        });
+    }
+
+    /**
+     * the message of the failure of a probe
+     * @param error the failure, maybe wrapped by the client
+     * @return the message
+     */
+    private static String describe(Throwable error){
+        var cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getClass().getSimpleName() + (cause.getMessage() == null ? "" : ": " + cause.getMessage());
+    }
+
+    /**
+     * forget the replaced instances and count them
+     * @param results the start result of each new instance
+     */
+    private void replaced(List<StartResult> results){
+        results.forEach(result -> System.out.println((result.isSuccess() ? "Unhealthy app replaced :\n" : "Unhealthy app not replaced :\n") + result));
+        replacements.addAndGet(results.stream().filter(StartResult::isSuccess).count());
+    }
+
+    /**
+     * get the number of replaced instances
+     * @return the number of replacements
+     */
+    public long replacements(){
+        return replacements.get();
+    }
+
+    /**
+     * get the state of an instance
+     * @param id the instance id
+     * @return the state of its last probe, STARTING when it was never probed
+     */
+    public State state(int id){
+        var probe = probes.get(id);
+        return probe == null ? State.STARTING : probe.state();
+    }
+
+    /**
+     * the health of the probed instances
+     * @return the last probe of each instance, by id
+     */
+    public List<JsonResponses.Health> health(){
+        return probes.values().stream().sorted(Comparator.comparingInt(probe -> probe.app().id()))
+                .map(probe -> new JsonResponses.Health(probe.app().id(), probe.app().dockerInstance(), probe.app().port(),
+                        probe.state(), probe.failures(), probe.latencyMillis(),
+                        probe.answers() == 0 ? null : probe.totalLatencyMillis() / probe.answers(), probe.error()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * string format (json format) of the health of the probed instances
+     * @return the json health format
+     */
+    @Override
+    public String toString(){
+        return health().stream().map(health -> "{\n\tid:" + health.id()
+                + ",\n\tdocker-instance:" + health.dockerInstance()
+                + ",\n\tport:" + health.port()
+                + ",\n\tstate:" + health.state()
+                + ",\n\tfailures:" + health.failures()
+                + (health.latencyMillis() == null ? "" : ",\n\tlatency:" + health.latencyMillis() + "ms"
+                        + ",\n\taverage-latency:" + health.averageLatencyMillis() + "ms")
+                + (health.error() == null ? "" : ",\n\terror:" + health.error())
+                + "\n}").collect(Collectors.joining(",\n", "[\n", "\n]"));
+    }
+}
@@ -0,0 +1,121 @@
+package fr.uge.localkube;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+public class IdAllocator {
+    /**
+     * class which gives the app ids in O(1): a released id is recycled first (free-list), a new one is taken otherwise
+     * @field capacity the max number of ids allocated at the same time
+     * @field allocated the ids currently allocated
+     * @field free the stack of the released ids
+     * @field freeSize the number of ids in the stack
+     * @field next the smallest id never allocated
+     * @field count the number of ids currently allocated
+     */
+    private final int capacity;
+    private final BitSet allocated = new BitSet();
+    private int[] free = new int[16];
+    private int freeSize;
+    private int next = 1;
+    private int count;
+
+    /**
+     * Constructor of an IdAllocator without capacity limit
+     */
+    public IdAllocator(){
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor of IdAllocator
+     * @param capacity the max number of ids allocated at the same time
+     * @throws LKArgumentsException when the capacity is not positive
+     */
+    public IdAllocator(int capacity){
+        if (capacity <= 0){ throw new LKArgumentsException("Capacity cannot be <= 0, " + capacity); }
+        this.capacity = capacity;
+    }
+
+    /**
+     * allocate an id
+     * @return the id, a recycled one if any
+     * @throws LKArgumentsException when the capacity is reached
+     */
+    public synchronized int allocate(){
+        if (count == capacity){
+            throw new LKArgumentsException("Number of authorized apps exceed (" + capacity + ")");
+        }
+        var id = freeSize > 0 ? free[--freeSize] : next++;
+        allocated.set(id);
+        count++;
+        return id;
+    }
+
+    /**
+     * allocate a given id (an id replayed from the registry journal), the ids skipped below it become free
+     * @param id the id to allocate
+     * @throws LKArgumentsException when the id is not positive or already allocated, or the capacity is reached
+     */
+    public synchronized void claim(int id){
+        if (id <= 0 || allocated.get(id)){ throw new LKArgumentsException("The id " + id + " cannot be claimed"); }
+        if (count == capacity){
+            throw new LKArgumentsException("Number of authorized apps exceed (" + capacity + ")");
+        }
+        if (id >= next){
+            for (var skipped = id - 1; skipped >= next; skipped--){
+                push(skipped);
+            }
+            next = id + 1;
+        } else {
+            for (var i = 0; i < freeSize; i++){
+                if (free[i] == id){
+                    free[i] = free[--freeSize];
+                    break;
+                }
+            }
+        }
+        allocated.set(id);
+        count++;
+    }
+
+    /**
+     * release an id so it can be recycled, an id which is not allocated is ignored
+     * @param id the id to release
+     */
+    public synchronized void release(int id){
+        if (id <= 0 || !allocated.get(id)){ return; }
+        allocated.clear(id);
+        count--;
+        push(id);
+    }
+
+    /**
+     * push a free id on the stack of the released ids
+     * @param id the free id
+     */
+    private void push(int id){
+        if (freeSize == free.length){
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeSize++] = id;
+    }
+
+    /**
+     * tell if an id is allocated
+     * @param id the id
+     * @return true if the id is allocated
+     */
+    public synchronized boolean isAllocated(int id){
+        return id > 0 && allocated.get(id);
+    }
+
+    /**
+     * the number of ids currently allocated
+     * @return the number of allocated ids
+     */
+    public synchronized int size(){
+        return count;
+    }
+}
@@ -0,0 +1,18 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record IdRequest(@JsonProperty("id") Integer id) {
+    /**
+     * record which represent the body of a stop or kill request ({"id": 2})
+     * @field id the app id, null when it is not given
+     */
+
+    /**
+     * Constructor for IdRequest
+     * @param id the app id on json format
+     */
+    @JsonCreator
+    public IdRequest { }
+}
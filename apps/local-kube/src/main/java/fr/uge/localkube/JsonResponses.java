@@ -0,0 +1,530 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class JsonResponses {
+    /**
+     * class which writes the json responses of the endpoints with a streaming generator, straight to the response:
+     * the typed response records are written one at a time, a list is never built as a string.
+     * The former text format stays available with 'Accept: text/plain'
+     * @field MAPPER the mapper writing the response records (null fields are left out)
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    /**
+     * the writing of the body of a response
+     */
+    @FunctionalInterface
+    public interface Body {
+        /**
+         * write the body
+         * @param generator the json generator writing on the response
+         * @throws IOException when the response can't be written
+         */
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private JsonResponses(){
+        throw new AssertionError();
+    }
+
+    /**
+     * a json response
+     * @param status the status of the response
+     * @param body the writing of the body
+     * @return the response, written when Spring streams it
+     */
+    public static ResponseEntity<StreamingResponseBody> of(HttpStatus status, Body body){
+        requireNonNull(status);
+        requireNonNull(body);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(out -> {
+            try (var generator = MAPPER.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                body.write(generator);
+            }
+        });
+    }
+
+    /**
+     * a json response of one value
+     * @param value the response record
+     * @return the response
+     */
+    public static ResponseEntity<StreamingResponseBody> value(Object value){
+        requireNonNull(value);
+        return of(HttpStatus.OK, generator -> generator.writeObject(value));
+    }
+
+    /**
+     * a json response of a list of values, written one by one
+     * @param values the response records
+     * @return the response
+     */
+    public static ResponseEntity<StreamingResponseBody> array(List<?> values){
+        requireNonNull(values);
+        return of(HttpStatus.OK, generator -> {
+            generator.writeStartArray();
+            for (var value : values){
+                generator.writeObject(value);
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    /**
+     * a json response of an error, with the status 400
+     * @param e the error
+     * @return the response {"error": message}
+     */
+    public static ResponseEntity<StreamingResponseBody> error(LKArgumentsException e){
+        requireNonNull(e);
+        var error = new Error(e.getMessage());
+        return of(HttpStatus.BAD_REQUEST, generator -> generator.writeObject(error));
+    }
+
+    public record App(@JsonProperty("id") int id,
+                      @JsonProperty("app") String app,
+                      @JsonProperty("port") int port,
+                      @JsonProperty("docker-instance") String dockerInstance) {
+        /**
+         * record which represent an app in a response
+         * @field id the app id
+         * @field app the full app name
+         * @field port the app port
+         * @field dockerInstance the short app name
+         */
+
+        /**
+         * the response of an app
+         * @param app the app
+         * @return the response record
+         */
+        public static App of(ApplicationData app){
+            return new App(app.id(), app.app(), app.port(), app.dockerInstance());
+        }
+
+        /**
+         * the responses of apps
+         * @param apps the apps
+         * @return the response records, in the order of the apps
+         */
+        public static List<App> of(List<ApplicationData> apps){
+            return apps.stream().map(App::of).collect(Collectors.toList());
+        }
+    }
+
+    public record StoppedApp(@JsonProperty("id") int id,
+                             @JsonProperty("app") String app,
+                             @JsonProperty("port") int port,
+                             @JsonProperty("docker-instance") String dockerInstance,
+                             @JsonProperty("elapsed-time") long elapsedTime) {
+        /**
+         * record which represent a stopped app in a response
+         * @field id the app id
+         * @field app the full app name
+         * @field port the app port
+         * @field dockerInstance the short app name
+         * @field elapsedTime the time since LocalKube started, in milliseconds
+         */
+
+        /**
+         * the response of a stopped app
+         * @param app the app
+         * @return the response record
+         */
+        public static StoppedApp of(ApplicationData app){
+            return new StoppedApp(app.id(), app.app(), app.port(), app.dockerInstance(), app.elapsedTime());
+        }
+    }
+
+    public record Result(@JsonProperty("id") int id,
+                         @JsonProperty("docker-instance") String dockerInstance,
+                         @JsonProperty("status") int status,
+                         @JsonProperty("time-ms") long millis,
+                         @JsonProperty("error") String error) {
+        /**
+         * record which represent the result of a docker operation on the container of an app in a response
+         * @field id the app id
+         * @field dockerInstance the short app name
+         * @field status the exit status of the operation (0 on success)
+         * @field millis the duration of the operation
+         * @field error the error message, null if there is none
+         */
+
+        /**
+         * the responses of results
+         * @param results the results
+         * @return the response records, in the order of the results
+         */
+        public static List<Result> of(List<ContainerResult> results){
+            return results.stream().map(r -> new Result(r.app().id(), r.app().dockerInstance(), r.status(), r.millis(), r.error()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public record Started(@JsonProperty("app") String spec,
+                          @JsonProperty("id") Integer id,
+                          @JsonProperty("port") Integer port,
+                          @JsonProperty("docker-instance") String dockerInstance,
+                          @JsonProperty("status") String status,
+                          @JsonProperty("time-ms") long millis,
+                          @JsonProperty("error") String error) {
+        /**
+         * record which represent the result of the start of an app of a batch in a response
+         * @field spec the app as it was asked
+         * @field id the app id, null when the spec is invalid
+         * @field port the app port, null when the spec is invalid
+         * @field dockerInstance the short app name, null when the spec is invalid
+         * @field status "started" or "failed"
+         * @field millis the time from the start of the batch to the end of the start of the app
+         * @field error the error message, null if there is none
+         */
+
+        /**
+         * the responses of results
+         * @param results the results
+         * @return the response records, in the order of the results
+         */
+        public static List<Started> of(List<StartResult> results){
+            return results.stream().map(r -> r.app() == null
+                    ? new Started(r.spec(), null, null, null, "failed", r.millis(), r.error())
+                    : new Started(r.spec(), r.app().id(), r.app().port(), r.app().dockerInstance(),
+                            r.isSuccess() ? "started" : "failed", r.millis(), r.error()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public record Job(@JsonProperty("job") long job,
+                      @JsonProperty("app") String app,
+                      @JsonProperty("docker-instance") String dockerInstance,
+                      @JsonProperty("status") StartJob.Stage status,
+                      @JsonProperty("build") Step build,
+                      @JsonProperty("load") Step load,
+                      @JsonProperty("run") Step run,
+                      @JsonProperty("error") String error) {
+        /**
+         * record which represent an asynchronous start in a response
+         * @field job the job id
+         * @field app the full app name
+         * @field dockerInstance the short app name
+         * @field status the current stage
+         * @field build the progress of the build
+         * @field load the progress of the load
+         * @field run the progress of the run
+         * @field error the error message, null if there is none
+         */
+    }
+
+    public record Step(@JsonProperty("state") String state, @JsonProperty("millis") Long millis) {
+        /**
+         * record which represent the progress of a stage of a job in a response
+         * @field state "pending", "running", "done" or "failed"
+         * @field millis the time spent in the stage, null when pending
+         */
+    }
+
+    public record AppLogs(@JsonProperty("id") int id,
+                          @JsonProperty("app") String app,
+                          @JsonProperty("port") int port,
+                          @JsonProperty("docker-instance") String dockerInstance,
+                          @JsonProperty("entries") List<Entry> entries,
+                          @JsonProperty("error") String error) {
+        /**
+         * record which represent the logs of an app in a response
+         * @field id the app id
+         * @field app the full app name
+         * @field port the app port
+         * @field dockerInstance the short app name
+         * @field entries the log entries, null when the logs can't be given
+         * @field error the error message, null if there is none
+         */
+
+        /**
+         * the logs of an app
+         * @param app the app
+         * @param entries the log entries
+         * @return the response record
+         */
+        public static AppLogs of(ApplicationData app, List<Entry> entries){
+            return new AppLogs(app.id(), app.app(), app.port(), app.dockerInstance(), requireNonNull(entries), null);
+        }
+
+        /**
+         * the error of an app whose logs can't be given
+         * @param app the app
+         * @param error the error message
+         * @return the response record
+         */
+        public static AppLogs error(ApplicationData app, String error){
+            return new AppLogs(app.id(), app.app(), app.port(), app.dockerInstance(), null, requireNonNull(error));
+        }
+
+        /**
+         * string format (json format) of the logs of an app
+         * @return the json logs format
+         */
+        @Override
+        public String toString(){
+            var ret = "{\n\tid:" + id + ",\n\tapp:" + app + ",\n\tport:" + port + ",\n\tdocker-instance:" + dockerInstance;
+            if (error != null){
+                return ret + ",\n\terror:" + error + "\n}";
+            }
+            return ret + entries.stream().map(entry -> "[" + entry.time() + "] " + entry.level() + " : " + entry.message())
+                    .collect(Collectors.joining("\n\t", "\n\tmessage :\n\t", "\n}"));
+        }
+    }
+
+    public record Entry(@JsonProperty("time") String time,
+                        @JsonProperty("level") String level,
+                        @JsonProperty("thread") String thread,
+                        @JsonProperty("logger") String logger,
+                        @JsonProperty("message") String message) {
+        /**
+         * record which represent a log entry in a response
+         * @field time the time, on format yyyy-MM-dd HH:mm:ss.SSS
+         * @field level the level
+         * @field thread the thread, null when it is not known
+         * @field logger the logger, null when it is not known
+         * @field message the message
+         */
+
+        /**
+         * the response of an entry read from the logs of a container
+         * @param entry the entry
+         * @return the response record
+         */
+        public static Entry of(SpringLogReader.Entry entry){
+            return new Entry(entry.time(), entry.level(), entry.thread(), entry.logger(), entry.message());
+        }
+
+        /**
+         * the response of a line of the log store (without thread nor logger)
+         * @param line the line
+         * @return the response record
+         */
+        public static Entry of(LogLine line){
+            return new Entry(line.time(), line.level(), null, null, line.message());
+        }
+    }
+
+    public record Hit(@JsonProperty("app") String app,
+                      @JsonProperty("docker-instance") String dockerInstance,
+                      @JsonProperty("time") String time,
+                      @JsonProperty("level") String level,
+                      @JsonProperty("message") String message,
+                      @JsonProperty("rank") double rank) {
+        /**
+         * record which represent a log line found by a full-text search in a response
+         * @field app the short app name
+         * @field dockerInstance the docker instance
+         * @field time the time, on format yyyy-MM-dd HH:mm:ss.SSS
+         * @field level the level
+         * @field message the message
+         * @field rank the bm25 rank of the line, the lower the better
+         */
+
+        /**
+         * the responses of hits
+         * @param hits the hits
+         * @return the response records, in the order of the hits
+         */
+        public static List<Hit> of(List<LogHit> hits){
+            return hits.stream().map(hit -> new Hit(hit.line().app(), hit.line().instance(), hit.line().time(),
+                    hit.line().level(), hit.line().message(), hit.rank())).collect(Collectors.toList());
+        }
+    }
+
+    public record Cache(@JsonProperty("base-image") String baseImage,
+                        @JsonProperty("store") String store,
+                        @JsonProperty("hits") long hits,
+                        @JsonProperty("misses") long misses) {
+        /**
+         * record which represent the statistics of the base image store in a response
+         * @field baseImage the base image reference
+         * @field store the path of the pre-fetched base image
+         * @field hits the number of builds which found the base image in the store
+         * @field misses the number of builds which had to fetch the base image
+         */
+    }
+
+    public record Store(@JsonProperty("lines") long lines,
+                        @JsonProperty("batches") long batches,
+                        @JsonProperty("rate") long rate,
+                        @JsonProperty("apps") int apps,
+                        @JsonProperty("partitions") int partitions,
+                        @JsonProperty("dropped") long dropped,
+                        @JsonProperty("used-bytes") long usedBytes) {
+        /**
+         * record which represent the statistics of the log store in a response
+         * @field lines the number of stored lines
+         * @field batches the number of written batches
+         * @field rate the ingest rate, in lines per second
+         * @field apps the number of apps
+         * @field partitions the number of partitions (one per app and day)
+         * @field dropped the number of dropped partitions
+         * @field usedBytes the size used by the lines
+         */
+    }
+
+    public record Images(@JsonProperty("target") AppImages.Target target,
+                         @JsonProperty("images") int images,
+                         @JsonProperty("builds") long builds,
+                         @JsonProperty("loads") long loads,
+                         @JsonProperty("reuses") long reuses,
+                         @JsonProperty("build-ms") Long buildMillis,
+                         @JsonProperty("load-ms") Long loadMillis) {
+        /**
+         * record which represent the statistics of the app images in a response
+         * @field target TAR (built in a tar, then loaded) or DAEMON (built into the docker daemon)
+         * @field images the number of built images (one per app and jar digest)
+         * @field builds the number of builds
+         * @field loads the number of loads of a tar in docker (none with DAEMON, the build loads the image)
+         * @field reuses the number of starts which found their image already loaded
+         * @field buildMillis the mean time of the builds, null before the first one
+         * @field loadMillis the mean time of the loads, null before the first one
+         */
+    }
+
+    public record Containers(@JsonProperty("synced") boolean synced,
+                             @JsonProperty("containers") int containers,
+                             @JsonProperty("running") long running,
+                             @JsonProperty("events") long events,
+                             @JsonProperty("resyncs") long resyncs) {
+        /**
+         * record which represent the statistics of the container state cache in a response
+         * @field synced true while the subscription to the docker events is up
+         * @field containers the number of existing containers
+         * @field running the number of running containers
+         * @field events the number of applied events
+         * @field resyncs the number of lists of the containers (one at boot, one per reconnection)
+         */
+    }
+
+    public record Pool(@JsonProperty("app") String app,
+                       @JsonProperty("size") int size,
+                       @JsonProperty("parked") int parked,
+                       @JsonProperty("warming") int warming,
+                       @JsonProperty("hits") long hits,
+                       @JsonProperty("misses") long misses,
+                       @JsonProperty("hit-rate") Double hitRate,
+                       @JsonProperty("hit-latency-ms") Long hitLatencyMillis,
+                       @JsonProperty("miss-latency-ms") Long missLatencyMillis,
+                       @JsonProperty("error") String error) {
+        /**
+         * record which represent the warm pool of an app in a response
+         * @field app the app name
+         * @field size the number of parked containers to keep
+         * @field parked the number of parked containers
+         * @field warming the number of containers being built and run
+         * @field hits the number of starts which claimed a parked container
+         * @field misses the number of starts without port which found no parked container
+         * @field hitRate the part of the starts which claimed a parked container, null before the first start
+         * @field hitLatencyMillis the mean time of the starts which claimed a parked container, null before the first one
+         * @field missLatencyMillis the mean time of the starts which found no parked container, null before the first one
+         * @field error the last error of a refill, null if there is none
+         */
+    }
+
+    public record Registry(@JsonProperty("journal") int journal,
+                           @JsonProperty("appended") long appended,
+                           @JsonProperty("snapshots") long snapshots,
+                           @JsonProperty("replayed") long replayed,
+                           @JsonProperty("replay-ms") long replayMillis,
+                           @JsonProperty("error") String error) {
+        /**
+         * record which represent the statistics of the registry journal in a response
+         * @field journal the number of records in the journal since the last snapshot
+         * @field appended the number of records appended since the boot
+         * @field snapshots the number of snapshots written since the boot
+         * @field replayed the number of records replayed at boot
+         * @field replayMillis the time of the replay at boot
+         * @field error the last error of a write, null if there is none
+         */
+    }
+
+    public record Health(@JsonProperty("id") int id,
+                         @JsonProperty("docker-instance") String dockerInstance,
+                         @JsonProperty("port") int port,
+                         @JsonProperty("state") HealthProber.State state,
+                         @JsonProperty("failures") int failures,
+                         @JsonProperty("latency-ms") Long latencyMillis,
+                         @JsonProperty("average-latency-ms") Long averageLatencyMillis,
+                         @JsonProperty("error") String error) {
+        /**
+         * record which represent the health of an instance in a response
+         * @field id the app id
+         * @field dockerInstance the short app name
+         * @field port the app port
+         * @field state STARTING, HEALTHY or UNHEALTHY
+         * @field failures the number of failed probes in a row
+         * @field latencyMillis the latency of the last answer, null before the first answer
+         * @field averageLatencyMillis the mean latency of the answers, null before the first answer
+         * @field error the error of the last probe, null if it was answered
+         */
+    }
+
+    public record Scaling(@JsonProperty("enabled") boolean enabled,
+                          @JsonProperty("tick-ms") long tickMillis,
+                          @JsonProperty("apps") List<Scaled> apps,
+                          @JsonProperty("actions") List<ScaleAction> actions) {
+        /**
+         * record which represent the status of the auto-scale in a response
+         * @field enabled true when the reconciliations are scheduled
+         * @field tickMillis the delay between two reconciliations
+         * @field apps the auto-scaled apps, by name
+         * @field actions the last actions, the oldest first
+         */
+    }
+
+    public record Scaled(@JsonProperty("app") String app,
+                         @JsonProperty("desired") int desired,
+                         @JsonProperty("running") int running,
+                         @JsonProperty("converged") boolean converged,
+                         @JsonProperty("convergence-ms") Long convergenceMillis) {
+        /**
+         * record which represent an auto-scaled app in a response
+         * @field app the app name
+         * @field desired the number of instances to keep running
+         * @field running the number of running instances
+         * @field converged true when the running instances match the target
+         * @field convergenceMillis the time from the last update of the target to its first match, null before
+         */
+    }
+
+    public record ScaleAction(@JsonProperty("time") String time,
+                              @JsonProperty("app") String app,
+                              @JsonProperty("action") String action,
+                              @JsonProperty("id") Integer id,
+                              @JsonProperty("docker-instance") String dockerInstance,
+                              @JsonProperty("error") String error) {
+        /**
+         * record which represent an action of the auto-scale in a response
+         * @field time the local time of the action
+         * @field app the app name
+         * @field action "start" or "stop"
+         * @field id the instance id, null when the instance could not be created
+         * @field dockerInstance the short instance name, null when the instance could not be created
+         * @field error the error message, null if there is none
+         */
+    }
+
+    public record Error(@JsonProperty("error") String error) {
+        /**
+         * record which represent an error in a response
+         * @field error the error message
+         */
+    }
+}
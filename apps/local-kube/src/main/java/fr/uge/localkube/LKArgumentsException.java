@@ -19,6 +19,15 @@ public class LKArgumentsException extends RuntimeException {
         this.message = message;
     }
 
+    /**
+     * Print on console an error which is not thrown (a failure of a background task)
+     * @param message the message to print
+     */
+    public static void report(String message){
+        Objects.requireNonNull(message);
+        System.out.println("[ERROR] --- " + message);
+    }
+
     @Override
     /**
      * Print on console the message end return it
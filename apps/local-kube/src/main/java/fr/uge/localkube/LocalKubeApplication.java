@@ -2,17 +2,27 @@ package fr.uge.localkube;
 
 import com.google.cloud.tools.jib.api.*;
 import com.google.cloud.tools.jib.api.buildplan.AbsoluteUnixPath;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 
@@ -24,23 +34,56 @@ public class LocalKubeApplication {
 	/**
 	 * Class of LocalKube which handle '/app' request (plus is main app)
 	 * @field appList refer to data apps
+	 * @field journal the journal of the registry of the apps on disk, null when the registry is only in memory
+	 * @field detachOnExit true if the running apps are left running when LocalKube ends
+	 * @field baseImages the local store of the base image and its layer cache
+	 * @field images the images of the apps, one per app and jar digest, shared by the instances
+	 * @field pipeline the staged executor of the asynchronous starts
+	 * @field batch the parallel starter of the batches of apps
+	 * @field autoScaler the keeper of the target number of instances of the apps
+	 * @field prober the health prober of the running instances
+	 * @field pool the parked containers claimed by the starts without port
+	 * @field runtime the way to talk to docker (Engine API or CLI)
+	 * @field containers the state of the containers, kept current by the docker events
+	 * @field bulk the executor of the stops and kills of many apps
+	 * @field logStore the store of the log lines of the apps
+	 * @field logTailer the background follower of the logs of the running containers
+	 * @field logFetcher the concurrent fetcher of the logs of many apps
 	 * @field thread the code to run when LocalKube end
+	 * @field hooked true once the code to run when LocalKube end is registered
 	 */
 	private final ApplicationDataCreator appDatas;
+	private final RegistryJournal journal;
+	private final boolean detachOnExit;
+	private final BaseImageStore baseImages;
+	private final AppImages images;
+	private final StartPipeline pipeline;
+	private final BatchStarter batch;
+	private final AutoScaler autoScaler;
+	private final HealthProber prober;
+	private final WarmPool pool;
+	private final ContainerRuntime runtime;
+	private final ContainerStateCache containers;
+	private final BulkExecutor bulk;
+	private final LogStore logStore;
+	private final LogTailer logTailer;
+	private final LogFetcher logFetcher;
 	private final Thread LKend = new Thread(){
 		/**
-		 * run this code when exiting LocalKube (stop all running apps)
+		 * run this code when exiting LocalKube (stop the auto-scale, remove the parked containers, then stop all running apps,
+		 * in parallel, unless they are detached to be reattached at the next boot)
 		 */
 		@Override
 		public void run() {
-			try {
+			autoScaler.stop();
+			pool.drain();
+			if (!detachOnExit) {
 				stopAll();
-				//killAll(); //pas obligatoire
-			} catch (IOException e) {
-				e.printStackTrace();
 			}
+			//killAll(); //pas obligatoire
 		}
 	};
+	private final AtomicBoolean hooked = new AtomicBoolean();
 	private final String additionalPath = Arrays.stream(System.getProperty("user.dir").split("/")).map(e -> {
 			if (e.equals("local-kube")){
 				return "../../";
@@ -52,7 +95,77 @@ public class LocalKubeApplication {
 	 * Constructor for LocalKubeApplication
 	 */
 	public LocalKubeApplication(){
-		appDatas = new ApplicationDataCreator();
+		this(new LocalKubeSettings());
+	}
+
+	/**
+	 * Constructor for LocalKubeApplication
+	 * @param settings the LocalKube settings
+	 */
+	@Autowired
+	public LocalKubeApplication(LocalKubeSettings settings){
+		journal = settings.registryEnabled() ? new RegistryJournal(settings) : null;
+		detachOnExit = settings.registryDetachOnExit();
+		appDatas = new ApplicationDataCreator(settings.maxApps(), new PortPool(settings.firstPort(), settings.lastPort()), journal);
+		baseImages = new BaseImageStore(settings);
+		images = new AppImages(Paths.get(additionalPath + "apps"), Paths.get("docker-images"), settings);
+		runtime = ContainerRuntime.of(settings);
+		containers = new ContainerStateCache(runtime, settings, this::containerExited);
+		bulk = new BulkExecutor(settings);
+		logStore = new LogStore(settings);
+		logTailer = new LogTailer(runtime, logStore, settings);
+		logFetcher = new LogFetcher(settings);
+		pipeline = new StartPipeline(settings, this::setJibFrom, this::loadImage, this::runContainer, appDatas::abandon);
+		batch = new BatchStarter(settings, images::image, this::setJibFrom, this::loadImage, this::runContainer, appDatas::abandon);
+		autoScaler = new AutoScaler(settings, appDatas::getAppDatas, this::addApps, this::removeApps);
+		prober = new HealthProber(settings, appDatas::getAppDatas, this::replaceApps);
+		pool = new WarmPool(settings, appDatas::fromSpec, this::warmContainer, this::discardContainer,
+				app -> containers.mayRun(app.dockerInstance()));
+		reattach();
+	}
+
+	/**
+	 * reconcile the apps replayed from the registry journal with the containers (one list of the containers): a running
+	 * app whose container runs is reattached (its logs are followed again), the others are stopped, and forgotten
+	 * (killed) when their container is gone
+	 */
+	private void reattach () {
+		var running = appDatas.getAppDatas();
+		var stopped = appDatas.getStoppedApps();
+		if (running.isEmpty() && stopped.isEmpty()) {
+			return;
+		}
+		Map<String, String> states;
+		try {
+			states = runtime.containers();
+		} catch (IOException e) {
+			LKArgumentsException.report("Registry not reconciled, docker can't be reached : " + e);
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		var since = System.currentTimeMillis() / 1000;
+		var reattached = 0;
+		for (var app : running) {
+			var state = states.get(app.dockerInstance());
+			if ("running".equals(state)) {
+				containers.started(app.dockerInstance());
+				logTailer.follow(app, since);
+				reattached++;
+			}
+			else {
+				appDatas.stop(app.id());
+				if (state == null) { appDatas.kill(app.id()); }
+			}
+		}
+		var forgotten = stopped.stream().filter(app -> !states.containsKey(app.dockerInstance())).map(app -> appDatas.kill(app.id())).count();
+		if (reattached > 0) {
+			registerShutdownHook();
+		}
+		System.out.println("Registry recovered : " + reattached + " running apps reattached, "
+				+ appDatas.getStoppedApps().size() + " stopped apps, " + (running.size() - reattached) + " apps not running anymore, "
+				+ forgotten + " stopped apps forgotten");
 	}
 
 	/**
@@ -60,7 +173,7 @@ public class LocalKubeApplication {
 	 * @param args arguments from cmd line (not needed)
 	 */
 	public static void main(String[] args) {
-		new SpringApplication(LocalKubeApplication.class, LocalKubeLogs.class).run(args);
+		new SpringApplication(LocalKubeApplication.class, LocalKubeLogs.class, LocalKubeAutoScale.class).run(args);
 	}
 
 	/**
@@ -72,46 +185,410 @@ public class LocalKubeApplication {
 	}
 
 	/**
-	 * get the launched app list (get request)
+	 * get the way to talk to docker
+	 * @return the container runtime
+	 */
+	public ContainerRuntime getRuntime(){
+		return runtime;
+	}
+
+	/**
+	 * get the store of the log lines
+	 * @return the log store
+	 */
+	public LogStore getLogStore(){
+		return logStore;
+	}
+
+	/**
+	 * get the background follower of the logs
+	 * @return the log tailer
+	 */
+	public LogTailer getLogTailer(){
+		return logTailer;
+	}
+
+	/**
+	 * get the concurrent fetcher of the logs
+	 * @return the log fetcher
+	 */
+	public LogFetcher getLogFetcher(){
+		return logFetcher;
+	}
+
+	/**
+	 * get the keeper of the target number of instances of the apps
+	 * @return the auto-scaler
+	 */
+	public AutoScaler getAutoScaler(){
+		return autoScaler;
+	}
+
+	/**
+	 * get the launched app list (get request), on the former text format
 	 * @return the list on expected format to be print
 	 */
-	@GetMapping("/list")
+	@GetMapping(path="/list", produces=MediaType.TEXT_PLAIN_VALUE)
 	public String list () {
-		return appDatas.toString();
+		return running().stream().map(ApplicationData::toString).collect(Collectors.joining(",\n", "[\n", "\n]"));
 	}
 
 	/**
-	 * request to post a new application
-	 * @param jsonString the application to start on json entry format
+	 * get the launched app list (get request), as json
+	 * @return the list of the apps
+	 */
+	@GetMapping("/list")
+	public ResponseEntity<StreamingResponseBody> listJson () {
+		return JsonResponses.array(JsonResponses.App.of(running()));
+	}
+
+	/**
+	 * the running apps whose container is running, as the container state cache sees them
+	 * @return the running apps, sorted by id
+	 */
+	private List<ApplicationData> running () {
+		return appDatas.getAppDatas().stream().filter(app -> containers.mayRun(app.dockerInstance())).collect(Collectors.toList());
+	}
+
+	/**
+	 * get the statistics of the container state cache (get request), on the former text format
+	 * @return the statistics on expected format to be print
+	 */
+	@GetMapping(path="/containers", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String containerStates () {
+		return containers.toString();
+	}
+
+	/**
+	 * get the statistics of the container state cache (get request), as json
+	 * @return the statistics
+	 */
+	@GetMapping("/containers")
+	public ResponseEntity<StreamingResponseBody> containerStatesJson () {
+		return JsonResponses.value(containers.stats());
+	}
+
+	/**
+	 * get the hits and misses of the base image store (get request), on the former text format
+	 * @return the statistics on expected format to be print
+	 */
+	@GetMapping(path="/cache", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String cache () {
+		return baseImages.toString();
+	}
+
+	/**
+	 * get the hits and misses of the base image store (get request), as json
+	 * @return the statistics
+	 */
+	@GetMapping("/cache")
+	public ResponseEntity<StreamingResponseBody> cacheJson () {
+		return JsonResponses.value(baseImages.stats());
+	}
+
+	/**
+	 * get the builds, loads and reuses of the app images (get request), on the former text format
+	 * @return the statistics on expected format to be print
+	 */
+	@GetMapping(path="/images", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String images () {
+		return images.toString();
+	}
+
+	/**
+	 * get the builds, loads and reuses of the app images (get request), as json
+	 * @return the statistics
+	 */
+	@GetMapping("/images")
+	public ResponseEntity<StreamingResponseBody> imagesJson () {
+		return JsonResponses.value(images.stats());
+	}
+
+	/**
+	 * get the journal of the registry (get request), on the former text format
+	 * @return the statistics on expected format to be print, an error if the registry is only in memory
+	 */
+	@GetMapping(path="/registry", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String registry () {
+		return journal == null ? registryDisabled().toString() : journal.toString();
+	}
+
+	/**
+	 * get the journal of the registry (get request), as json
+	 * @return the statistics, an error if the registry is only in memory
+	 */
+	@GetMapping("/registry")
+	public ResponseEntity<StreamingResponseBody> registryJson () {
+		return journal == null ? JsonResponses.error(registryDisabled()) : JsonResponses.value(journal.stats());
+	}
+
+	/**
+	 * the error of a request on the journal when the registry is only in memory
+	 * @return the error
+	 */
+	private static LKArgumentsException registryDisabled () {
+		return new LKArgumentsException("The registry is only in memory (localkube.registry.enabled=false)");
+	}
+
+	/**
+	 * get the health of the running instances (get request), on the former text format
+	 * @return the state, the failures and the latency of the last probes of each instance
+	 */
+	@GetMapping(path="/health", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String health () {
+		return prober.toString();
+	}
+
+	/**
+	 * get the health of the running instances (get request), as json
+	 * @return the state, the failures and the latency of the last probes of each instance
+	 */
+	@GetMapping("/health")
+	public ResponseEntity<StreamingResponseBody> healthJson () {
+		return JsonResponses.array(prober.health());
+	}
+
+	/**
+	 * get the warm pools (get request), on the former text format
+	 * @return the parked containers, the hits, the misses and the start latencies of each pooled app
+	 */
+	@GetMapping(path="/pool", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String pool () {
+		return pool.toString();
+	}
+
+	/**
+	 * get the warm pools (get request), as json
+	 * @return the parked containers, the hits, the misses and the start latencies of each pooled app
+	 */
+	@GetMapping("/pool")
+	public ResponseEntity<StreamingResponseBody> poolJson () {
+		return JsonResponses.array(pool.stats());
+	}
+
+	/**
+	 * request to set the number of parked containers of apps, the pools fill or shrink in background, on the former text format
+	 * @param jsonString the sizes on json format {"name": size, ...} (0 empties the pool of an app)
+	 * @return the warm pools, an error if the request is invalid
+	 */
+	@PostMapping(path="/pool", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String resizePool (@RequestBody String jsonString) {
+		try {
+			pool.resize(RequestDecoder.targets(jsonString));
+			return pool.toString();
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to set the number of parked containers of apps, as json
+	 * @param jsonString the sizes on json format {"name": size, ...} (0 empties the pool of an app)
+	 * @return the warm pools, an error if the request is invalid
+	 */
+	@PostMapping("/pool")
+	public ResponseEntity<StreamingResponseBody> resizePoolJson (@RequestBody String jsonString) {
+		try {
+			pool.resize(RequestDecoder.targets(jsonString));
+			return JsonResponses.array(pool.stats());
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * request to post a new application, on the former text format
+	 * @param jsonString the application to start on json entry format ({"app": "name:port"}, or {"app": "name"} to get a free port)
 	 * @return the application on json application format
 	 * @throws RuntimeException for containerize
-	 * @throws IOException for start in ProcessBuilder and addLayer in Jib
+	 * @throws IOException when docker can't be reached and for addLayer in Jib
 	 * @throws InvalidImageReferenceException for Jib.from
-	 * @throws InterruptedException for waitFor in ProcessBuilder and containerize
+	 * @throws InterruptedException when waiting for docker and for containerize
 	 * @throws RegistryException for containerize
 	 * @throws CacheDirectoryCreationException for containerize
 	 */
-	@PostMapping(path="/start")
+	@PostMapping(path="/start", produces=MediaType.TEXT_PLAIN_VALUE)
 	public String start (@RequestBody String jsonString) throws RuntimeException, IOException, InvalidImageReferenceException,
 			InterruptedException, RegistryException, CacheDirectoryCreationException {
-		Runtime.getRuntime().removeShutdownHook(LKend);
-		Runtime.getRuntime().addShutdownHook(LKend);
+		try {
+			return startApp(jsonString).toString();
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
 
+	/**
+	 * request to post a new application, as json
+	 * @param jsonString the application to start on json entry format ({"app": "name:port"}, or {"app": "name"} to get a free port)
+	 * @return the application, an error if it can't be started
+	 * @throws RuntimeException for containerize
+	 * @throws IOException when docker can't be reached and for addLayer in Jib
+	 * @throws InvalidImageReferenceException for Jib.from
+	 * @throws InterruptedException when waiting for docker and for containerize
+	 * @throws RegistryException for containerize
+	 * @throws CacheDirectoryCreationException for containerize
+	 */
+	@PostMapping("/start")
+	public ResponseEntity<StreamingResponseBody> startJson (@RequestBody String jsonString) throws RuntimeException, IOException,
+			InvalidImageReferenceException, InterruptedException, RegistryException, CacheDirectoryCreationException {
+		try {
+			return JsonResponses.value(JsonResponses.App.of(startApp(jsonString)));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * claim a parked container of the warm pool, or build, load and run a new application
+	 * @param jsonString the application to start on json entry format
+	 * @return the started application
+	 * @throws LKArgumentsException when the application is invalid or can't be started
+	 */
+	private ApplicationData startApp (String jsonString) throws RuntimeException, IOException, InvalidImageReferenceException,
+			InterruptedException, RegistryException, CacheDirectoryCreationException {
+		registerShutdownHook();
+		var begin = System.nanoTime();
+		var spec = RequestDecoder.app(jsonString);
+		var claimed = claimApp(spec);
+		if (claimed.isPresent()) {
+			pool.started(spec, true, millisSince(begin));
+			return claimed.get();
+		}
+		var app = appDatas.fromSpec(spec);
 		try {
-			ApplicationData app = appDatas.toApplicationData(jsonString);
 			setJibFrom(app);
-			applyProcess(app);
-			appDatas.add(app);
-			return app.toString();
+			loadImage(app);
+			runContainer(app);
+			pool.started(spec, false, millisSince(begin));
+			return app;
 		} catch (LKArgumentsException e) {
-			return e.toString();
+			appDatas.abandon(app);
+			throw e;
 		} catch (ExecutionException e) {
-			return new LKArgumentsException("The specified application in " + jsonString + " is not found").toString();
+			appDatas.abandon(app);
+			throw new LKArgumentsException("The specified application in " + jsonString + " is not found");
+		} catch (Exception e) {
+			appDatas.abandon(app);
+			throw e;
 		}
 	}
 
 	/**
-	 * Use the Jib library to create an image of an app
+	 * request to post a new application without waiting for it, the build, load and run stages are done in background,
+	 * on the former text format
+	 * @param jsonString the application to start on json entry format
+	 * @return the job on json job format, to follow with '/app/jobs/{id}'
+	 */
+	@PostMapping(path="/start/async", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String startAsync (@RequestBody String jsonString) {
+		registerShutdownHook();
+		try {
+			return pipeline.submit(appDatas.toApplicationData(jsonString)).toString();
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to post a new application without waiting for it, as json
+	 * @param jsonString the application to start on json entry format
+	 * @return the job, to follow with '/app/jobs/{id}', an error if the application is invalid
+	 */
+	@PostMapping("/start/async")
+	public ResponseEntity<StreamingResponseBody> startAsyncJson (@RequestBody String jsonString) {
+		registerShutdownHook();
+		try {
+			return JsonResponses.value(pipeline.submit(appDatas.toApplicationData(jsonString)).snapshot());
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * request to post many new applications at the same time, on the former text format: the images are built and the
+	 * containers are run in parallel, an image shared by many apps is built once
+	 * @param jsonString the applications to start on json format [{"app": "name:port"}, {"app": "name"}, ...]
+	 * @return A list of the start result of each app, in the order of the request, an error if the request is invalid
+	 */
+	@PostMapping(path="/start/batch", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String startBatch (@RequestBody String jsonString) {
+		try {
+			return startApps(jsonString).stream().map(StartResult::toString).collect(Collectors.joining(",\n", "[\n", "\n]"));
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to post many new applications at the same time, as json
+	 * @param jsonString the applications to start on json format [{"app": "name:port"}, {"app": "name"}, ...]
+	 * @return A list of the start result of each app, in the order of the request, an error if the request is invalid
+	 */
+	@PostMapping("/start/batch")
+	public ResponseEntity<StreamingResponseBody> startBatchJson (@RequestBody String jsonString) {
+		try {
+			return JsonResponses.array(JsonResponses.Started.of(startApps(jsonString)));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * start many applications and wait for all of them
+	 * @param jsonString the applications to start on json format
+	 * @return the start result of each app
+	 * @throws LKArgumentsException when the request is invalid or interrupted while waiting
+	 */
+	private List<StartResult> startApps (String jsonString) {
+		var specs = RequestDecoder.apps(jsonString);
+		try {
+			return addApps(specs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LKArgumentsException("Interrupted while waiting for the start of " + specs.size() + " apps");
+		}
+	}
+
+	/**
+	 * get the progress of an asynchronous start (get request), on the former text format
+	 * @param id the job id
+	 * @return the job on json job format, an error if the job does not exist
+	 */
+	@GetMapping(path="/jobs/{id}", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String job (@PathVariable long id) {
+		return pipeline.job(id).map(StartJob::toString)
+				.orElseGet(() -> new LKArgumentsException("No start job with id: " + id).toString());
+	}
+
+	/**
+	 * get the progress of an asynchronous start (get request), as json
+	 * @param id the job id
+	 * @return the job, an error if the job does not exist
+	 */
+	@GetMapping("/jobs/{id}")
+	public ResponseEntity<StreamingResponseBody> jobJson (@PathVariable long id) {
+		return pipeline.job(id).map(job -> JsonResponses.value(job.snapshot()))
+				.orElseGet(() -> JsonResponses.error(new LKArgumentsException("No start job with id: " + id)));
+	}
+
+	/**
+	 * register the code to run when LocalKube end, once even when the starts call it concurrently,
+	 * nothing is done when LocalKube is already ending
+	 */
+	private void registerShutdownHook () {
+		if (!hooked.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			Runtime.getRuntime().addShutdownHook(LKend);
+		} catch (IllegalStateException e) {
+			// LocalKube is already ending
+		}
+	}
+
+	/**
+	 * Use the Jib library to create the image of an app, once per jar digest: the instances of the app share it
+	 * (the port is given to the container at creation), the image is a tar or goes straight into the docker daemon
 	 * @param app the futur image
 	 * @throws IOException for addLayer in JibRestClient
 	 * @throws InvalidImageReferenceException for Jib.from
@@ -122,109 +599,519 @@ public class LocalKubeApplication {
 	 */
 	private void setJibFrom (ApplicationData app) throws InvalidImageReferenceException, IOException, InterruptedException,
 			ExecutionException, RegistryException, CacheDirectoryCreationException {
-		Jib.from("openjdk:15") //Local version
-				.addLayer(Arrays.asList(Paths.get(additionalPath + "apps/" + app.getNameApp() + ".jar")), AbsoluteUnixPath.get("/"))
-				.setEntrypoint("java", "-jar", "-Dserver.port=" + app.port(), app.getNameApp() + ".jar")
-				.containerize(Containerizer.to(TarImage.at(Paths.get("docker-images/" + app.dockerInstance() + ".tar")).named(app.dockerInstance())));
+		var image = images.image(app);
+		synchronized (images.lock(image)) {
+			if (images.isBuilt(image)) {
+				return;
+			}
+			var begin = System.nanoTime();
+			baseImages.from()
+					.addLayer(Arrays.asList(images.jar(app.getNameApp())), AbsoluteUnixPath.get("/"))
+					.setEntrypoint("java", "-jar", app.getNameApp() + ".jar")
+					.containerize(baseImages.cached(images.containerizer(image)));
+			images.built(image, millisSince(begin));
+		}
+	}
+
+	/**
+	 * load the image of an app in docker, unless an instance of the same jar already loaded it (or it was built into the daemon)
+	 * @param app the app image to be loaded
+	 * @throws IOException when docker can't be reached
+	 * @throws InterruptedException when interrupted while waiting for docker
+	 * @throws LKArgumentsException when docker fails to load the image
+	 */
+	private void loadImage (ApplicationData app) throws IOException, InterruptedException {
+		var image = images.image(app);
+		synchronized (images.lock(image)) {
+			if (images.isLoaded(image)) {
+				return;
+			}
+			var begin = System.nanoTime();
+			check(runtime.load(images.tar(image)), "load", app);
+			images.loaded(image, millisSince(begin));
+		}
+	}
+
+	/**
+	 * start or 'restart' the container of an app, then register the app as running and follow its logs
+	 * @param app the app image to be started or restarted
+	 * @throws IOException when docker can't be reached
+	 * @throws InterruptedException when interrupted while waiting for docker
+	 * @throws LKArgumentsException when docker fails to start the container
+	 */
+	private void runContainer (ApplicationData app) throws IOException, InterruptedException {
+		var since = System.currentTimeMillis() / 1000;
+		bootContainer(app);
+		appDatas.add(app);
+		logTailer.follow(app, since);
 	}
 
 	/**
-	 * apply all needed process to start or 'restart' an image
+	 * start or 'restart' the container of an app, without registering the app
 	 * @param app the app image to be started or restarted
-	 * @throws IOException for start in ProcessBuilder
-	 * @throws InterruptedException for waitFor in ProcessBuilder
+	 * @throws IOException when docker can't be reached
+	 * @throws InterruptedException when interrupted while waiting for docker
+	 * @throws LKArgumentsException when docker fails to start the container
 	 */
-	private void applyProcess (ApplicationData app) throws IOException, InterruptedException {
-		new ProcessBuilder("docker", "load", "-i", "docker-images/" + app.dockerInstance() + ".tar").inheritIO().start().waitFor();
-		var exist = new ProcessBuilder("docker", "ps", "-a", "-f", "name=" + app.dockerInstance()).start();
-		var count = new BufferedReader(new InputStreamReader(exist.getInputStream())).lines().count();
-		if (count == 2) {
-			new ProcessBuilder("docker", "start", app.dockerInstance()).inheritIO().start();
+	private void bootContainer (ApplicationData app) throws IOException, InterruptedException {
+		if (containers.exists(app.dockerInstance())) {
+			check(runtime.start(app.dockerInstance()), "start", app);
 		}
 		else {
-			new ProcessBuilder("docker", "run", "-p", app.port()+":"+app.port(),
-					"--name", app.dockerInstance(), app.dockerInstance()).inheritIO().start();
+			check(runtime.run(app.dockerInstance(), app.port(), images.image(app), environment(app)), "run", app);
 		}
+		containers.started(app.dockerInstance());
 	}
 
 	/**
-	 * request to stop an application
+	 * the environment of the container of an app: its port (server.port, through the JVM options) and its identity
+	 * @param app the app
+	 * @return a map (variable name, value)
+	 */
+	private static Map<String, String> environment (ApplicationData app) {
+		var env = new LinkedHashMap<String, String>();
+		env.put("JAVA_TOOL_OPTIONS", "-Dserver.port=" + app.port());
+		env.put("LOCALKUBE_ID", String.valueOf(app.id()));
+		env.put("LOCALKUBE_INSTANCE", app.dockerInstance());
+		return env;
+	}
+
+	/**
+	 * build, load and run the container of an app of the warm pool, the app stays parked (not registered as running)
+	 * @param app the app reserved for the pool
+	 * @throws Exception when the build, the load or the run fails
+	 */
+	private void warmContainer (ApplicationData app) throws Exception {
+		registerShutdownHook();
+		setJibFrom(app);
+		loadImage(app);
+		bootContainer(app);
+	}
+
+	/**
+	 * remove the container of a parked app and give back its id and its port, a failure of docker is only reported
+	 * @param app the parked app
+	 */
+	private void discardContainer (ApplicationData app) {
+		try {
+			removeContainer(app);
+		} catch (IOException e) {
+			LKArgumentsException.report("Parked container " + app.dockerInstance() + " not removed : " + e);
+		}
+		appDatas.abandon(app);
+	}
+
+	/**
+	 * claim a parked container of the warm pool, then register its app as running and follow its logs
+	 * @param spec the app as it was asked ("name:port" or "name"), only a start without port can claim a container
+	 * @return the claimed app, empty when there is none
+	 */
+	private Optional<ApplicationData> claimApp (String spec) {
+		return pool.claim(spec).map(app -> {
+			appDatas.add(app);
+			logTailer.follow(app, System.currentTimeMillis() / 1000);
+			return app;
+		});
+	}
+
+	/**
+	 * the time elapsed since a moment
+	 * @param begin the moment, in nanoseconds
+	 * @return the elapsed time in milliseconds
+	 */
+	private static long millisSince (long begin) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+	}
+
+	/**
+	 * move the app of a container which stopped running outside LocalKube (crash, docker stop, docker rm) to the stopped apps
+	 * @param name the container name
+	 */
+	private void containerExited (String name) {
+		for (var app : appDatas.find("byInstance", name)) {
+			try {
+				appDatas.stop(app.id());
+				System.out.println("app exited :\n" + app.toStringStop());
+			} catch (NullPointerException e) {
+				// stopped by a request in the meantime
+			}
+		}
+	}
+
+	/**
+	 * check the exit status of a docker operation
+	 * @param status the exit status
+	 * @param operation the name of the operation
+	 * @param app the concerned app
+	 * @throws LKArgumentsException when the status is not 0
+	 */
+	private static void check (int status, String operation, ApplicationData app) {
+		if (status != 0) {
+			throw new LKArgumentsException("docker " + operation + " of " + app.dockerInstance() + " failed with status " + status);
+		}
+	}
+
+	/**
+	 * stop the container of an app, an interruption is only reported
+	 * @param app the app to stop
+	 * @return the exit status of the stop, -1 when interrupted
+	 * @throws IOException when docker can't be reached
+	 */
+	private int stopContainer (ApplicationData app) throws IOException {
+		try {
+			return runtime.stop(app.dockerInstance());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LKArgumentsException.report("Interrupted while stopping " + app.dockerInstance());
+			return -1;
+		}
+	}
+
+	/**
+	 * remove the container of an app, an interruption is only reported
+	 * @param app the app to remove
+	 * @return the exit status of the removal, -1 when interrupted
+	 * @throws IOException when docker can't be reached
+	 */
+	private int removeContainer (ApplicationData app) throws IOException {
+		try {
+			return runtime.remove(app.dockerInstance());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LKArgumentsException.report("Interrupted while removing " + app.dockerInstance());
+			return -1;
+		}
+	}
+
+	/**
+	 * request to stop an application, on the former text format
 	 * @param idS the id of the application to be stop on json format {"id":[id]}
 	 * @return the application on json application format, an error if the app does not exist
-	 * @throws IOException for start in ProcessBuilder
+	 * @throws IOException when docker can't be reached
 	 */
-	@PostMapping(path="/stop")
+	@PostMapping(path="/stop", produces=MediaType.TEXT_PLAIN_VALUE)
 	public String stop(@RequestBody String idS) throws IOException {
-		var id = idS.split(":")[1];
 		try {
-			ApplicationData app = appDatas.stop(Integer.parseInt(id.substring(1, id.length()-1)));
-			new ProcessBuilder("docker", "stop", app.dockerInstance()).inheritIO().start();
-			System.out.println("app stopped :\n" + app.toStringStop());
-			return app.toStringStop();
+			return stopApp(idS).toStringStop();
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to stop an application, as json
+	 * @param idS the id of the application to be stop on json format {"id":[id]}
+	 * @return the stopped application, an error if the app does not exist
+	 * @throws IOException when docker can't be reached
+	 */
+	@PostMapping("/stop")
+	public ResponseEntity<StreamingResponseBody> stopJson(@RequestBody String idS) throws IOException {
+		try {
+			return JsonResponses.value(JsonResponses.StoppedApp.of(stopApp(idS)));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * stop an application and its container
+	 * @param idS the id of the application to be stop on json format {"id":[id]}
+	 * @return the stopped application
+	 * @throws IOException when docker can't be reached
+	 * @throws LKArgumentsException when the id is not an integer or the app is not running
+	 */
+	private ApplicationData stopApp(String idS) throws IOException {
+		var id = RequestDecoder.id(idS);
+		ApplicationData app;
+		try {
+			app = appDatas.stop(id);
 		} catch (NullPointerException e){
-			return new LKArgumentsException("The requested app to stop with id:" + id.substring(0, id.length() - 1) + " is not running").toString();
-		} catch (NumberFormatException e){
-			return new LKArgumentsException("Input format for id is Integer, get : " + idS).toString();
+			throw new LKArgumentsException("The requested app to stop with id: " + id + " is not running");
 		}
+		stopContainer(app);
+		System.out.println("app stopped :\n" + app.toStringStop());
+		return app;
 	}
 
 	/**
-	 * request to stop all launched application
-	 * @return A list of stopped apps, an error if the app does not exist
-	 * @throws IOException for start in ProcessBuilder
+	 * request to stop all launched application, on the former text format
+	 * @return A list of the stop result of each app, an error if there is no app to stop
 	 */
-	@PostMapping(path="/stopall")
-	public String stopAll() throws IOException {
-		var apps = appDatas.stopAll();
-		if (apps.size() == 0){
-			return new LKArgumentsException("No apps to stop").toString();
+	@PostMapping(path="/stopall", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String stopAll() {
+		try {
+			return toText(stopSelected(AppSelector.all()));
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to stop all launched application, as json
+	 * @return A list of the stop result of each app, an error if there is no app to stop
+	 */
+	@PostMapping("/stopall")
+	public ResponseEntity<StreamingResponseBody> stopAllJson() {
+		try {
+			return JsonResponses.array(JsonResponses.Result.of(stopSelected(AppSelector.all())));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * request to stop the launched applications matching a selector, the containers are stopped in parallel,
+	 * on the former text format
+	 * @param jsonSelector the selector on json format ({"app": "name", "instancePrefix": "name-1", "ids": [1, 2]}, each field is optional)
+	 * @return A list of the stop result of each selected app, an error if there is no app to stop
+	 */
+	@PostMapping(path="/stop/bulk", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String stopBulk(@RequestBody String jsonSelector) {
+		try {
+			return toText(stopSelected(RequestDecoder.selector(jsonSelector)));
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to stop the launched applications matching a selector, the containers are stopped in parallel, as json
+	 * @param jsonSelector the selector on json format ({"app": "name", "instancePrefix": "name-1", "ids": [1, 2]}, each field is optional)
+	 * @return A list of the stop result of each selected app, an error if there is no app to stop
+	 */
+	@PostMapping("/stop/bulk")
+	public ResponseEntity<StreamingResponseBody> stopBulkJson(@RequestBody String jsonSelector) {
+		try {
+			return JsonResponses.array(JsonResponses.Result.of(stopSelected(RequestDecoder.selector(jsonSelector))));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * stop the launched applications matching a selector and wait for their containers
+	 * @param selector the selection of the apps
+	 * @return the stop result of each selected app
+	 * @throws LKArgumentsException when there is no app to stop
+	 */
+	private List<ContainerResult> stopSelected(AppSelector selector) {
+		var apps = appDatas.stopAll(selector::matches);
+		if (apps.isEmpty()){
+			throw new LKArgumentsException("No apps to stop");
 		}
 		System.out.println("Apps stopped :");
 		apps.forEach(System.out::println);
-		for (var app : apps){
-			new ProcessBuilder("docker", "stop", app.dockerInstance()).inheritIO().start();
-		}
-		return apps.toString();
+		return runBulk(apps, app -> runtime.stop(app.dockerInstance()));
 	}
 
 	/**
-	 * request to kill a stopped application
+	 * request to kill a stopped application, on the former text format
 	 * @param idS the id of the application to be kill on json format {"id":[id]}
 	 * @return the application on json application format, an error if the app does not exist
-	 * @throws IOException for start in ProcessBuilder
+	 * @throws IOException when docker can't be reached
 	 */
-	@PostMapping(path="/kill")
+	@PostMapping(path="/kill", produces=MediaType.TEXT_PLAIN_VALUE)
 	public String kill(@RequestBody String idS) throws IOException {
-		var id = idS.split(":")[1];
 		try {
-			var app = appDatas.kill(Integer.parseInt(id.substring(1, id.length()-1)));
-			new ProcessBuilder("docker", "rm", "--force", app.dockerInstance()).inheritIO().start();
-			System.out.println("App killed :\n" + app);
-			return app.toString();
+			return killApp(idS).toString();
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to kill a stopped application, as json
+	 * @param idS the id of the application to be kill on json format {"id":[id]}
+	 * @return the killed application, an error if the app does not exist
+	 * @throws IOException when docker can't be reached
+	 */
+	@PostMapping("/kill")
+	public ResponseEntity<StreamingResponseBody> killJson(@RequestBody String idS) throws IOException {
+		try {
+			return JsonResponses.value(JsonResponses.App.of(killApp(idS)));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * kill a stopped application and remove its container
+	 * @param idS the id of the application to be kill on json format {"id":[id]}
+	 * @return the killed application
+	 * @throws IOException when docker can't be reached
+	 * @throws LKArgumentsException when the id is not an integer or the app is not stopped
+	 */
+	private ApplicationData killApp(String idS) throws IOException {
+		var id = RequestDecoder.id(idS);
+		ApplicationData app;
+		try {
+			app = appDatas.kill(id);
 		} catch (NullPointerException e){
-			return new LKArgumentsException("App with id:" + id.substring(0, id.length() - 1) + " is not stopped or does not exist, can't be killed").toString();
-		} catch (NumberFormatException e){
-			return new LKArgumentsException("Input format for id is Integer, get : " + idS).toString();
+			throw new LKArgumentsException("App with id: " + id + " is not stopped or does not exist, can't be killed");
+		}
+		removeContainer(app);
+		System.out.println("App killed :\n" + app);
+		return app;
+	}
+
+	/**
+	 * request to kill all stopped application, on the former text format
+	 * @return A list of the kill result of each app, an error if there is no app to kill
+	 */
+	@PostMapping(path="/killall", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String killAll() {
+		try {
+			return toText(killSelected(AppSelector.all()));
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to kill all stopped application, as json
+	 * @return A list of the kill result of each app, an error if there is no app to kill
+	 */
+	@PostMapping("/killall")
+	public ResponseEntity<StreamingResponseBody> killAllJson() {
+		try {
+			return JsonResponses.array(JsonResponses.Result.of(killSelected(AppSelector.all())));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
 		}
 	}
 
 	/**
-	 * request to kill all stopped application
-	 * @return A list of killed apps, an error if the app does not exist
-	 * @throws IOException for start in ProcessBuilder
+	 * request to kill the stopped applications matching a selector, the containers are removed in parallel,
+	 * on the former text format
+	 * @param jsonSelector the selector on json format ({"app": "name", "instancePrefix": "name-1", "ids": [1, 2]}, each field is optional)
+	 * @return A list of the kill result of each selected app, an error if there is no app to kill
 	 */
-	@PostMapping(path="/killall")
-	public String killAll() throws IOException {
-		var apps = appDatas.killAll();
-		if (apps.size() == 0){
-			return new LKArgumentsException("No apps to kill").toString();
+	@PostMapping(path="/kill/bulk", produces=MediaType.TEXT_PLAIN_VALUE)
+	public String killBulk(@RequestBody String jsonSelector) {
+		try {
+			return toText(killSelected(RequestDecoder.selector(jsonSelector)));
+		} catch (LKArgumentsException e) {
+			return e.toString();
+		}
+	}
+
+	/**
+	 * request to kill the stopped applications matching a selector, the containers are removed in parallel, as json
+	 * @param jsonSelector the selector on json format ({"app": "name", "instancePrefix": "name-1", "ids": [1, 2]}, each field is optional)
+	 * @return A list of the kill result of each selected app, an error if there is no app to kill
+	 */
+	@PostMapping("/kill/bulk")
+	public ResponseEntity<StreamingResponseBody> killBulkJson(@RequestBody String jsonSelector) {
+		try {
+			return JsonResponses.array(JsonResponses.Result.of(killSelected(RequestDecoder.selector(jsonSelector))));
+		} catch (LKArgumentsException e) {
+			return JsonResponses.error(e);
+		}
+	}
+
+	/**
+	 * kill the stopped applications matching a selector and wait for their containers
+	 * @param selector the selection of the apps
+	 * @return the kill result of each selected app
+	 * @throws LKArgumentsException when there is no app to kill
+	 */
+	private List<ContainerResult> killSelected(AppSelector selector) {
+		var apps = appDatas.killAll(selector::matches);
+		if (apps.isEmpty()){
+			throw new LKArgumentsException("No apps to kill");
 		}
 		System.out.println("Apps killed :");
 		apps.forEach(System.out::println);
-		for (var app : apps){
-			new ProcessBuilder("docker", "rm", "--force", app.dockerInstance()).inheritIO().start();
+		return runBulk(apps, app -> runtime.remove(app.dockerInstance()));
+	}
+
+	/**
+	 * start new instances of apps (a batch, the missing instances of the auto-scale, the replaced ones) and wait for
+	 * all of them, the instances without port claim the parked containers of the warm pool first
+	 * @param specs the apps, once per instance ("name" to get a free port or "name:port")
+	 * @return the start result of each instance, in the order of the specs
+	 * @throws InterruptedException when interrupted while waiting for the starts
+	 */
+	private List<StartResult> addApps(List<String> specs) throws InterruptedException {
+		registerShutdownHook();
+		var begin = System.nanoTime();
+		var results = new ArrayList<StartResult>(Collections.nCopies(specs.size(), null));
+		var missed = new ArrayList<Integer>();
+		for (var i = 0; i < specs.size(); i++) {
+			var claimed = claimApp(specs.get(i));
+			if (claimed.isPresent()) {
+				var millis = millisSince(begin);
+				pool.started(specs.get(i), true, millis);
+				results.set(i, new StartResult(specs.get(i), claimed.get(), millis, null));
+			}
+			else {
+				missed.add(i);
+			}
+		}
+		var started = batch.start(missed.stream().map(specs::get).collect(Collectors.toList()), appDatas::fromSpec);
+		for (var i = 0; i < missed.size(); i++) {
+			var result = started.get(i);
+			if (result.isSuccess()) { pool.started(result.spec(), false, result.millis()); }
+			results.set(missed.get(i), result);
 		}
-		return apps.toString();
+		return results;
+	}
+
+	/**
+	 * stop and remove the containers of running apps (the extra instances of the auto-scale), then forget the apps
+	 * whose container was removed, the others stay stopped (their container may still hold the port)
+	 * @param apps the running apps
+	 * @return the result of each app which was still running
+	 * @throws InterruptedException when interrupted while waiting for the containers
+	 */
+	private List<ContainerResult> removeApps(List<ApplicationData> apps) throws InterruptedException {
+		var ids = apps.stream().map(ApplicationData::id).collect(Collectors.toSet());
+		var stopped = appDatas.stopAll(app -> ids.contains(app.id()));
+		var results = bulk.run(stopped, app -> {
+			var status = runtime.stop(app.dockerInstance());
+			return status != 0 ? status : runtime.remove(app.dockerInstance());
+		});
+		var removed = results.stream().filter(ContainerResult::isSuccess).map(result -> result.app().id()).collect(Collectors.toSet());
+		appDatas.killAll(app -> removed.contains(app.id()));
+		return results;
+	}
+
+	/**
+	 * replace instances (the unhealthy ones): stop and remove their containers, then start them again on the same port,
+	 * an instance whose container could not be removed is not started again
+	 * @param apps the running instances
+	 * @return the start result of each new instance
+	 * @throws InterruptedException when interrupted while waiting for the containers or the starts
+	 */
+	private List<StartResult> replaceApps(List<ApplicationData> apps) throws InterruptedException {
+		var removed = removeApps(apps).stream().filter(ContainerResult::isSuccess).map(result -> result.app().app())
+				.collect(Collectors.toList());
+		return addApps(removed);
+	}
+
+	/**
+	 * run a docker operation on the containers of apps and wait for the result of each one
+	 * @param apps the apps
+	 * @param operation the docker operation
+	 * @return the result of each app
+	 * @throws LKArgumentsException when interrupted while waiting
+	 */
+	private List<ContainerResult> runBulk(List<ApplicationData> apps, BulkExecutor.Operation operation) {
+		try {
+			return bulk.run(apps, operation);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LKArgumentsException("Interrupted while waiting for the containers of " + apps.size() + " apps");
+		}
+	}
+
+	/**
+	 * string format (json format) of the results of a docker operation on containers
+	 * @param results the results
+	 * @return the list of the results
+	 */
+	private static String toText(List<ContainerResult> results) {
+		return results.stream().map(ContainerResult::toString).collect(Collectors.joining(",\n", "[\n", "\n]"));
 	}
 
 }
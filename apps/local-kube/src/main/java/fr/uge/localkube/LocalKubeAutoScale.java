@@ -0,0 +1,96 @@
+package fr.uge.localkube;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static java.util.Objects.requireNonNull;
+
+
+@RestController
+@RequestMapping("/auto-scale")
+@Component
+public class LocalKubeAutoScale {
+    /**
+     * class which represent a REST service that keeps a target number of running instances of apps
+     * @field autoScaler the auto-scaler of the LocalKubeApplication
+     */
+    private final AutoScaler autoScaler;
+
+    /**
+     * Constructor of a LocalKubeAutoScale, that needs a LocalKubeApplication to work.
+     * @param LKApp the localKube application
+     */
+    @Autowired
+    public LocalKubeAutoScale(LocalKubeApplication LKApp){
+        autoScaler = requireNonNull(LKApp).getAutoScaler();
+    }
+
+    /**
+     * set the targets of apps and turn the auto-scale on, on the former text format
+     * @param jsonTargets the targets on json format {"name": instances, ...}
+     * @return the status of the auto-scale, an error if the targets are invalid
+     */
+    @PostMapping(path = "/update", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String update(@RequestBody String jsonTargets) {
+        try {
+            return AutoScaler.toText(autoScaler.update(RequestDecoder.targets(jsonTargets)));
+        } catch (LKArgumentsException e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * set the targets of apps and turn the auto-scale on, as json
+     * @param jsonTargets the targets on json format {"name": instances, ...}
+     * @return the status of the auto-scale, an error if the targets are invalid
+     */
+    @PostMapping("/update")
+    public ResponseEntity<StreamingResponseBody> updateJson(@RequestBody String jsonTargets) {
+        try {
+            return JsonResponses.value(autoScaler.update(RequestDecoder.targets(jsonTargets)));
+        } catch (LKArgumentsException e) {
+            return JsonResponses.error(e);
+        }
+    }
+
+    /**
+     * get the targets, the running instances, the convergence and the last actions of the auto-scale,
+     * on the former text format
+     * @return the status of the auto-scale
+     */
+    @RequestMapping(path = "/status", method = {RequestMethod.GET, RequestMethod.POST}, produces = MediaType.TEXT_PLAIN_VALUE)
+    public String status() {
+        return autoScaler.toString();
+    }
+
+    /**
+     * get the targets, the running instances, the convergence and the last actions of the auto-scale, as json
+     * @return the status of the auto-scale
+     */
+    @RequestMapping(path = "/status", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<StreamingResponseBody> statusJson() {
+        return JsonResponses.value(autoScaler.status());
+    }
+
+    /**
+     * turn the auto-scale off, the running instances are left as they are, on the former text format
+     * @return the last status of the auto-scale
+     */
+    @PostMapping(path = "/stop", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String stop() {
+        return AutoScaler.toText(autoScaler.stop());
+    }
+
+    /**
+     * turn the auto-scale off, the running instances are left as they are, as json
+     * @return the last status of the auto-scale
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<StreamingResponseBody> stopJson() {
+        return JsonResponses.value(autoScaler.stop());
+    }
+}
@@ -1,18 +1,27 @@
 package fr.uge.localkube;
 
-import org.jdbi.v3.core.Jdbi;
-import org.jdbi.v3.core.mapper.reflect.ConstructorMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 @RestController
@@ -40,130 +49,277 @@ public class LocalKubeLogs {
     }
 
     /**
-     * Get the logs since a time given.
+     * Get the logs since a time given, on the former text format.
      * @param time the variable time to print the logs since
      * @return a string (JSON-style) of the app logs
-     * @throws IOException for the buffered reader
-     * @throws SQLException when a problem occur in the DB
+     * @throws InterruptedException when interrupted while waiting for the logs
      */
-    @GetMapping("/{time}")
+    @GetMapping(path = "/{time}", produces = MediaType.TEXT_PLAIN_VALUE)
     @ResponseBody
-    public String logPerTime(@PathVariable String time) throws IOException, SQLException { //récupère command docker logs -> parse le res -> envoie dans la bd
+    public String logPerTime(@PathVariable String time) throws InterruptedException { //récupère command docker logs -> parse le res -> envoie dans la bd
         Objects.requireNonNull(time);
-        var apps = LKApp.getAppDatas().getAppDatas();
-        var logs = new StringJoiner(",\n", "[\n", "\n]");
-        for (var app : apps){
-            var log = new ProcessBuilder("docker", "logs", "--since=" + time + "m", app.dockerInstance()).start();
-            logs.add(logWriting(app, new BufferedReader(new InputStreamReader(log.getInputStream()))));
-        }
-        return logs.toString();
+        return logs(LKApp.getAppDatas().getAppDatas(), time);
     }
 
     /**
-     * Get the logs since a time given and filter it by a given name (two types of name) or by index.
+     * Get the logs since a time given and filter it by a given name (two types of name) or by index, on the former text format.
      * @param filter the variable to filter with
      * @param time the variable time to print the logs since
      * @return a string (JSON-style) of the app logs
-     * @throws IOException for the buffered reader
-     * @throws SQLException when a problem occur in the DB
+     * @throws InterruptedException when interrupted while waiting for the logs
      */
-    @GetMapping("/{time}/{filter}")
+    @GetMapping(path = "/{time}/{filter}", produces = MediaType.TEXT_PLAIN_VALUE)
     @ResponseBody
-    public String logPerTimeFiltered(@PathVariable String time, @PathVariable String filter) throws IOException, SQLException { //récupère command docker logs -> parse le res -> envoie dans la bd
+    public String logPerTimeFiltered(@PathVariable String time, @PathVariable String filter) throws InterruptedException { //récupère command docker logs -> parse le res -> envoie dans la bd
         Objects.requireNonNull(time);
         Objects.requireNonNull(filter);
-        var apps = LKApp.getAppDatas().getAppDatas();
-        var logs = new StringJoiner(",\n", "[\n", "\n]");
-        for (var app : apps){
-            if (String.valueOf(app.id()).equals(filter) || app.dockerInstance().equals(filter) || app.app().equals(filter)){
-                var log = new ProcessBuilder("docker", "logs", "--since=" + time + "m", app.dockerInstance()).start();
-                logs.add(logWriting(app, new BufferedReader(new InputStreamReader(log.getInputStream()))));
-            }
-        }
-        return logs.toString();
+        return logs(LKApp.getAppDatas().find(filter), time);
     }
 
     /**
-     * Get the logs since a time given and filter it by a given name (two types of name) or by index.
-     * @param by the variable to focus on
+     * Get the logs since a time given and filter it by a given name (two types of name) or by index, on the former text format.
+     * @param by the variable to focus on: byId, byInstance, byApp or byName
      * @param filter the variable to filter with
      * @param time the variable time to print the logs since
      * @return a string (JSON-style) of the app logs
-     * @throws IOException for the buffered reader
-     * @throws SQLException when a problem occur in the DB
+     * @throws InterruptedException when interrupted while waiting for the logs
      */
-    @GetMapping("/{time}/{by}/{filter}")
+    @GetMapping(path = "/{time}/{by}/{filter}", produces = MediaType.TEXT_PLAIN_VALUE)
     @ResponseBody
-    public String logPerTimeByFilter(@PathVariable String time, @PathVariable String by, @PathVariable String filter) throws IOException, SQLException { //récupère command docker logs -> parse le res -> envoie dans la bd
+    public String logPerTimeByFilter(@PathVariable String time, @PathVariable String by, @PathVariable String filter) throws InterruptedException { //récupère command docker logs -> parse le res -> envoie dans la bd
         Objects.requireNonNull(time);
         Objects.requireNonNull(by);
         Objects.requireNonNull(filter);
-        var apps = LKApp.getAppDatas().getAppDatas();
-        var logs = new StringJoiner(",\n", "[\n", "\n]");
-        for (var app : apps){
-            if ((String.valueOf(app.id()).equals(filter) && by.equals("byId")) || (app.dockerInstance().equals(filter) && by.equals("byInstance")) || (app.app().equals(filter) && by.equals("byApp")))  {
-                var log = new ProcessBuilder("docker", "logs", "--since=" + time + "m", app.dockerInstance()).start();
-                logs.add(logWriting(app, new BufferedReader(new InputStreamReader(log.getInputStream()))));
-            }
+        try {
+            return logs(LKApp.getAppDatas().find(by, filter), time);
+        } catch (LKArgumentsException e) {
+            return e.toString();
         }
-        return logs.toString();
     }
 
+    /**
+     * Get the logs since a time given, optionally filtered like '/logs/{time}/{filter}' and '/logs/{time}/{by}/{filter}', as json.
+     * @param time the variable time to print the logs since
+     * @param by the variable to focus on: byId, byInstance, byApp or byName (optional)
+     * @param filter the variable to filter with (optional)
+     * @return the logs of each app, an error if the time or the filter is invalid
+     * @throws InterruptedException when interrupted while waiting for the logs
+     */
+    @GetMapping({"/{time}", "/{time}/{filter}", "/{time}/{by}/{filter}"})
+    public ResponseEntity<StreamingResponseBody> logPerTimeJson(@PathVariable String time, @PathVariable(required = false) String by,
+                                                                @PathVariable(required = false) String filter) throws InterruptedException {
+        Objects.requireNonNull(time);
+        try {
+            var apps = filter == null ? LKApp.getAppDatas().getAppDatas()
+                    : by == null ? LKApp.getAppDatas().find(filter) : LKApp.getAppDatas().find(by, filter);
+            return JsonResponses.array(logs(apps, minutes(time)));
+        } catch (LKArgumentsException e) {
+            return JsonResponses.error(e);
+        }
+    }
 
     /**
-     * Write the logs in a human-readable way (JSON-style) to be returned.
-     * @param app the concern app to print the logs of
-     * @param reader the text containing the logs
-     * @return a string of the app logs
-     * @throws IOException for the buffered reader
-     * @throws SQLException when a problem occur in the DB
+     * Get the logs of apps since a time given on the former text format.
+     * @param apps the apps to get the logs of
+     * @param time the variable time to print the logs since, in minutes
+     * @return a string (JSON-style) of the app logs, an error if the time is not a number of minutes
+     * @throws InterruptedException when interrupted while waiting for the logs
      */
-    private static String logWriting(ApplicationData app, BufferedReader reader) throws IOException, SQLException {
-        Objects.requireNonNull(app);
-        Objects.requireNonNull(reader);
-        var ret = "{\n\tid:" + app.id() + ",\n\tapp:" + app.app() + ",\n\tport:" + app.port()
-                + ",\n\tdocker-instance:" + app.dockerInstance();
-        var sj = parsingLogs(reader);
-        logWritingInDB(app, sj);
-        return ret + sj.toString();
-    }
-
-    /**
-     * Write the logs in the SQLite database, using JDBC and JDBI
-     * @param app the concern app to print the logs of
-     * @param sj the text containing the logs
-     * @throws SQLException when a problem occur in the DB
-     */
-    private static void logWritingInDB(ApplicationData app, StringJoiner sj) throws SQLException {
-        Objects.requireNonNull(app);
-        Objects.requireNonNull(sj);
-        Jdbi jdbi = Jdbi.create("jdbc:sqlite:logs/logs.db");
-        List<Log> logs = jdbi.withHandle(handle -> {
-            handle.execute("DROP TABLE IF EXISTS log");
-            handle.execute("CREATE TABLE log (app VARCHAR PRIMARY KEY, logs VARCHAR)");
-            handle.registerRowMapper(ConstructorMapper.factory(Log.class));
-            handle.createUpdate("INSERT INTO log(app, logs) VALUES (:app, :logs)").bindBean(new Log(app.app(), sj.toString())).execute();
-            return handle.createQuery("SELECT * FROM log ORDER BY app").mapTo(Log.class).list();
+    private String logs(List<ApplicationData> apps, String time) throws InterruptedException {
+        try {
+            return logs(apps, minutes(time)).stream().map(JsonResponses.AppLogs::toString)
+                    .collect(Collectors.joining(",\n", "[\n", "\n]"));
+        } catch (LKArgumentsException e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * Get the logs of apps since a time given, the apps are fetched at the same time and given in their order.
+     * @param apps the apps to get the logs of
+     * @param minutes the number of minutes of logs to get
+     * @return the logs of each app
+     * @throws InterruptedException when interrupted while waiting for the logs
+     */
+    private List<JsonResponses.AppLogs> logs(List<ApplicationData> apps, long minutes) throws InterruptedException {
+        return LKApp.getLogFetcher().fetch(apps, (app, onTimeout) -> fetch(app, minutes, onTimeout), JsonResponses.AppLogs::error);
+    }
+
+    /**
+     * Search the stored logs with a full-text query, the best hits first, on the former text format.
+     * @param q the query: terms, "phrases", AND, OR, NOT and prefix*
+     * @param app the short app name to search (optional)
+     * @param instance the docker instance to search (optional)
+     * @param level the level to search (optional)
+     * @param from the local time of the start of the range, like 2020-11-20T10:00 (optional)
+     * @param to the local time of the end of the range (optional)
+     * @param page the index of the page, from 0
+     * @param size the number of hits of a page
+     * @return a string (JSON-style) of the hits, an error if a parameter is invalid
+     */
+    @GetMapping(path = "/search", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String search(@RequestParam String q, @RequestParam(required = false) String app,
+                         @RequestParam(required = false) String instance, @RequestParam(required = false) String level,
+                         @RequestParam(required = false) String from, @RequestParam(required = false) String to,
+                         @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        try {
+            var hits = LKApp.getLogStore().search(q, app, instance, level, epochMilli(from, 0), epochMilli(to, Long.MAX_VALUE), page, size);
+            return hits.stream().map(LogHit::toString).collect(Collectors.joining(",\n", "[\n", "\n]"));
+        } catch (LKArgumentsException e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * Search the stored logs with a full-text query, the best hits first, as json.
+     * @param q the query: terms, "phrases", AND, OR, NOT and prefix*
+     * @param app the short app name to search (optional)
+     * @param instance the docker instance to search (optional)
+     * @param level the level to search (optional)
+     * @param from the local time of the start of the range, like 2020-11-20T10:00 (optional)
+     * @param to the local time of the end of the range (optional)
+     * @param page the index of the page, from 0
+     * @param size the number of hits of a page
+     * @return the hits, an error if a parameter is invalid
+     */
+    @GetMapping("/search")
+    public ResponseEntity<StreamingResponseBody> searchJson(@RequestParam String q, @RequestParam(required = false) String app,
+                                                            @RequestParam(required = false) String instance, @RequestParam(required = false) String level,
+                                                            @RequestParam(required = false) String from, @RequestParam(required = false) String to,
+                                                            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        try {
+            var hits = LKApp.getLogStore().search(q, app, instance, level, epochMilli(from, 0), epochMilli(to, Long.MAX_VALUE), page, size);
+            return JsonResponses.array(JsonResponses.Hit.of(hits));
+        } catch (LKArgumentsException e) {
+            return JsonResponses.error(e);
+        }
+    }
+
+    /**
+     * Parse a local time given in a request.
+     * @param time the local time, like 2020-11-20T10:00, null if not given
+     * @param defaultValue the epoch millisecond when the time is not given
+     * @return the epoch millisecond of the time
+     * @throws LKArgumentsException when the time is not a local time
+     */
+    private static long epochMilli(String time, long defaultValue) {
+        if (time == null) {
+            return defaultValue;
+        }
+        try {
+            return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new LKArgumentsException("Input format for a time is yyyy-MM-ddTHH:mm[:ss], get : " + time);
+        }
+    }
+
+    /**
+     * Get the statistics of the log store (lines, batches and ingest rate), on the former text format.
+     * @return a string (JSON-style) of the statistics
+     */
+    @GetMapping(path = "/store", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public String store() {
+        return LKApp.getLogStore().toString();
+    }
+
+    /**
+     * Get the statistics of the log store (lines, batches and ingest rate), as json.
+     * @return the statistics
+     */
+    @GetMapping("/store")
+    public ResponseEntity<StreamingResponseBody> storeJson() {
+        return JsonResponses.value(LKApp.getLogStore().stats());
+    }
+
+    /**
+     * Stream the logs since a time given, optionally filtered like '/logs/{time}/{filter}' and '/logs/{time}/{by}/{filter}':
+     * each log line is written as soon as it is read, as NDJSON or as Server-Sent Events when the client accepts 'text/event-stream'.
+     * @param time the variable time to print the logs since
+     * @param by the variable to focus on: byId, byInstance, byApp or byName (optional)
+     * @param filter the variable to filter with (optional)
+     * @param accept the Accept header of the request
+     * @return the streamed logs, an error if the time or the filter is invalid
+     */
+    @GetMapping({"/stream/{time}", "/stream/{time}/{filter}", "/stream/{time}/{by}/{filter}"})
+    public ResponseEntity<StreamingResponseBody> logStream(@PathVariable String time, @PathVariable(required = false) String by,
+                                                           @PathVariable(required = false) String filter,
+                                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Objects.requireNonNull(time);
+        List<ApplicationData> apps;
+        long minutes;
+        try {
+            minutes = minutes(time);
+            apps = filter == null ? LKApp.getAppDatas().getAppDatas()
+                    : by == null ? LKApp.getAppDatas().find(filter) : LKApp.getAppDatas().find(by, filter);
+        } catch (LKArgumentsException e) {
+            return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(e.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        var format = LogStreamWriter.Format.of(accept);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(format.contentType())).body(out -> {
+            var writer = new LogStreamWriter(out, format);
+            for (var app : apps) {
+                try (var reader = new BufferedReader(new InputStreamReader(LKApp.getRuntime().logs(app.dockerInstance(), minutes)))) {
+                    writer.write(app, reader);
+                } catch (IOException e) {
+                    writer.error(app, e.toString());
+                }
+            }
         });
-        System.out.println(logs.get(0));
     }
 
     /**
-     * Parse the logs to build a string, concatenating all the logs get in the given times.
+     * Get the logs of an app from the log store, or from docker when its logs are not followed.
+     * @param app the concern app to get the logs of
+     * @param minutes the number of minutes of logs to get
+     * @param onTimeout the registration of the docker logs stream, closed when the fetch is too long
+     * @return the app logs
+     * @throws IOException when docker can't be reached
+     */
+    private JsonResponses.AppLogs fetch(ApplicationData app, long minutes, Consumer<Closeable> onTimeout) throws IOException {
+        if (LKApp.getLogTailer().isFollowed(app.dockerInstance())) {
+            var since = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes);
+            return JsonResponses.AppLogs.of(app, LKApp.getLogStore().since(app.dockerInstance(), since).stream()
+                    .map(JsonResponses.Entry::of).collect(Collectors.toList()));
+        }
+        var stream = LKApp.getRuntime().logs(app.dockerInstance(), minutes);
+        onTimeout.accept(stream);
+        try (var reader = new BufferedReader(new InputStreamReader(stream))) {
+            return JsonResponses.AppLogs.of(app, parsingLogs(reader));
+        }
+    }
+
+    /**
+     * Parse the time given in the path.
+     * @param time the variable time, in minutes
+     * @return the number of minutes
+     * @throws LKArgumentsException when the time is not a positive number of minutes
+     */
+    private static long minutes(String time) {
+        try {
+            var minutes = Long.parseLong(time);
+            if (minutes < 0){ throw new NumberFormatException(); }
+            return minutes;
+        } catch (NumberFormatException e) {
+            throw new LKArgumentsException("Input format for time is a positive number of minutes, get : " + time);
+        }
+    }
+
+    /**
+     * Parse the logs, the stack traces are folded into their entry.
      * @param reader the text containing the logs
-     * @return a StringJoiner concatenating the logs
+     * @return the log entries
      * @throws IOException for the buffered reader
      */
-    private static StringJoiner parsingLogs(BufferedReader reader) throws IOException {
+    private static List<JsonResponses.Entry> parsingLogs(BufferedReader reader) throws IOException {
         Objects.requireNonNull(reader);
-        var sj = new StringJoiner("\n\t", "\n\tmessage :\n\t", "\n}");
-        for (var line = reader.readLine(); line != null; line = reader.readLine()){
-            var message = line.split("INFO .* : ");
-            if (message.length >= 2) {
-                sj.add("[" + message[0].substring(0, message[0].length() - 2) + "] : " + message[1]);
-            }
+        var entries = new ArrayList<JsonResponses.Entry>();
+        var springEntries = new SpringLogReader(reader);
+        for (var entry = springEntries.next(); entry != null; entry = springEntries.next()){
+            entries.add(JsonResponses.Entry.of(entry));
         }
-        return sj;
+        return entries;
     }
 
 }
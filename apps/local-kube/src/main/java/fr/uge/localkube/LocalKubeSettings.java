@@ -0,0 +1,446 @@
+package fr.uge.localkube;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+
+@Component
+public class LocalKubeSettings {
+    /**
+     * class which gives access to the 'localkube.*' settings (application.properties or -D system properties)
+     * @field lookup the function resolving a property name to its value (null when not set)
+     */
+    private final UnaryOperator<String> lookup;
+
+    /**
+     * Constructor of LocalKubeSettings reading the system properties (used outside of Spring)
+     */
+    public LocalKubeSettings(){
+        this(System::getProperty);
+    }
+
+    /**
+     * Constructor of LocalKubeSettings reading the Spring environment
+     * @param environment the Spring environment
+     */
+    @Autowired
+    public LocalKubeSettings(Environment environment){
+        this(requireNonNull(environment)::getProperty);
+    }
+
+    /**
+     * Constructor of LocalKubeSettings with a custom lookup function
+     * @param lookup the function resolving a property name to its value
+     */
+    public LocalKubeSettings(UnaryOperator<String> lookup){
+        this.lookup = requireNonNull(lookup);
+    }
+
+    /**
+     * get a property as a String
+     * @param name the property name
+     * @param defaultValue the value returned when the property is not set
+     * @return the property value
+     */
+    private String get(String name, String defaultValue){
+        var value = lookup.apply(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * get a property as a boolean
+     * @param name the property name
+     * @param defaultValue the value returned when the property is not set
+     * @return the property value
+     */
+    private boolean getBoolean(String name, boolean defaultValue){
+        return Boolean.parseBoolean(get(name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * get a property as an int
+     * @param name the property name
+     * @param defaultValue the value returned when the property is not set
+     * @return the property value
+     * @throws LKArgumentsException when the value is not a positive integer
+     */
+    private int getInt(String name, int defaultValue){
+        var value = get(name, String.valueOf(defaultValue));
+        try {
+            var parsed = Integer.parseInt(value.trim());
+            if (parsed <= 0){ throw new NumberFormatException(); }
+            return parsed;
+        } catch (NumberFormatException e){
+            throw new LKArgumentsException("Property " + name + " should be a positive integer, get : " + value);
+        }
+    }
+
+    /**
+     * the base image of every app image
+     * @return the base image reference, "openjdk:15" by default
+     */
+    public String baseImage(){
+        return get("localkube.base-image.name", "openjdk:15");
+    }
+
+    /**
+     * the directory where the pre-fetched base images are stored as tar
+     * @return the base image store directory
+     */
+    public Path baseImageDirectory(){
+        return Path.of(get("localkube.base-image.directory", "docker-images/base"));
+    }
+
+    /**
+     * the directory of the persistent Jib layer cache
+     * @return the layer cache directory
+     */
+    public Path layerCacheDirectory(){
+        return Path.of(get("localkube.jib.cache-directory", "docker-images/cache"));
+    }
+
+    /**
+     * tell if the base image must never be fetched from the registry
+     * @return true when LocalKube works offline
+     */
+    public boolean offline(){
+        return getBoolean("localkube.base-image.offline", false);
+    }
+
+    /**
+     * the number of threads building images for the asynchronous starts
+     * @return the number of build threads
+     */
+    public int buildThreads(){
+        return getInt("localkube.start.build-threads", 2);
+    }
+
+    /**
+     * the number of threads loading images in docker for the asynchronous starts
+     * @return the number of load threads
+     */
+    public int loadThreads(){
+        return getInt("localkube.start.load-threads", 2);
+    }
+
+    /**
+     * the number of threads running containers for the asynchronous starts
+     * @return the number of run threads
+     */
+    public int runThreads(){
+        return getInt("localkube.start.run-threads", 4);
+    }
+
+    /**
+     * the number of asynchronous start jobs kept in memory
+     * @return the number of retained jobs
+     */
+    public int retainedJobs(){
+        return getInt("localkube.start.retained-jobs", 1000);
+    }
+
+    /**
+     * the max number of builds, loads and runs at the same time of a batch start (/app/start/batch)
+     * @return the parallelism of the batch starts
+     */
+    public int batchParallelism(){
+        return getInt("localkube.start.batch-parallelism", 4);
+    }
+
+    /**
+     * the delay between two reconciliations of the auto-scale (/auto-scale/update)
+     * @return the tick in milliseconds
+     */
+    public int autoScaleTickMillis(){
+        return getInt("localkube.autoscale.tick-millis", 5000);
+    }
+
+    /**
+     * the number of last actions of the auto-scale kept in memory
+     * @return the number of retained actions
+     */
+    public int autoScaleRetainedActions(){
+        return getInt("localkube.autoscale.retained-actions", 50);
+    }
+
+    /**
+     * the number of parked containers kept warm per app ("name:size,name:size"), none by default
+     * @return a map (app name, number of parked containers)
+     * @throws LKArgumentsException when an entry is not "name:size" with a positive size
+     */
+    public Map<String, Integer> poolSizes(){
+        var value = get("localkube.pool.apps", "");
+        var sizes = new LinkedHashMap<String, Integer>();
+        for (var entry : value.split(",")){
+            if (entry.isBlank()){ continue; }
+            var colon = entry.indexOf(':');
+            try {
+                var size = Integer.parseInt(entry.substring(colon + 1).trim());
+                if (colon <= 0 || size <= 0 || entry.substring(0, colon).isBlank()){ throw new NumberFormatException(); }
+                sizes.put(entry.substring(0, colon).trim(), size);
+            } catch (NumberFormatException e){
+                throw new LKArgumentsException("Property localkube.pool.apps should be name:size,... with positive sizes, get : " + value);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * the number of containers of the warm pools built and run at the same time
+     * @return the number of refill threads
+     */
+    public int poolThreads(){
+        return getInt("localkube.pool.threads", 2);
+    }
+
+    /**
+     * the host the ports of the instances are published on, for the health probes
+     * @return the host of the probes
+     */
+    public String healthHost(){
+        return get("localkube.health.host", "localhost");
+    }
+
+    /**
+     * the path of the health probes (ex: '/app/hello' for helloWorld)
+     * @return the path of the probes
+     */
+    public String healthPath(){
+        var path = get("localkube.health.path", "/");
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
+    /**
+     * the delay between two rounds of health probes
+     * @return the interval in milliseconds
+     */
+    public int healthIntervalMillis(){
+        return getInt("localkube.health.interval-millis", 5000);
+    }
+
+    /**
+     * the max duration of a health probe (connection and answer)
+     * @return the timeout in milliseconds
+     */
+    public int healthTimeoutMillis(){
+        return getInt("localkube.health.timeout-millis", 2000);
+    }
+
+    /**
+     * the number of failed health probes in a row making an instance unhealthy
+     * @return the number of failures
+     */
+    public int healthFailures(){
+        return getInt("localkube.health.failures", 3);
+    }
+
+    /**
+     * the time given to a new instance to start serving, its failed probes do not make it unhealthy before
+     * @return the grace period in seconds
+     */
+    public int healthGraceSeconds(){
+        return getInt("localkube.health.grace-seconds", 60);
+    }
+
+    /**
+     * tell if the unhealthy instances are replaced (stopped, removed and started again on the same port)
+     * @return true when the unhealthy instances are replaced
+     */
+    public boolean healthReplace(){
+        return getBoolean("localkube.health.replace", false);
+    }
+
+    /**
+     * the number of threads of the asynchronous client sending the health probes
+     * @return the number of probe threads
+     */
+    public int healthThreads(){
+        return getInt("localkube.health.threads", 2);
+    }
+
+    /**
+     * where the images of the apps are built: 'tar' (a tar in docker-images/, then docker load) or 'daemon' (streamed
+     * into the docker daemon, never written on disk)
+     * @return the target of the images
+     */
+    public String imageTarget(){
+        return get("localkube.image.target", "tar");
+    }
+
+    /**
+     * the way LocalKube talks to docker: 'cli', 'engine' (Engine API) or 'auto' (the Engine API if it answers)
+     * @return the docker runtime
+     */
+    public String dockerRuntime(){
+        return get("localkube.docker.runtime", "auto");
+    }
+
+    /**
+     * the docker host of the Engine API, DOCKER_HOST or the default unix socket
+     * @return the docker host
+     */
+    public String dockerHost(){
+        var env = System.getenv("DOCKER_HOST");
+        return get("localkube.docker.host", env == null ? "unix:///var/run/docker.sock" : env);
+    }
+
+    /**
+     * the first delay before reconnecting to the docker events, doubled after each failure (up to 30s)
+     * @return the delay in milliseconds
+     */
+    public int dockerEventsReconnectMillis(){
+        return getInt("localkube.docker.events-reconnect-millis", 1000);
+    }
+
+    /**
+     * the max number of apps (running or stopped) at the same time
+     * @return the max number of apps, unbounded by default
+     */
+    public int maxApps(){
+        return getInt("localkube.apps.max", Integer.MAX_VALUE);
+    }
+
+    /**
+     * tell if the registry of the apps is kept on disk (journal and snapshot), replayed at boot
+     * @return true by default
+     */
+    public boolean registryEnabled(){
+        return getBoolean("localkube.registry.enabled", true);
+    }
+
+    /**
+     * the directory of the journal and of the snapshot of the registry
+     * @return the directory, "registry" by default
+     */
+    public Path registryDirectory(){
+        return Path.of(get("localkube.registry.directory", "registry"));
+    }
+
+    /**
+     * the number of records of the journal after which a snapshot of the registry is written
+     * @return the snapshot interval
+     */
+    public int registrySnapshotEvery(){
+        return getInt("localkube.registry.snapshot-every", 1000);
+    }
+
+    /**
+     * tell if the running apps are left running when LocalKube ends, to be reattached at the next boot
+     * @return false by default (the running apps are stopped)
+     */
+    public boolean registryDetachOnExit(){
+        return getBoolean("localkube.registry.detach-on-exit", false);
+    }
+
+    /**
+     * the first port given to the apps started without port
+     * @return the first port of the pool
+     */
+    public int firstPort(){
+        return getInt("localkube.ports.first", 8081);
+    }
+
+    /**
+     * the last port given to the apps started without port
+     * @return the last port of the pool
+     */
+    public int lastPort(){
+        return getInt("localkube.ports.last", 9080);
+    }
+
+    /**
+     * the max number of containers stopped or removed at the same time by a bulk request
+     * @return the parallelism of the bulk operations
+     */
+    public int bulkParallelism(){
+        return getInt("localkube.bulk.parallelism", 16);
+    }
+
+    /**
+     * the max duration of the stop or the removal of one container by a bulk request
+     * @return the timeout in seconds
+     */
+    public int bulkTimeoutSeconds(){
+        return getInt("localkube.bulk.timeout-seconds", 30);
+    }
+
+    /**
+     * the directory of the log store, which has one SQLite database per app
+     * @return the path of the directory
+     */
+    public Path logDirectory(){
+        return Path.of(get("localkube.logs.directory", "logs/apps"));
+    }
+
+    /**
+     * the number of days of logs kept by the log store
+     * @return the retention in days
+     */
+    public int logRetentionDays(){
+        return getInt("localkube.logs.retention-days", 7);
+    }
+
+    /**
+     * the max size used by the logs of all the apps, the oldest days are dropped above it
+     * @return the size cap in megabytes
+     */
+    public int logMaxSizeMb(){
+        return getInt("localkube.logs.max-size-mb", 1024);
+    }
+
+    /**
+     * the delay between two checks of the retention of the logs
+     * @return the delay in seconds
+     */
+    public int logRetentionCheckSeconds(){
+        return getInt("localkube.logs.retention-check-seconds", 60);
+    }
+
+    /**
+     * the max number of pages given back to the file system by one step of the incremental vacuum
+     * @return the number of pages
+     */
+    public int logVacuumPages(){
+        return getInt("localkube.logs.vacuum-pages", 256);
+    }
+
+    /**
+     * the max number of log lines appended to the store at once
+     * @return the size of the batches
+     */
+    public int logBatchSize(){
+        return getInt("localkube.logs.batch-size", 500);
+    }
+
+    /**
+     * the max time a followed log line waits before being appended to the store
+     * @return the delay in milliseconds
+     */
+    public int logFlushMillis(){
+        return getInt("localkube.logs.flush-millis", 200);
+    }
+
+    /**
+     * the max number of apps whose logs are fetched at the same time by a /logs request
+     * @return the parallelism of the fetches
+     */
+    public int logFetchParallelism(){
+        return getInt("localkube.logs.fetch-parallelism", 8);
+    }
+
+    /**
+     * the max duration of the fetch of the logs of one app by a /logs request
+     * @return the timeout in seconds
+     */
+    public int logFetchTimeoutSeconds(){
+        return getInt("localkube.logs.fetch-timeout-seconds", 10);
+    }
+}
@@ -0,0 +1,162 @@
+package fr.uge.localkube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class LogFetcher {
+    /**
+     * class which fetches the logs of many apps at the same time, with a bounded parallelism and a timeout for each app
+     * (the time spent waiting for a thread is not counted): the logs of an app which fails or is too long are replaced
+     * by an error, the others are still given, in the order of the apps. A fetch which is too long is interrupted and
+     * the streams it registered are closed, so it gives its thread back
+     * @field executor the executor running the fetches
+     * @field watchdog the executor ending the fetches which take too long
+     * @field parallelism the max number of apps fetched at the same time
+     * @field timeoutMillis the max duration of the fetch of one app
+     */
+    @FunctionalInterface
+    public interface Fetch<T> {
+        /**
+         * fetch the logs of an app
+         * @param app the app
+         * @param onTimeout the registration of a stream (or a process) to close when the fetch is too long
+         * @return the logs of the app
+         * @throws IOException when the logs can't be read
+         */
+        T apply(ApplicationData app, Consumer<Closeable> onTimeout) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final int parallelism;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor of LogFetcher
+     * @param settings the LocalKube settings (parallelism and timeout of the fetches)
+     */
+    public LogFetcher(LocalKubeSettings settings){
+        this(settings.logFetchParallelism(), TimeUnit.SECONDS.toMillis(settings.logFetchTimeoutSeconds()));
+    }
+
+    /**
+     * Constructor of LogFetcher
+     * @param parallelism the max number of apps fetched at the same time
+     * @param timeoutMillis the max duration of the fetch of one app
+     * @throws LKArgumentsException when the parallelism or the timeout is not positive
+     */
+    public LogFetcher(int parallelism, long timeoutMillis){
+        if (parallelism <= 0){ throw new LKArgumentsException("Parallelism cannot be <= 0, " + parallelism); }
+        if (timeoutMillis <= 0){ throw new LKArgumentsException("Timeout cannot be <= 0, " + timeoutMillis); }
+        var counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> daemon(r, "lk-logs-" + counter.incrementAndGet()));
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "lk-logs-watchdog"));
+        this.parallelism = parallelism;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * create a daemon thread, so a pending fetch never blocks the exit
+     * @param r the code of the thread
+     * @param name the name of the thread
+     * @return the thread
+     */
+    private static Thread daemon(Runnable r, String name){
+        var thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * fetch the logs of apps and wait for all of them, at most the time of the fetches one after the other on each
+     * thread plus one timeout (a fetch which is not over at this deadline is given up)
+     * @param apps the apps
+     * @param fetch the fetch of the logs of one app
+     * @param error the error of an app, from the app and the error message
+     * @param <T> the type of the logs of an app
+     * @return the logs of each app, in the order of the apps
+     * @throws InterruptedException when interrupted while waiting for the logs
+     */
+    public <T> List<T> fetch(List<ApplicationData> apps, Fetch<? extends T> fetch, BiFunction<ApplicationData, String, ? extends T> error)
+            throws InterruptedException {
+        requireNonNull(apps);
+        requireNonNull(fetch);
+        requireNonNull(error);
+        var rounds = (apps.size() + parallelism - 1) / parallelism;
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) * (rounds + 1);
+        var futures = new ArrayList<CompletableFuture<T>>(apps.size());
+        for (var app : apps){
+            futures.add(submit(app, fetch));
+        }
+        var logs = new ArrayList<T>(apps.size());
+        for (var i = 0; i < apps.size(); i++){
+            var future = futures.get(i);
+            try {
+                logs.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                logs.add(error.apply(apps.get(i), "timeout after " + timeoutMillis + "ms"));
+            } catch (ExecutionException e) {
+                var cause = e.getCause();
+                logs.add(error.apply(apps.get(i), cause instanceof TimeoutException ? "timeout after " + timeoutMillis + "ms" : cause.toString()));
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * submit the fetch of an app, its future fails with a TimeoutException when the fetch is too long: the fetch is then
+     * interrupted and its registered streams are closed, a cancel of the future before the start skips the fetch
+     * @param app the app
+     * @param fetch the fetch of the logs of one app
+     * @param <T> the type of the logs of an app
+     * @return the future logs of the app
+     */
+    private <T> CompletableFuture<T> submit(ApplicationData app, Fetch<? extends T> fetch){
+        var future = new CompletableFuture<T>();
+        var streams = new ConcurrentLinkedQueue<Closeable>();
+        var task = new CompletableFuture<Future<?>>();
+        future.whenComplete((logs, e) -> {
+            if (e instanceof TimeoutException || e instanceof CancellationException){
+                task.thenAccept(running -> running.cancel(true));
+                streams.forEach(LogFetcher::close);
+            }
+        });
+        task.complete(executor.submit(() -> {
+            if (future.isDone()){ return; }
+            var alarm = watchdog.schedule(() -> future.completeExceptionally(new TimeoutException()), timeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                future.complete(fetch.apply(app, stream -> {
+                    streams.add(stream);
+                    if (future.isDone()){ close(stream); }
+                }));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                alarm.cancel(false);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * close a stream of a fetch, a failure is ignored (the fetch is already given up)
+     * @param stream the stream
+     */
+    private static void close(Closeable stream){
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // the fetch is over
+        }
+    }
+}
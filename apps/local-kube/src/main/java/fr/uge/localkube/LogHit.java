@@ -0,0 +1,33 @@
+package fr.uge.localkube;
+
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+public record LogHit(LogLine line, double rank) {
+    /**
+     * record which represent a log line found by a full-text search
+     * @field line the log line
+     * @field rank the bm25 rank of the line, the lower the better
+     */
+
+    /**
+     * Constructor for LogHit
+     * @param line the log line
+     * @param rank the bm25 rank of the line
+     */
+    public LogHit {
+        requireNonNull(line);
+    }
+
+    /**
+     * string format (json format) of a hit
+     * @return the json hit format
+     */
+    @Override
+    public String toString(){
+        return "{\n\tapp:" + line.app() + ",\n\tdocker-instance:" + line.instance() + ",\n\ttime:" + line.time()
+                + ",\n\tlevel:" + line.level() + ",\n\tmessage:" + line.message()
+                + ",\n\trank:" + String.format(Locale.ROOT, "%.3f", rank) + "\n}";
+    }
+}
@@ -0,0 +1,61 @@
+package fr.uge.localkube;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static java.util.Objects.requireNonNull;
+
+public record LogLine(String app, String instance, long ts, String level, String message) {
+    /**
+     * record which represent a log line of an app, as stored in the log store
+     * @field TIME the format of the time written by Spring Boot at the start of a log line
+     * @field app the short app name
+     * @field instance the docker instance of the app
+     * @field ts the epoch millisecond of the line
+     * @field level the level of the line (INFO, WARN, ...)
+     * @field message the message of the line
+     */
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Constructor for LogLine
+     * @param app the short app name
+     * @param instance the docker instance of the app
+     * @param ts the epoch millisecond of the line
+     * @param level the level of the line
+     * @param message the message of the line
+     * @throws LKArgumentsException when the timestamp is negative
+     */
+    public LogLine {
+        requireNonNull(app);
+        requireNonNull(instance);
+        requireNonNull(level);
+        requireNonNull(message);
+        if (ts < 0){ throw new LKArgumentsException("Timestamp cannot be < 0, " + ts); }
+    }
+
+    /**
+     * read the time written at the start of a log line
+     * @param time the time, on Spring Boot format (yyyy-MM-dd HH:mm:ss.SSS, local time)
+     * @param defaultTs the epoch millisecond to use when the time can't be read
+     * @return the epoch millisecond of the time
+     */
+    public static long parseTime(String time, long defaultTs){
+        try {
+            return LocalDateTime.parse(requireNonNull(time), TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return defaultTs;
+        }
+    }
+
+    /**
+     * the time of the line, on Spring Boot format
+     * @return the local time of the line
+     */
+    public String time(){
+        return TIME.format(Instant.ofEpochMilli(ts).atZone(ZoneId.systemDefault()));
+    }
+}
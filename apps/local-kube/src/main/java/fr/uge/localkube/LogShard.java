@@ -0,0 +1,339 @@
+package fr.uge.localkube;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.JdbiException;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class LogShard {
+    /**
+     * class which keeps the log lines of one app in its own SQLite database (WAL journal, incremental auto vacuum),
+     * with one table per day (UTC) and its FTS5 index of the messages: the retention drops whole tables and the freed
+     * pages are given back to the file by small incremental vacuum steps
+     * @field DAY the format of the day in the name of a table
+     * @field PREFIX the prefix of the name of the tables
+     * @field TABLES the pattern (GLOB) of the names of the day tables
+     * @field FTS the suffix of the name of the full-text index of a day table
+     * @field READERS the max number of idle read connections kept by a shard
+     * @field app the short app name
+     * @field file the database file
+     * @field writer the connection of the appends, the drops and the vacuum steps
+     * @field reader the read-only access to the database
+     * @field readers the idle read connections, reused by the reads instead of opening a connection per query
+     * @field days the days having a table
+     * @field vacuumPending true when dropped tables left free pages in the file
+     * @field closed true once the shard is closed, the read connections given back after are closed
+     */
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String PREFIX = "log_";
+    private static final String TABLES = PREFIX + "[0-9][0-9][0-9][0-9][0-9][0-9][0-9][0-9]";
+    private static final String FTS = "_fts";
+    private static final int READERS = 4;
+
+    private final String app;
+    private final Path file;
+    private final Handle writer;
+    private final Jdbi reader;
+    private final ArrayBlockingQueue<Handle> readers = new ArrayBlockingQueue<>(READERS);
+    private final ConcurrentSkipListSet<LocalDate> days = new ConcurrentSkipListSet<>();
+    private boolean vacuumPending = true;
+    private volatile boolean closed;
+
+    /**
+     * Constructor of LogShard, the database is created if it does not exist
+     * @param app the short app name
+     * @param file the database file
+     */
+    public LogShard(String app, Path file){
+        this.app = requireNonNull(app);
+        this.file = requireNonNull(file);
+        var config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(5_000);
+        writer = Jdbi.create(dataSource(config)).open();
+        if (writer.createQuery("PRAGMA auto_vacuum").mapTo(int.class).one() != 2){
+            writer.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            writer.execute("VACUUM");   // only a new or a former database is rebuilt, to turn the incremental vacuum on
+        }
+        writer.createQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name GLOB '" + TABLES + "'")
+                .mapTo(String.class).forEach(name -> days.add(LocalDate.parse(name.substring(PREFIX.length()), DAY)));
+        for (var day : days){
+            writer.useTransaction(handle -> createIndex(handle, table(day)));
+        }
+        var readOnly = new SQLiteConfig();
+        readOnly.setReadOnly(true);   // the WAL mode is kept by the file, the writer has set it
+        readOnly.setBusyTimeout(5_000);
+        reader = Jdbi.create(dataSource(readOnly));
+    }
+
+    /**
+     * the data source of the database file
+     * @param config the configuration of the connections
+     * @return the data source
+     */
+    private SQLiteDataSource dataSource(SQLiteConfig config){
+        var dataSource = new SQLiteDataSource(config);
+        dataSource.setUrl("jdbc:sqlite:" + file);
+        return dataSource;
+    }
+
+    /**
+     * run a read in a transaction of an idle read connection, a connection is opened when none is idle
+     * and is kept for the next reads when there are less than READERS idle connections
+     * @param callback the read
+     * @param <T> the type of the result
+     * @return the result of the read
+     */
+    private <T> T read(HandleCallback<T, RuntimeException> callback){
+        var handle = readers.poll();
+        if (handle == null){ handle = reader.open(); }
+        try {
+            return handle.inTransaction(callback);
+        } finally {
+            if (!readers.offer(handle)){ handle.close(); }
+            if (closed){ closeReaders(); }
+        }
+    }
+
+    /**
+     * close the idle read connections
+     */
+    private void closeReaders(){
+        for (var handle = readers.poll(); handle != null; handle = readers.poll()){
+            handle.close();
+        }
+    }
+
+    /**
+     * create the full-text index of a day table if it does not exist, the lines already in the table are indexed
+     * @param handle the connection
+     * @param table the day table
+     */
+    private static void createIndex(Handle handle, String table){
+        var exists = handle.createQuery("SELECT count(*) FROM sqlite_master WHERE name = :name")
+                .bind("name", table + FTS).mapTo(int.class).one() > 0;
+        if (exists){ return; }
+        handle.execute("CREATE VIRTUAL TABLE " + table + FTS + " USING fts5(message, content='" + table + "', content_rowid='rowid')");
+        handle.execute("CREATE TRIGGER " + table + "_index AFTER INSERT ON " + table
+                + " BEGIN INSERT INTO " + table + FTS + "(rowid, message) VALUES (new.rowid, new.message); END");
+        handle.execute("INSERT INTO " + table + FTS + "(" + table + FTS + ") VALUES ('rebuild')");
+    }
+
+    /**
+     * the day of a timestamp
+     * @param ts the epoch millisecond
+     * @return the UTC day
+     */
+    private static LocalDate day(long ts){
+        return Instant.ofEpochMilli(ts).atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    /**
+     * the name of the table of a day
+     * @param day the day
+     * @return the table name
+     */
+    private static String table(LocalDate day){
+        return PREFIX + DAY.format(day);
+    }
+
+    /**
+     * the short app name
+     * @return the app of the shard
+     */
+    public String app(){
+        return app;
+    }
+
+    /**
+     * the database file
+     * @return the file of the shard
+     */
+    public Path file(){
+        return file;
+    }
+
+    /**
+     * the days having a table
+     * @return the days, oldest first
+     */
+    public List<LocalDate> days(){
+        return List.copyOf(days);
+    }
+
+    /**
+     * append log lines of the app, each one in the table of its day, in one transaction
+     * @param lines the lines to append
+     */
+    public synchronized void append(List<LogLine> lines){
+        requireNonNull(lines);
+        var perDay = lines.stream().collect(Collectors.groupingBy(line -> day(line.ts()), TreeMap::new, Collectors.toList()));
+        writer.useTransaction(handle -> {
+            for (Map.Entry<LocalDate, List<LogLine>> entry : perDay.entrySet()){
+                var table = table(entry.getKey());
+                if (!days.contains(entry.getKey())){
+                    handle.execute("CREATE TABLE IF NOT EXISTS " + table + " (instance VARCHAR NOT NULL, "
+                            + "ts INTEGER NOT NULL, level VARCHAR NOT NULL, message VARCHAR NOT NULL)");
+                    handle.execute("CREATE INDEX IF NOT EXISTS " + table + "_instance_ts ON " + table + "(instance, ts)");
+                    createIndex(handle, table);
+                }
+                var batch = handle.prepareBatch("INSERT INTO " + table + "(instance, ts, level, message) VALUES (?, ?, ?, ?)");
+                for (var line : entry.getValue()){
+                    batch.add(line.instance(), line.ts(), line.level(), line.message());
+                }
+                batch.execute();
+            }
+        });
+        days.addAll(perDay.keySet());
+    }
+
+    /**
+     * get the log lines of an instance of the app since a time, in the order of the lines
+     * @param instance the docker instance
+     * @param since the epoch millisecond of the first lines to get
+     * @return the log lines
+     */
+    public List<LogLine> since(String instance, long since){
+        requireNonNull(instance);
+        return read(handle -> {
+            // the tables are listed in the transaction, so a table dropped meanwhile is still seen by the query
+            var tables = tables(handle, since, Long.MAX_VALUE);
+            var lines = new ArrayList<LogLine>();
+            for (var table : tables){
+                handle.createQuery("SELECT instance, ts, level, message FROM " + table
+                                + " WHERE instance = :instance AND ts >= :since ORDER BY ts, rowid")
+                        .bind("instance", instance).bind("since", since)
+                        .map((rs, ctx) -> new LogLine(app, rs.getString("instance"), rs.getLong("ts"),
+                                rs.getString("level"), rs.getString("message")))
+                        .forEach(lines::add);
+            }
+            return lines;
+        });
+    }
+
+    /**
+     * list the day tables of a time range, to be called in a read transaction
+     * @param handle the connection
+     * @param from the epoch millisecond of the start of the range
+     * @param to the epoch millisecond of the end of the range
+     * @return the names of the tables, oldest first
+     */
+    private static List<String> tables(Handle handle, long from, long to){
+        var first = day(from);
+        var last = day(to);
+        return handle.createQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name GLOB '" + TABLES + "' ORDER BY name")
+                .mapTo(String.class).list().stream()
+                .filter(name -> {
+                    var day = LocalDate.parse(name.substring(PREFIX.length()), DAY);
+                    return !day.isBefore(first) && !day.isAfter(last);
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * search the messages of the app with a full-text query, each day gives its best 'limit' hits
+     * @param query the FTS5 query (terms, "phrases", AND, OR, NOT, prefix*)
+     * @param instance the docker instance to search, null to search all the instances
+     * @param level the level to search, null to search all the levels
+     * @param from the epoch millisecond of the start of the range
+     * @param to the epoch millisecond of the end of the range
+     * @param limit the max number of hits of each day
+     * @return the hits, best first in each day
+     * @throws LKArgumentsException when the query is not a valid FTS5 query
+     */
+    public List<LogHit> search(String query, String instance, String level, long from, long to, int limit){
+        requireNonNull(query);
+        try {
+            return read(handle -> {
+                var hits = new ArrayList<LogHit>();
+                for (var table : tables(handle, from, to)){
+                    var fts = table + FTS;
+                    var select = handle.createQuery("SELECT t.instance, t.ts, t.level, t.message, " + fts + ".rank AS score FROM " + fts
+                                    + " JOIN " + table + " t ON t.rowid = " + fts + ".rowid"
+                                    + " WHERE " + fts + " MATCH :query AND t.ts BETWEEN :from AND :to"
+                                    + (instance == null ? "" : " AND t.instance = :instance")
+                                    + (level == null ? "" : " AND t.level = :level")
+                                    + " ORDER BY " + fts + ".rank LIMIT :limit")
+                            .bind("query", query).bind("from", from).bind("to", to).bind("limit", limit);
+                    if (instance != null){ select.bind("instance", instance); }
+                    if (level != null){ select.bind("level", level); }
+                    select.map((rs, ctx) -> new LogHit(new LogLine(app, rs.getString("instance"), rs.getLong("ts"),
+                                    rs.getString("level"), rs.getString("message")), rs.getDouble("score")))
+                            .forEach(hits::add);
+                }
+                return hits;
+            });
+        } catch (JdbiException e) {
+            // the query is the only part of the statement given by the client, a plain SQL error comes from it
+            if (e.getCause() instanceof SQLiteException && ((SQLiteException) e.getCause()).getResultCode() == SQLiteErrorCode.SQLITE_ERROR){
+                throw new LKArgumentsException("Invalid search query : " + query);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * drop the table of a day
+     * @param day the day
+     */
+    public synchronized void drop(LocalDate day){
+        requireNonNull(day);
+        if (!days.remove(day)){ return; }
+        writer.useTransaction(handle -> {
+            handle.execute("DROP TABLE IF EXISTS " + table(day) + FTS);
+            handle.execute("DROP TABLE IF EXISTS " + table(day));
+        });
+        vacuumPending = true;
+    }
+
+    /**
+     * the size of the pages used by the lines, the free pages left by the dropped tables are not counted
+     * @return the used size in bytes
+     */
+    public synchronized long usedBytes(){
+        var pages = writer.createQuery("PRAGMA page_count").mapTo(long.class).one();
+        var free = writer.createQuery("PRAGMA freelist_count").mapTo(long.class).one();
+        var size = writer.createQuery("PRAGMA page_size").mapTo(long.class).one();
+        return (pages - free) * size;
+    }
+
+    /**
+     * give at most 'pages' free pages back to the file system
+     * @param pages the max number of pages of the step
+     */
+    public synchronized void vacuumStep(int pages){
+        if (!vacuumPending){ return; }
+        writer.execute("PRAGMA incremental_vacuum(" + pages + ")");
+        vacuumPending = writer.createQuery("PRAGMA freelist_count").mapTo(long.class).one() > 0;
+    }
+
+    /**
+     * close the connections of the shard
+     */
+    public synchronized void close(){
+        closed = true;
+        closeReaders();
+        writer.close();
+    }
+}
@@ -0,0 +1,249 @@
+package fr.uge.localkube;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class LogStore {
+    /**
+     * class which keeps the log lines of the apps, only appended, partitioned by app (one SQLite file per app)
+     * and by day (one table per day in the file of the app): the apps do not share a write lock and the retention
+     * (TTL and size cap) drops whole days, the oldest first
+     * @field directory the directory of the files of the apps
+     * @field retentionDays the number of days kept
+     * @field maxBytes the max size used by the lines of all the apps
+     * @field checkMillis the delay between two checks of the retention
+     * @field vacuumPages the max number of pages given back by a vacuum step of a file
+     * @field shards a map (app, shard) of the apps having logs
+     * @field nextCheck the epoch millisecond of the next check of the retention
+     * @field dropped the number of days dropped by the retention
+     * @field lines the number of lines appended
+     * @field batches the number of batches appended
+     * @field nanos the time spent appending
+     */
+    private final Path directory;
+    private final int retentionDays;
+    private final long maxBytes;
+    private final long checkMillis;
+    private final int vacuumPages;
+    private final ConcurrentHashMap<String, LogShard> shards = new ConcurrentHashMap<>();
+    private long nextCheck;
+    private long dropped;
+    private long lines;
+    private long batches;
+    private long nanos;
+
+    /**
+     * Constructor of LogStore
+     * @param settings the LocalKube settings (directory, retention and vacuum of the log store)
+     */
+    public LogStore(LocalKubeSettings settings){
+        this(settings.logDirectory(), settings.logRetentionDays(), settings.logMaxSizeMb() * 1024L * 1024L,
+                TimeUnit.SECONDS.toMillis(settings.logRetentionCheckSeconds()), settings.logVacuumPages());
+    }
+
+    /**
+     * Constructor of LogStore, the files already in the directory are opened
+     * @param directory the directory of the files of the apps
+     * @param retentionDays the number of days kept
+     * @param maxBytes the max size used by the lines of all the apps
+     * @param checkMillis the delay between two checks of the retention
+     * @param vacuumPages the max number of pages given back by a vacuum step of a file
+     * @throws LKArgumentsException when a limit is not positive
+     * @throws UncheckedIOException when the directory can't be created or read
+     */
+    public LogStore(Path directory, int retentionDays, long maxBytes, long checkMillis, int vacuumPages){
+        if (retentionDays <= 0 || maxBytes <= 0 || checkMillis <= 0 || vacuumPages <= 0){
+            throw new LKArgumentsException("Log retention limits cannot be <= 0, get : " + retentionDays + " days, "
+                    + maxBytes + " bytes, " + checkMillis + "ms, " + vacuumPages + " pages");
+        }
+        this.directory = requireNonNull(directory);
+        this.retentionDays = retentionDays;
+        this.maxBytes = maxBytes;
+        this.checkMillis = checkMillis;
+        this.vacuumPages = vacuumPages;
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".db"))
+                        .forEach(name -> shard(name.substring(0, name.length() - ".db".length())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * get the shard of an app, created if needed
+     * @param app the short app name
+     * @return the shard
+     */
+    private LogShard shard(String app){
+        return shards.computeIfAbsent(app, name -> new LogShard(name, directory.resolve(name.replaceAll("[^A-Za-z0-9_.-]", "_") + ".db")));
+    }
+
+    /**
+     * append log lines, the lines of each app in one transaction of its file
+     * @param lines the lines to append
+     */
+    public synchronized void append(List<LogLine> lines){
+        requireNonNull(lines);
+        if (lines.isEmpty()){ return; }
+        var start = System.nanoTime();
+        lines.stream().collect(Collectors.groupingBy(LogLine::app)).forEach((app, appLines) -> shard(app).append(appLines));
+        nanos += System.nanoTime() - start;
+        this.lines += lines.size();
+        batches++;
+    }
+
+    /**
+     * get the log lines of an app since a time, in the order of the lines
+     * @param instance the docker instance of the app
+     * @param since the epoch millisecond of the first lines to get
+     * @return the log lines
+     */
+    public List<LogLine> since(String instance, long since){
+        requireNonNull(instance);
+        var shard = shards.get(instance.split("-")[0]);
+        return shard == null ? List.of() : shard.since(instance, since);
+    }
+
+    /**
+     * search the messages with a full-text query, the hits of all the apps and days are merged by rank
+     * @param query the FTS5 query (terms, "phrases", AND, OR, NOT, prefix*)
+     * @param app the short app name to search, null to search all the apps
+     * @param instance the docker instance to search, null to search all the instances
+     * @param level the level to search, null to search all the levels
+     * @param from the epoch millisecond of the start of the range
+     * @param to the epoch millisecond of the end of the range
+     * @param page the index of the page, from 0
+     * @param size the number of hits of a page
+     * @return the hits of the page, best first
+     * @throws LKArgumentsException when the query, the page or the size is invalid
+     */
+    public List<LogHit> search(String query, String app, String instance, String level, long from, long to, int page, int size){
+        requireNonNull(query);
+        if (query.isBlank()){ throw new LKArgumentsException("The search query must not be empty"); }
+        if (page < 0 || size <= 0 || size > 1000){
+            throw new LKArgumentsException("Page should be >= 0 and size in [1, 1000], get : " + page + ", " + size);
+        }
+        var name = app != null ? app : instance != null ? instance.split("-")[0] : null;
+        var limit = (int) Math.min(Integer.MAX_VALUE, (page + 1L) * size);
+        return shards.values().stream()
+                .filter(shard -> name == null || shard.app().equals(name))
+                .flatMap(shard -> shard.search(query, instance, level, from, to, limit).stream())
+                .sorted(Comparator.comparingDouble(LogHit::rank).thenComparing(hit -> hit.line().ts()))
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * enforce the retention when its check is due, then give back some free pages of each file:
+     * to be called regularly by the writer of the lines, each call only does a short amount of work
+     * @param now the current epoch millisecond
+     */
+    public synchronized void maintain(long now){
+        if (now >= nextCheck){
+            nextCheck = now + checkMillis;
+            retain(now);
+        }
+        shards.values().forEach(shard -> shard.vacuumStep(vacuumPages));
+    }
+
+    /**
+     * drop the days older than the TTL, then the oldest days while the lines use more than the size cap
+     * @param now the current epoch millisecond
+     */
+    private void retain(long now){
+        var oldest = Instant.ofEpochMilli(now).atOffset(ZoneOffset.UTC).toLocalDate().minusDays(retentionDays - 1);
+        for (var shard : shards.values()){
+            for (var day : shard.days()){
+                if (day.isBefore(oldest)){ drop(shard, day); }
+            }
+        }
+        while (usedBytes() > maxBytes){
+            LogShard oldestShard = null;
+            LocalDate oldestDay = null;
+            for (var shard : shards.values()){
+                var days = shard.days();
+                if (!days.isEmpty() && (oldestDay == null || days.get(0).isBefore(oldestDay))){
+                    oldestShard = shard;
+                    oldestDay = days.get(0);
+                }
+            }
+            if (oldestShard == null){ return; }
+            drop(oldestShard, oldestDay);
+        }
+    }
+
+    /**
+     * drop a day of an app
+     * @param shard the shard of the app
+     * @param day the day
+     */
+    private void drop(LogShard shard, LocalDate day){
+        shard.drop(day);
+        dropped++;
+        System.out.println("Logs of " + shard.app() + " on " + day + " dropped by the retention");
+    }
+
+    /**
+     * the size used by the lines of all the apps
+     * @return the size in bytes
+     */
+    public long usedBytes(){
+        return shards.values().stream().mapToLong(LogShard::usedBytes).sum();
+    }
+
+    /**
+     * the ingest rate of the store
+     * @return the number of lines appended per second spent appending, 0 before the first append
+     */
+    public synchronized long rate(){
+        return nanos == 0 ? 0 : lines * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * close the files of all the apps, the store can't be used after
+     */
+    public synchronized void close(){
+        shards.values().forEach(LogShard::close);
+        shards.clear();
+    }
+
+    /**
+     * the statistics of the store
+     * @return the lines, batches, ingest rate, apps, partitions, dropped partitions and used size
+     */
+    public synchronized JsonResponses.Store stats(){
+        return new JsonResponses.Store(lines, batches, rate(), shards.size(),
+                shards.values().stream().mapToInt(shard -> shard.days().size()).sum(), dropped, usedBytes());
+    }
+
+    /**
+     * string format (json format) of the statistics of the store
+     * @return the json statistics format
+     */
+    @Override
+    public synchronized String toString(){
+        var stats = stats();
+        return "{\n\tlines:" + stats.lines() + ",\n\tbatches:" + stats.batches() + ",\n\trate:" + stats.rate() + " lines/s"
+                + ",\n\tapps:" + stats.apps()
+                + ",\n\tpartitions:" + stats.partitions()
+                + ",\n\tdropped:" + stats.dropped()
+                + ",\n\tused:" + stats.usedBytes() + " bytes\n}";
+    }
+}
@@ -0,0 +1,124 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class LogStreamWriter {
+    /**
+     * class which writes the log lines of apps to a response as soon as they are read, one json object per line:
+     * the memory used does not depend on the number of lines
+     * @field JSON the factory of the json generators (no separator between the root values, the format writes them)
+     * @field format the format of the stream (NDJSON or Server-Sent Events)
+     * @field generator the json generator writing on the response
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "", "\n"),
+        SSE("text/event-stream", "data: ", "\n\n");
+
+        private final String contentType;
+        private final String prefix;
+        private final String suffix;
+
+        Format(String contentType, String prefix, String suffix){
+            this.contentType = contentType;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        /**
+         * the content type of the format
+         * @return the media type
+         */
+        public String contentType(){
+            return contentType;
+        }
+
+        /**
+         * choose the format from the Accept header of a request
+         * @param accept the Accept header, null if there is none
+         * @return SSE if the client accepts an event stream, NDJSON otherwise
+         */
+        public static Format of(String accept){
+            return accept != null && accept.contains(SSE.contentType) ? SSE : NDJSON;
+        }
+    }
+
+    private static final JsonFactory JSON = new JsonFactoryBuilder().rootValueSeparator((String) null).build();
+
+    private final Format format;
+    private final JsonGenerator generator;
+
+    /**
+     * Constructor of LogStreamWriter
+     * @param out the stream of the response, it is not closed by the writer
+     * @param format the format of the stream
+     * @throws IOException when the json generator can't be created
+     */
+    public LogStreamWriter(OutputStream out, Format format) throws IOException {
+        this.format = requireNonNull(format);
+        generator = JSON.createGenerator(requireNonNull(out)).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * write the log entries of an app (with their stack traces), the response is flushed each time the reader would block
+     * @param app the app
+     * @param reader the logs of the app
+     * @throws IOException when the logs can't be read or the response can't be written
+     */
+    public void write(ApplicationData app, BufferedReader reader) throws IOException {
+        requireNonNull(app);
+        requireNonNull(reader);
+        var entries = new SpringLogReader(reader);
+        for (var entry = entries.next(); entry != null; entry = entries.next()){
+            generator.writeRaw(format.prefix);
+            generator.writeStartObject();
+            writeApp(app);
+            generator.writeStringField("time", entry.time());
+            generator.writeStringField("level", entry.level());
+            generator.writeStringField("thread", entry.thread());
+            generator.writeStringField("logger", entry.logger());
+            generator.writeStringField("message", entry.message());
+            generator.writeEndObject();
+            generator.writeRaw(format.suffix);
+            if (!entries.ready()){ generator.flush(); }
+        }
+        generator.flush();
+    }
+
+    /**
+     * write an error about an app instead of its logs
+     * @param app the app
+     * @param message the error message
+     * @throws IOException when the response can't be written
+     */
+    public void error(ApplicationData app, String message) throws IOException {
+        requireNonNull(app);
+        requireNonNull(message);
+        generator.writeRaw(format.prefix);
+        generator.writeStartObject();
+        writeApp(app);
+        generator.writeStringField("error", message);
+        generator.writeEndObject();
+        generator.writeRaw(format.suffix);
+        generator.flush();
+    }
+
+    /**
+     * write the fields of an app in the current object
+     * @param app the app
+     * @throws IOException when the response can't be written
+     */
+    private void writeApp(ApplicationData app) throws IOException {
+        generator.writeNumberField("id", app.id());
+        generator.writeStringField("app", app.app());
+        generator.writeStringField("docker-instance", app.dockerInstance());
+    }
+}
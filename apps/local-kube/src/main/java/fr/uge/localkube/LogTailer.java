@@ -0,0 +1,186 @@
+package fr.uge.localkube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class LogTailer {
+    /**
+     * class which follows the logs of the running containers in background and writes them in the log store by batches:
+     * one thread per followed container parses its lines, a single writer thread appends them to the store
+     * @field runtime the way to talk to docker
+     * @field store the log store
+     * @field batchSize the max number of lines appended at once
+     * @field flushMillis the max time a line waits before being appended
+     * @field queue the parsed lines waiting for the writer (bounded, a full queue slows the readers down)
+     * @field followers a map (docker instance, follower) of the followed containers
+     */
+    private static final class Follower {
+        /**
+         * class which is the thread following the logs of a container, with the stream it reads to end it
+         * @field thread the thread reading the logs
+         * @field stream the stream of the logs, null until it is opened
+         * @field stopped true when the follower is replaced
+         */
+        private Thread thread;
+        private InputStream stream;
+        private boolean stopped;
+
+        /**
+         * keep the stream of the logs, closed at once if the follower is already stopped
+         * @param stream the stream of the logs
+         * @return the stream
+         * @throws IOException when the stream can't be closed
+         */
+        private synchronized InputStream open(InputStream stream) throws IOException {
+            this.stream = stream;
+            if (stopped){ stream.close(); }
+            return stream;
+        }
+
+        /**
+         * tell if the follower is stopped
+         * @return true if the follower is replaced
+         */
+        private synchronized boolean isStopped(){
+            return stopped;
+        }
+
+        /**
+         * stop the follower: its thread is interrupted and its stream is closed, so a pending read ends
+         */
+        private synchronized void stop(){
+            stopped = true;
+            thread.interrupt();
+            if (stream != null){
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // the follower ends anyway
+                }
+            }
+        }
+    }
+
+    private final ContainerRuntime runtime;
+    private final LogStore store;
+    private final int batchSize;
+    private final long flushMillis;
+    private final BlockingQueue<LogLine> queue;
+    private final ConcurrentHashMap<String, Follower> followers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of LogTailer
+     * @param runtime the way to talk to docker
+     * @param store the log store
+     * @param settings the LocalKube settings (size and delay of the batches)
+     */
+    public LogTailer(ContainerRuntime runtime, LogStore store, LocalKubeSettings settings){
+        this(runtime, store, settings.logBatchSize(), settings.logFlushMillis());
+    }
+
+    /**
+     * Constructor of LogTailer, the writer thread is started
+     * @param runtime the way to talk to docker
+     * @param store the log store
+     * @param batchSize the max number of lines appended at once
+     * @param flushMillis the max time a line waits before being appended
+     * @throws LKArgumentsException when the batch size or the delay is not positive
+     */
+    public LogTailer(ContainerRuntime runtime, LogStore store, int batchSize, long flushMillis){
+        if (batchSize <= 0){ throw new LKArgumentsException("Batch size cannot be <= 0, " + batchSize); }
+        if (flushMillis <= 0){ throw new LKArgumentsException("Flush delay cannot be <= 0, " + flushMillis); }
+        this.runtime = requireNonNull(runtime);
+        this.store = requireNonNull(store);
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        queue = new LinkedBlockingQueue<>(batchSize * 16);
+        var writer = new Thread(this::write, "lk-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * follow the logs of the container of an app until it stops, a previous follower of the container is stopped
+     * and replaced (its lines are not given to the writer anymore)
+     * @param app the app
+     * @param since the epoch second of the first logs to get
+     */
+    public void follow(ApplicationData app, long since){
+        requireNonNull(app);
+        var instance = app.dockerInstance();
+        var follower = new Follower();
+        follower.thread = new Thread(() -> read(app, since, follower), "lk-tail-" + instance);
+        follower.thread.setDaemon(true);
+        var previous = followers.put(instance, follower);
+        if (previous != null){ previous.stop(); }
+        follower.thread.start();
+    }
+
+    /**
+     * tell if the logs of a container are followed
+     * @param instance the docker instance
+     * @return true if the container is followed
+     */
+    public boolean isFollowed(String instance){
+        return followers.containsKey(requireNonNull(instance));
+    }
+
+    /**
+     * read the logs of a container until their end or until the follower is stopped, and give the parsed lines to the writer
+     * @param app the app of the container
+     * @param since the epoch second of the first logs to get
+     * @param follower the follower reading the logs
+     */
+    private void read(ApplicationData app, long since, Follower follower){
+        var instance = app.dockerInstance();
+        try (var reader = new BufferedReader(new InputStreamReader(follower.open(runtime.follow(instance, since))))) {
+            var entries = new SpringLogReader(reader, true);
+            for (var entry = entries.next(); entry != null && !follower.isStopped(); entry = entries.next()){
+                var ts = LogLine.parseTime(entry.time(), System.currentTimeMillis());
+                queue.put(new LogLine(app.getNameApp(), instance, ts, entry.level(), entry.message()));
+            }
+        } catch (IOException e) {
+            if (!follower.isStopped()){
+                LKArgumentsException.report("Logs of " + instance + " are not followed anymore : " + e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(instance, follower);
+        }
+    }
+
+    /**
+     * append the waiting lines to the store, by batches of at most 'batchSize' lines,
+     * the maintenance of the store (retention and vacuum) is done between two batches
+     */
+    private void write(){
+        var batch = new ArrayList<LogLine>(batchSize);
+        for (;;) {
+            try {
+                var first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first != null){
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    store.append(batch);
+                }
+                store.maintain(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LKArgumentsException.report(batch.size() + " log lines lost : " + e);
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package fr.uge.localkube;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class PortPool {
+    /**
+     * class which assigns the ports of the apps started without port, from a range of the host ports
+     * @field first the first port of the range
+     * @field last the last port of the range
+     * @field taken the ports of the range already given (index 0 is the first port)
+     * @field cursor the index where the search of the next free port starts
+     * @field hostFree the check telling if a port is really free on the host
+     */
+    private final int first;
+    private final int last;
+    private final BitSet taken = new BitSet();
+    private int cursor;
+    private final IntPredicate hostFree;
+
+    /**
+     * Constructor of PortPool checking the host sockets
+     * @param first the first port of the range
+     * @param last the last port of the range
+     */
+    public PortPool(int first, int last){
+        this(first, last, PortPool::isFreeOnHost);
+    }
+
+    /**
+     * Constructor of PortPool
+     * @param first the first port of the range
+     * @param last the last port of the range
+     * @param hostFree the check telling if a port is really free on the host
+     * @throws LKArgumentsException when the range is not a valid range of ports for the apps
+     */
+    public PortPool(int first, int last, IntPredicate hostFree){
+        if (first <= 8080 || last > 65535 || first > last){
+            throw new LKArgumentsException("Port range should be in ]8080, 65535], get : " + first + "-" + last);
+        }
+        this.first = first;
+        this.last = last;
+        this.hostFree = requireNonNull(hostFree);
+    }
+
+    /**
+     * tell if a port can be bound on the host
+     * @param port the port
+     * @return true if nothing listens on the port
+     */
+    private static boolean isFreeOnHost(int port){
+        try (var socket = new ServerSocket()) {
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * give a free port of the range, the search starts after the last given port
+     * @return the port
+     * @throws LKArgumentsException when no port of the range is free
+     */
+    public synchronized int acquire(){
+        var size = last - first + 1;
+        var busy = new BitSet();
+        try {
+            for (var tries = 0; tries < size; tries++) {
+                var index = taken.nextClearBit(cursor);
+                if (index >= size){ index = taken.nextClearBit(0); }
+                if (index >= size){ break; }
+                taken.set(index);
+                cursor = index + 1 == size ? 0 : index + 1;
+                if (hostFree.test(first + index)){ return first + index; }
+                busy.set(index);
+            }
+        } finally {
+            taken.andNot(busy);
+        }
+        throw new LKArgumentsException("No free port in " + first + "-" + last);
+    }
+
+    /**
+     * mark a port chosen by the client as given, a port out of the range is ignored
+     * @param port the port
+     * @return false if the port was already given
+     */
+    public synchronized boolean reserve(int port){
+        if (port < first || port > last){ return true; }
+        if (taken.get(port - first)){ return false; }
+        taken.set(port - first);
+        return true;
+    }
+
+    /**
+     * give back a port, a port out of the range is ignored
+     * @param port the port
+     */
+    public synchronized void release(int port){
+        if (port >= first && port <= last){
+            taken.clear(port - first);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class RegistryJournal {
+    /**
+     * class which keeps the registry of the apps (ApplicationDataCreator) on disk: each mutation (add, stop, kill,
+     * bump of the instance counter of an app) is appended to a journal as a json line, and every 'snapshotEvery'
+     * records the whole registry is written to a snapshot (atomically replaced) and the journal is emptied. At boot,
+     * the snapshot then the journal are replayed, so LocalKube remembers its apps and never reuses an instance name.
+     * A record is flushed to the system when appended (it survives a crash of LocalKube), a snapshot is forced to the disk
+     * @field MAPPER the writer and reader of the records
+     * @field journal the path of the journal
+     * @field snapshot the path of the snapshot
+     * @field snapshotEvery the number of records after which a snapshot is written
+     * @field writer the writer of the journal
+     * @field records the number of records in the journal
+     * @field appended the number of appended records
+     * @field snapshots the number of written snapshots
+     * @field replayed the number of records replayed at boot
+     * @field replayMillis the time of the replay at boot
+     * @field error the last error of a write, null if there is none
+     */
+    public interface Target {
+        /**
+         * replay the add of a running app
+         * @param app the app
+         */
+        void added(ApplicationData app);
+
+        /**
+         * replay the stop of an app
+         * @param id the app id
+         */
+        void stopped(int id);
+
+        /**
+         * replay the kill of a stopped app
+         * @param id the app id
+         */
+        void killed(int id);
+
+        /**
+         * replay the instance counter of an app
+         * @param name the app name (short)
+         * @param count the last instance number given to the app
+         */
+        void counted(String name, int count);
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path journal;
+    private final Path snapshot;
+    private final int snapshotEvery;
+    private BufferedWriter writer;
+    private int records;
+    private long appended;
+    private long snapshots;
+    private long replayed;
+    private long replayMillis;
+    private String error;
+
+    /**
+     * Constructor of RegistryJournal
+     * @param settings the LocalKube settings (directory and snapshot interval of the registry)
+     */
+    public RegistryJournal(LocalKubeSettings settings){
+        this(settings.registryDirectory(), settings.registrySnapshotEvery());
+    }
+
+    /**
+     * Constructor of RegistryJournal, the journal is opened to append records after the existing ones
+     * @param directory the directory of the journal and of the snapshot
+     * @param snapshotEvery the number of records after which a snapshot is written
+     * @throws LKArgumentsException when the snapshot interval is not positive
+     * @throws UncheckedIOException when the directory can't be created or the journal can't be opened
+     */
+    public RegistryJournal(Path directory, int snapshotEvery){
+        if (snapshotEvery <= 0){ throw new LKArgumentsException("Snapshot interval cannot be <= 0, " + snapshotEvery); }
+        requireNonNull(directory);
+        journal = directory.resolve("journal.jsonl");
+        snapshot = directory.resolve("snapshot.jsonl");
+        this.snapshotEvery = snapshotEvery;
+        try {
+            Files.createDirectories(directory);
+            writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * replay the snapshot then the journal, a record which can't be read (the last one, torn by a crash) is skipped
+     * @param target the registry the records are replayed on
+     * @return the number of replayed records
+     * @throws UncheckedIOException when the snapshot or the journal can't be read
+     */
+    public synchronized long replay(Target target){
+        requireNonNull(target);
+        var begin = System.nanoTime();
+        var count = 0L;
+        try {
+            for (var path : new Path[]{snapshot, journal}){
+                if (!Files.exists(path)){ continue; }
+                try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                    var read = lines.filter(line -> !line.isBlank()).filter(line -> replay(line, target)).count();
+                    if (path == journal){ records = (int) Math.min(Integer.MAX_VALUE, read); }
+                    count += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        replayed = count;
+        replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        return count;
+    }
+
+    /**
+     * replay a record
+     * @param line the record, a json object
+     * @param target the registry the record is replayed on
+     * @return true if the record was replayed
+     */
+    private static boolean replay(String line, Target target){
+        try {
+            var record = MAPPER.readTree(line);
+            switch (record.path("op").asText()) {
+                case "add": target.added(new ApplicationData(record.path("id").asInt(), record.path("app").asText(),
+                        record.path("port").asInt(), record.path("instance").asText())); return true;
+                case "stop": target.stopped(record.path("id").asInt()); return true;
+                case "kill": target.killed(record.path("id").asInt()); return true;
+                case "count": target.counted(record.path("name").asText(), record.path("count").asInt()); return true;
+                default: throw new LKArgumentsException("Unknown registry record : " + line);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            LKArgumentsException.report("Registry record skipped (" + e.getMessage() + ") : " + line);
+            return false;
+        }
+    }
+
+    /**
+     * append the add of a running app
+     * @param app the app
+     */
+    public void added(ApplicationData app){
+        append(add(app));
+    }
+
+    /**
+     * append the stop of an app
+     * @param id the app id
+     */
+    public void stopped(int id){
+        append(MAPPER.createObjectNode().put("op", "stop").put("id", id));
+    }
+
+    /**
+     * append the kill of a stopped app
+     * @param id the app id
+     */
+    public void killed(int id){
+        append(MAPPER.createObjectNode().put("op", "kill").put("id", id));
+    }
+
+    /**
+     * append the instance counter of an app
+     * @param name the app name (short)
+     * @param count the last instance number given to the app
+     */
+    public void counted(String name, int count){
+        append(count(name, count));
+    }
+
+    /**
+     * the record of the add of an app
+     * @param app the app
+     * @return the record
+     */
+    private static JsonNode add(ApplicationData app){
+        return MAPPER.createObjectNode().put("op", "add").put("id", app.id()).put("app", app.app())
+                .put("port", app.port()).put("instance", app.dockerInstance());
+    }
+
+    /**
+     * the record of the instance counter of an app
+     * @param name the app name (short)
+     * @param count the last instance number given to the app
+     * @return the record
+     */
+    private static JsonNode count(String name, int count){
+        return MAPPER.createObjectNode().put("op", "count").put("name", requireNonNull(name)).put("count", count);
+    }
+
+    /**
+     * append a record and flush it, a failure is only reported (the registry in memory stays right)
+     * @param record the record
+     */
+    private synchronized void append(JsonNode record){
+        try {
+            writer.write(MAPPER.writeValueAsString(record));
+            writer.newLine();
+            writer.flush();
+            records++;
+            appended++;
+        } catch (IOException e) {
+            error = e.toString();
+            LKArgumentsException.report("Registry record not written : " + e);
+        }
+    }
+
+    /**
+     * tell if the journal is long enough to be replaced by a snapshot
+     * @return true when a snapshot is due
+     */
+    public synchronized boolean isSnapshotDue(){
+        return records >= snapshotEvery;
+    }
+
+    /**
+     * write the whole registry to the snapshot, then empty the journal, a failure is only reported (the journal is kept)
+     * @param counters a map (app name, last instance number)
+     * @param running the running apps
+     * @param stopped the stopped apps
+     */
+    public synchronized void snapshot(Map<String, Integer> counters, Collection<ApplicationData> running,
+                                      Collection<ApplicationData> stopped){
+        var part = snapshot.resolveSibling(snapshot.getFileName() + ".part");
+        try {
+            try (var channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 var out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (var counter : counters.entrySet()){ line(out, count(counter.getKey(), counter.getValue())); }
+                for (var app : running){ line(out, add(app)); }
+                for (var app : stopped){
+                    line(out, add(app));
+                    line(out, MAPPER.createObjectNode().put("op", "stop").put("id", app.id()));
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(part, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writer.close();
+            writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            records = 0;
+            snapshots++;
+        } catch (IOException e) {
+            error = e.toString();
+            LKArgumentsException.report("Registry snapshot not written : " + e);
+        }
+    }
+
+    /**
+     * write a record in the snapshot
+     * @param out the writer of the snapshot
+     * @param record the record
+     * @throws IOException when the snapshot can't be written
+     */
+    private static void line(BufferedWriter out, JsonNode record) throws IOException {
+        out.write(MAPPER.writeValueAsString(record));
+        out.newLine();
+    }
+
+    /**
+     * the statistics of the journal
+     * @return the records in the journal, the appended records, the snapshots and the replay at boot
+     */
+    public synchronized JsonResponses.Registry stats(){
+        return new JsonResponses.Registry(records, appended, snapshots, replayed, replayMillis, error);
+    }
+
+    /**
+     * string format (json format) of the statistics of the journal
+     * @return the json statistics format
+     */
+    @Override
+    public String toString(){
+        var stats = stats();
+        return "{\n\tjournal:" + stats.journal() + ",\n\tappended:" + stats.appended() + ",\n\tsnapshots:" + stats.snapshots()
+                + ",\n\treplayed:" + stats.replayed() + ",\n\treplay-time:" + stats.replayMillis() + "ms"
+                + (stats.error() == null ? "" : ",\n\terror:" + stats.error()) + "\n}";
+    }
+}
@@ -0,0 +1,166 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class RequestDecoder {
+    /**
+     * class which decodes the bodies of the control requests into typed requests, whatever the spaces and the order
+     * of the fields: the readers are built once and shared by all the requests (they are thread-safe), a text is
+     * never read as a number (nor a number as a text) and an unknown field is an error
+     * @field MAPPER the strict mapper the readers come from
+     * @field START the reader of the start requests
+     * @field BATCH the reader of the batch start requests
+     * @field ID the reader of the stop and kill requests
+     * @field SELECTOR the reader of the selectors of the bulk requests
+     * @field TARGETS the reader of the targets of the auto-scale
+     * @field START_ERROR the error of an invalid start request, followed by the body
+     * @field BATCH_ERROR the error of an invalid batch start request, followed by the body
+     * @field ID_ERROR the error of an invalid stop or kill request, followed by the body
+     * @field SELECTOR_ERROR the error of an invalid selector, followed by the body
+     * @field TARGETS_ERROR the error of invalid targets, followed by the body
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(MapperFeature.ALLOW_COERCION_OF_SCALARS)
+            .disable(DeserializationFeature.ACCEPT_FLOAT_AS_INT)
+            .registerModule(new SimpleModule().addDeserializer(String.class, new TextDeserializer()));
+    private static final ObjectReader START = MAPPER.readerFor(StartRequest.class);
+    private static final ObjectReader BATCH = MAPPER.readerFor(StartRequest[].class);
+    private static final ObjectReader ID = MAPPER.readerFor(IdRequest.class);
+    private static final ObjectReader SELECTOR = MAPPER.readerFor(AppSelector.class);
+    private static final ObjectReader TARGETS = MAPPER.readerFor(new TypeReference<LinkedHashMap<String, Integer>>() {});
+    private static final String START_ERROR = "Input format is {\"app\": \"name:port\"} or {\"app\": \"name\"}, get : ";
+    private static final String BATCH_ERROR = "Input format is [{\"app\": \"name:port\"}, {\"app\": \"name\"}, ...], get : ";
+    private static final String ID_ERROR = "Input format for id is Integer, get : ";
+    private static final String SELECTOR_ERROR = "Invalid selector, expected {\"app\": name, \"instancePrefix\": prefix, \"ids\": [ids]}, get : ";
+    private static final String TARGETS_ERROR = "Input format is {\"name\": instances, ...} (name without port, instances >= 0), get : ";
+
+    /**
+     * the reader of the texts of the requests, which refuses the numbers and the booleans
+     * (the default one of Jackson turns them into texts)
+     */
+    private static final class TextDeserializer extends StdScalarDeserializer<String> {
+        private TextDeserializer(){
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_STRING){
+                return (String) context.handleUnexpectedToken(String.class, parser);
+            }
+            return parser.getText();
+        }
+    }
+
+    private RequestDecoder(){
+        throw new AssertionError();
+    }
+
+    /**
+     * decode a start request
+     * @param json the body on json format {"app": "name:port"} or {"app": "name"}
+     * @return the app name, with its port or not
+     * @throws LKArgumentsException when the body is not a start request
+     */
+    public static String app(String json){
+        requireNonNull(json);
+        var app = RequestDecoder.<StartRequest>read(START, json, START_ERROR).app();
+        if (app == null){ throw new LKArgumentsException(START_ERROR + json); }
+        return app;
+    }
+
+    /**
+     * decode a batch start request
+     * @param json the body on json format [{"app": "name:port"}, {"app": "name"}, ...]
+     * @return the app names, with their port or not, in the order of the body
+     * @throws LKArgumentsException when the body is not a list of start requests
+     */
+    public static List<String> apps(String json){
+        requireNonNull(json);
+        var requests = RequestDecoder.<StartRequest[]>read(BATCH, json, BATCH_ERROR);
+        var apps = new ArrayList<String>(requests.length);
+        for (var request : requests){
+            if (request == null || request.app() == null){ throw new LKArgumentsException(BATCH_ERROR + json); }
+            apps.add(request.app());
+        }
+        return apps;
+    }
+
+    /**
+     * decode a stop or kill request
+     * @param json the body on json format {"id": 2}
+     * @return the app id
+     * @throws LKArgumentsException when the body is not an id request
+     */
+    public static int id(String json){
+        requireNonNull(json);
+        var id = RequestDecoder.<IdRequest>read(ID, json, ID_ERROR).id();
+        if (id == null){ throw new LKArgumentsException(ID_ERROR + json); }
+        return id;
+    }
+
+    /**
+     * decode a selector of apps
+     * @param json the selector on json format ({"app": "name", "instancePrefix": "name-1", "ids": [1, 2]}, each field is optional)
+     * @return the selector
+     * @throws LKArgumentsException when the body is not a selector
+     */
+    public static AppSelector selector(String json){
+        requireNonNull(json);
+        return read(SELECTOR, json, SELECTOR_ERROR);
+    }
+
+    /**
+     * decode the targets of the auto-scale
+     * @param json the body on json format {"name": instances, ...}
+     * @return a map (app name, number of instances), in the order of the body
+     * @throws LKArgumentsException when the body is not a non empty map of app names to positive or zero integers
+     */
+    public static Map<String, Integer> targets(String json){
+        requireNonNull(json);
+        var targets = RequestDecoder.<Map<String, Integer>>read(TARGETS, json, TARGETS_ERROR);
+        if (targets.isEmpty()){ throw new LKArgumentsException(TARGETS_ERROR + json); }
+        targets.forEach((app, count) -> {
+            if (app.isEmpty() || app.contains(":") || count == null || count < 0){ throw new LKArgumentsException(TARGETS_ERROR + json); }
+        });
+        return targets;
+    }
+
+    /**
+     * decode a body
+     * @param reader the reader of the type of the request
+     * @param json the body
+     * @param error the error message when the body is not a request of the type, followed by the body
+     * @param <T> the type of the request
+     * @return the request
+     * @throws LKArgumentsException when the body is not a request of the type
+     */
+    private static <T> T read(ObjectReader reader, String json, String error){
+        try {
+            T request = reader.readValue(json);
+            if (request == null){ throw new LKArgumentsException(error + json); }
+            return request;
+        } catch (JsonProcessingException e) {
+            throw new LKArgumentsException(error + json);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package fr.uge.localkube;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class SpringLogParser {
+    /**
+     * class which parses a line of the Spring Boot console format in one pass, without regex nor copy:
+     * "2020-11-20 10:00:00.000  INFO 12345 --- [           main] f.u.l.LocalKubeApplication    : message",
+     * the fields are kept as offsets in the line and a field is only copied when asked,
+     * a parser is reused from a line to the next one and is not thread-safe
+     * @field LEVELS the levels written by Spring Boot
+     * @field line the last parsed line
+     * @field offsets the start and the end of each field in the line
+     * @field level the level of the line, one of LEVELS
+     */
+    public enum Field { TIME, LEVEL, PID, THREAD, LOGGER, MESSAGE }
+
+    private static final String[] LEVELS = { "TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL" };
+
+    private String line;
+    private final int[] offsets = new int[Field.values().length * 2];
+    private String level;
+
+    /**
+     * parse a line
+     * @param line the line
+     * @return true if the line starts a log entry, false if it is not on the console format (a stack trace line for example)
+     */
+    public boolean parse(String line){
+        requireNonNull(line);
+        this.line = null;
+        if (!isTime(line)){ return false; }
+        set(Field.TIME, 0, 23);
+        var i = skipSpaces(line, 23);
+        var start = i;
+        while (i < line.length() && line.charAt(i) >= 'A' && line.charAt(i) <= 'Z'){ i++; }
+        if ((level = level(line, start, i)) == null){ return false; }
+        set(Field.LEVEL, start, i);
+        i = skipSpaces(line, i);
+        start = i;
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9'){ i++; }
+        set(Field.PID, start, i);
+        i = skipSpaces(line, i);
+        if (!line.startsWith("---", i)){ return false; }
+        i = skipSpaces(line, i + 3);
+        if (i >= line.length() || line.charAt(i) != '['){ return false; }
+        start = skipSpaces(line, i + 1);
+        var end = line.indexOf("] ", start);
+        if (end < 0){ return false; }
+        set(Field.THREAD, start, end);
+        start = skipSpaces(line, end + 2);
+        end = line.indexOf(" : ", start);
+        if (end < 0){ return false; }
+        var loggerEnd = end;
+        while (loggerEnd > start && line.charAt(loggerEnd - 1) == ' '){ loggerEnd--; }
+        set(Field.LOGGER, start, loggerEnd);
+        set(Field.MESSAGE, end + 3, line.length());
+        this.line = line;
+        return true;
+    }
+
+    /**
+     * tell if a line starts with a time on format yyyy-MM-dd HH:mm:ss.SSS
+     * @param line the line
+     * @return true if the 23 first characters are a time
+     */
+    private static boolean isTime(String line){
+        if (line.length() < 24){ return false; }
+        for (var i = 0; i < 23; i++){
+            var c = line.charAt(i);
+            var expected = i == 4 || i == 7 ? '-' : i == 10 ? ' ' : i == 13 || i == 16 ? ':' : i == 19 ? '.' : '0';
+            if (expected == '0' ? c < '0' || c > '9' : c != expected){ return false; }
+        }
+        return true;
+    }
+
+    /**
+     * find the level written in a part of a line
+     * @param line the line
+     * @param start the start of the level
+     * @param end the end of the level
+     * @return the level, null if it is not a level
+     */
+    private static String level(String line, int start, int end){
+        for (var level : LEVELS){
+            if (level.length() == end - start && line.startsWith(level, start)){ return level; }
+        }
+        return null;
+    }
+
+    /**
+     * skip the spaces of a line
+     * @param line the line
+     * @param i the index to start from
+     * @return the index of the first character which is not a space
+     */
+    private static int skipSpaces(String line, int i){
+        while (i < line.length() && line.charAt(i) == ' '){ i++; }
+        return i;
+    }
+
+    /**
+     * set the offsets of a field
+     * @param field the field
+     * @param start the start of the field
+     * @param end the end of the field
+     */
+    private void set(Field field, int start, int end){
+        offsets[field.ordinal() * 2] = start;
+        offsets[field.ordinal() * 2 + 1] = end;
+    }
+
+    /**
+     * check that the last line was a log entry
+     * @throws IllegalStateException when the last parsed line was not a log entry
+     */
+    private void checkParsed(){
+        if (line == null){ throw new IllegalStateException("no log entry parsed"); }
+    }
+
+    /**
+     * the start of a field in the last parsed line
+     * @param field the field
+     * @return the index of the start
+     * @throws IllegalStateException when the last parsed line was not a log entry
+     */
+    public int start(Field field){
+        checkParsed();
+        return offsets[field.ordinal() * 2];
+    }
+
+    /**
+     * the end of a field in the last parsed line
+     * @param field the field
+     * @return the index after the end
+     * @throws IllegalStateException when the last parsed line was not a log entry
+     */
+    public int end(Field field){
+        checkParsed();
+        return offsets[field.ordinal() * 2 + 1];
+    }
+
+    /**
+     * copy a field of the last parsed line
+     * @param field the field
+     * @return the value of the field
+     * @throws IllegalStateException when the last parsed line was not a log entry
+     */
+    public String get(Field field){
+        return field == Field.LEVEL ? level() : line.substring(start(field), end(field));
+    }
+
+    /**
+     * the level of the last parsed line, without copy
+     * @return TRACE, DEBUG, INFO, WARN, ERROR or FATAL
+     * @throws IllegalStateException when the last parsed line was not a log entry
+     */
+    public String level(){
+        checkParsed();
+        return level;
+    }
+}
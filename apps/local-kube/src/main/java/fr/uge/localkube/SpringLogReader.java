@@ -0,0 +1,128 @@
+package fr.uge.localkube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class SpringLogReader {
+    /**
+     * class which reads the log entries of a Spring Boot app: the lines which are not on the console format
+     * (stack traces, multi-line messages) are folded into the message of the entry before them: the lines are read
+     * ahead up to the next entry, or, when a running container is followed, as long as they are already readable so
+     * the reader never waits for the next entry
+     * @field reader the lines
+     * @field follow true if the lines are followed, the folding then stops at the first line which is not readable yet
+     * @field parser the parser of the lines
+     * @field pending a line already read which starts the next entry, null if there is none
+     * @field last the last read entry, whose fields are given to the lines read without entry before them
+     */
+    public record Entry(String time, String level, String pid, String thread, String logger, String message) {
+        /**
+         * record which represent a log entry of a Spring Boot app
+         * @field time the time, on format yyyy-MM-dd HH:mm:ss.SSS
+         * @field level the level
+         * @field pid the process id
+         * @field thread the thread
+         * @field logger the logger
+         * @field message the message, with its folded lines
+         */
+
+        /**
+         * Constructor for Entry
+         * @param time the time
+         * @param level the level
+         * @param pid the process id
+         * @param thread the thread
+         * @param logger the logger
+         * @param message the message
+         */
+        public Entry {
+            requireNonNull(time);
+            requireNonNull(level);
+            requireNonNull(pid);
+            requireNonNull(thread);
+            requireNonNull(logger);
+            requireNonNull(message);
+        }
+
+        /**
+         * a copy of the entry with another message
+         * @param message the message
+         * @return the entry
+         */
+        private Entry with(String message){
+            return new Entry(time, level, pid, thread, logger, message);
+        }
+    }
+
+    private final BufferedReader reader;
+    private final boolean follow;
+    private final SpringLogParser parser = new SpringLogParser();
+    private String pending;
+    private Entry last;
+
+    /**
+     * Constructor of SpringLogReader, for lines which end (a fetch of the logs)
+     * @param reader the lines, not closed by the SpringLogReader
+     */
+    public SpringLogReader(BufferedReader reader){
+        this(reader, false);
+    }
+
+    /**
+     * Constructor of SpringLogReader
+     * @param reader the lines, not closed by the SpringLogReader
+     * @param follow true if the lines are followed (the logs of a running container), false if they end
+     */
+    public SpringLogReader(BufferedReader reader, boolean follow){
+        this.reader = requireNonNull(reader);
+        this.follow = follow;
+    }
+
+    /**
+     * read the next entry
+     * @return the entry, null at the end of the lines
+     * @throws IOException when the lines can't be read
+     */
+    public Entry next() throws IOException {
+        Entry entry = null;
+        while (entry == null){
+            var line = pending != null ? pending : reader.readLine();
+            var parsed = pending != null;   // the parser still holds the pending line
+            pending = null;
+            if (line == null){ return null; }
+            if (parsed || parser.parse(line)){
+                entry = new Entry(parser.get(SpringLogParser.Field.TIME), parser.level(), parser.get(SpringLogParser.Field.PID),
+                        parser.get(SpringLogParser.Field.THREAD), parser.get(SpringLogParser.Field.LOGGER),
+                        parser.get(SpringLogParser.Field.MESSAGE));
+            } else if (last != null && !line.isEmpty()){
+                entry = last.with(line);
+            }
+        }
+        StringBuilder message = null;
+        while (!follow || reader.ready()){
+            var line = reader.readLine();
+            if (line == null){ break; }
+            if (parser.parse(line)){
+                pending = line;
+                break;
+            }
+            if (line.isEmpty()){ continue; }
+            if (message == null){ message = new StringBuilder(entry.message()); }
+            message.append('\n').append(line);
+        }
+        last = message == null ? entry : entry.with(message.toString());
+        return last;
+    }
+
+    /**
+     * tell if the next entry can be read without waiting
+     * @return true if a line is already readable
+     * @throws IOException when the lines can't be read
+     */
+    public boolean ready() throws IOException {
+        return pending != null || reader.ready();
+    }
+}
@@ -0,0 +1,143 @@
+package fr.uge.localkube;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class StartJob {
+    /**
+     * class which represent an asynchronous start of an app, going through the build, load and run stages
+     * @field id the job id
+     * @field app the app to start
+     * @field stage the current stage of the job
+     * @field started the start timestamp (ms) of each stage
+     * @field ended the end timestamp (ms) of each stage
+     * @field failedAt the stage which was running when the job failed, null otherwise
+     * @field error the error message when the job failed, null otherwise
+     */
+    public enum Stage { QUEUED, BUILD, LOAD, RUN, DONE, FAILED }
+
+    private static final Stage[] steps = { Stage.BUILD, Stage.LOAD, Stage.RUN };
+
+    private final long id;
+    private final ApplicationData app;
+    private Stage stage = Stage.QUEUED;
+    private final EnumMap<Stage, Long> started = new EnumMap<>(Stage.class);
+    private final EnumMap<Stage, Long> ended = new EnumMap<>(Stage.class);
+    private Stage failedAt;
+    private String error;
+
+    /**
+     * Constructor of StartJob
+     * @param id the job id
+     * @param app the app to start
+     */
+    public StartJob(long id, ApplicationData app){
+        if (id <= 0){ throw new LKArgumentsException("Job id cannot be <= 0, " + id); }
+        this.id = id;
+        this.app = requireNonNull(app);
+    }
+
+    /**
+     * getter for the job id
+     * @return the job id
+     */
+    public long id(){
+        return id;
+    }
+
+    /**
+     * getter for the app to start
+     * @return the app
+     */
+    public ApplicationData app(){
+        return app;
+    }
+
+    /**
+     * getter for the current stage
+     * @return the current stage
+     */
+    public synchronized Stage stage(){
+        return stage;
+    }
+
+    /**
+     * tell if the job is over (done or failed)
+     * @return true if the job is over
+     */
+    public synchronized boolean isOver(){
+        return stage == Stage.DONE || stage == Stage.FAILED;
+    }
+
+    /**
+     * enter a new stage, ending the current one
+     * @param next the stage to enter
+     */
+    synchronized void enter(Stage next){
+        requireNonNull(next);
+        var now = System.currentTimeMillis();
+        ended.putIfAbsent(stage, now);
+        started.put(next, now);
+        stage = next;
+    }
+
+    /**
+     * end the job on a failure
+     * @param message the error message
+     */
+    synchronized void fail(String message){
+        error = requireNonNull(message);
+        failedAt = stage;
+        enter(Stage.FAILED);
+    }
+
+    /**
+     * the response record of the job, at the time of the call
+     * @return the job and the progress of each stage
+     */
+    public synchronized JsonResponses.Job snapshot(){
+        return new JsonResponses.Job(id, app.app(), app.dockerInstance(), stage, step(Stage.BUILD), step(Stage.LOAD), step(Stage.RUN), error);
+    }
+
+    /**
+     * the progress of a stage
+     * @param step the stage
+     * @return the state of the stage and the time spent in it
+     */
+    private JsonResponses.Step step(Stage step){
+        var start = started.get(step);
+        if (start == null){ return new JsonResponses.Step("pending", null); }
+        var end = ended.get(step);
+        if (end == null){ return new JsonResponses.Step("running", System.currentTimeMillis() - start); }
+        return new JsonResponses.Step(step == failedAt ? "failed" : "done", end - start);
+    }
+
+    /**
+     * string format of the progress of a stage
+     * @param step the stage to format
+     * @return "pending", "running [ms]ms", "done [ms]ms" or "failed [ms]ms"
+     */
+    private String progress(Stage step){
+        var progress = step(step);
+        return progress.millis() == null ? progress.state() : progress.state() + " " + progress.millis() + "ms";
+    }
+
+    /**
+     * string format (json format) of a job
+     * @return the json job format
+     */
+    @Override
+    public synchronized String toString(){
+        return "{\n\tjob:" + id
+                + ",\n\tapp:" + app.app()
+                + ",\n\tdocker-instance:" + app.dockerInstance()
+                + ",\n\tstatus:" + stage
+                + Arrays.stream(steps).map(s -> ",\n\t" + s.name().toLowerCase() + ":" + progress(s)).collect(Collectors.joining())
+                + (error == null ? "" : ",\n\terror:" + error)
+                + "\n}";
+    }
+}
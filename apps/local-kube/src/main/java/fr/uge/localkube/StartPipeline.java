@@ -0,0 +1,147 @@
+package fr.uge.localkube;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class StartPipeline {
+    /**
+     * class which runs the starts of apps in background, each stage (build, load, run) on its own executor
+     * @field build the step creating the image of an app
+     * @field load the step loading the image in docker
+     * @field run the step running the container and registering the app
+     * @field abandon the code giving back what was reserved for an app whose start failed
+     * @field buildExecutor the executor of the build stage
+     * @field loadExecutor the executor of the load stage
+     * @field runExecutor the executor of the run stage
+     * @field jobs a map (id, job) of the known jobs
+     * @field nextId the id of the next job
+     * @field retained the number of jobs kept in memory
+     */
+    @FunctionalInterface
+    public interface Step {
+        /**
+         * apply a stage of the start on an app
+         * @param app the app to start
+         * @throws Exception when the stage fails
+         */
+        void apply(ApplicationData app) throws Exception;
+    }
+
+    private final Step build;
+    private final Step load;
+    private final Step run;
+    private final Consumer<ApplicationData> abandon;
+    private final ExecutorService buildExecutor;
+    private final ExecutorService loadExecutor;
+    private final ExecutorService runExecutor;
+    private final ConcurrentSkipListMap<Long, StartJob> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final int retained;
+
+    /**
+     * Constructor of StartPipeline
+     * @param settings the LocalKube settings (threads of each stage, retained jobs)
+     * @param build the step creating the image of an app
+     * @param load the step loading the image in docker
+     * @param run the step running the container and registering the app
+     * @param abandon the code giving back what was reserved for an app whose start failed
+     */
+    public StartPipeline(LocalKubeSettings settings, Step build, Step load, Step run, Consumer<ApplicationData> abandon){
+        requireNonNull(settings);
+        this.build = requireNonNull(build);
+        this.load = requireNonNull(load);
+        this.run = requireNonNull(run);
+        this.abandon = requireNonNull(abandon);
+        buildExecutor = executor("lk-build-", settings.buildThreads());
+        loadExecutor = executor("lk-load-", settings.loadThreads());
+        runExecutor = executor("lk-run-", settings.runThreads());
+        retained = settings.retainedJobs();
+    }
+
+    /**
+     * create the executor of a stage, with daemon threads so a pending start never blocks the exit
+     * @param prefix the name prefix of the threads
+     * @param threads the number of threads
+     * @return the executor
+     */
+    private static ExecutorService executor(String prefix, int threads){
+        var counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            var thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * submit the start of an app, the stages run in background
+     * @param app the app to start
+     * @return the job following the start
+     */
+    public StartJob submit(ApplicationData app){
+        requireNonNull(app);
+        var job = new StartJob(nextId.incrementAndGet(), app);
+        jobs.put(job.id(), job);
+        evict();
+        CompletableFuture.runAsync(() -> stage(job, StartJob.Stage.BUILD, build), buildExecutor)
+                .thenRunAsync(() -> stage(job, StartJob.Stage.LOAD, load), loadExecutor)
+                .thenRunAsync(() -> stage(job, StartJob.Stage.RUN, run), runExecutor)
+                .whenComplete((v, e) -> complete(job, e));
+        return job;
+    }
+
+    /**
+     * run a stage of a job
+     * @param job the job
+     * @param stage the stage to enter
+     * @param step the step of the stage
+     */
+    private static void stage(StartJob job, StartJob.Stage stage, Step step){
+        job.enter(stage);
+        try {
+            step.apply(job.app());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * end a job, successfully or not
+     * @param job the job
+     * @param error the failure of a stage, null if all stages succeeded
+     */
+    private void complete(StartJob job, Throwable error){
+        if (error == null){
+            job.enter(StartJob.Stage.DONE);
+            return;
+        }
+        abandon.accept(job.app());
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        job.fail(cause instanceof LKArgumentsException ? cause.getMessage() : cause.toString());
+    }
+
+    /**
+     * forget the oldest jobs which are over when more than 'retained' jobs are known
+     */
+    private void evict(){
+        var it = jobs.values().iterator();
+        while (jobs.size() > retained && it.hasNext()){
+            if (it.next().isOver()){ it.remove(); }
+        }
+    }
+
+    /**
+     * get a job
+     * @param id the job id
+     * @return the job, empty if it is unknown
+     */
+    public Optional<StartJob> job(long id){
+        return Optional.ofNullable(jobs.get(id));
+    }
+}
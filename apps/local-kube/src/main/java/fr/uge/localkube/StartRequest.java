@@ -0,0 +1,18 @@
+package fr.uge.localkube;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record StartRequest(@JsonProperty("app") String app) {
+    /**
+     * record which represent the body of a start request ({"app": "name:port"} or {"app": "name"})
+     * @field app the app name, with its port or not, null when it is not given
+     */
+
+    /**
+     * Constructor for StartRequest
+     * @param app the app name on json format, with its port or not
+     */
+    @JsonCreator
+    public StartRequest { }
+}
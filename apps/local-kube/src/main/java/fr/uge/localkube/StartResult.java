@@ -0,0 +1,48 @@
+package fr.uge.localkube;
+
+import static java.util.Objects.requireNonNull;
+
+public record StartResult(String spec, ApplicationData app, long millis, String error) {
+    /**
+     * record which represent the result of the start of an app of a batch
+     * @field spec the app as it was asked ("name:port" or "name")
+     * @field app the app, null when the spec is invalid
+     * @field millis the time from the start of the batch to the end of the start of the app
+     * @field error the error message, null if there is none
+     */
+
+    /**
+     * Constructor for StartResult
+     * @param spec the app as it was asked
+     * @param app the app, null when the spec is invalid
+     * @param millis the time from the start of the batch to the end of the start of the app
+     * @param error the error message, null if there is none
+     */
+    public StartResult {
+        requireNonNull(spec);
+        if (app == null && error == null){ throw new IllegalArgumentException("a result without app should have an error"); }
+        if (millis < 0){ throw new LKArgumentsException("Duration cannot be < 0, " + millis); }
+    }
+
+    /**
+     * tell if the app is started
+     * @return true if there is no error
+     */
+    public boolean isSuccess(){
+        return error == null;
+    }
+
+    /**
+     * string format (json format) of a result
+     * @return the json result format
+     */
+    @Override
+    public String toString(){
+        return "{\n\tapp:" + spec
+                + (app == null ? "" : ",\n\tid:" + app.id() + ",\n\tport:" + app.port() + ",\n\tdocker-instance:" + app.dockerInstance())
+                + ",\n\tstatus:" + (isSuccess() ? "started" : "failed")
+                + ",\n\ttime:" + millis + "ms"
+                + (error == null ? "" : ",\n\terror:" + error)
+                + "\n}";
+    }
+}
@@ -0,0 +1,290 @@
+package fr.uge.localkube;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+
+public class WarmPool {
+    /**
+     * class which keeps, for each pooled app, a number of containers already built, loaded and booted but not
+     * registered (parked): a start without port claims one of them instead of paying for the build, the load and the
+     * boot of the JVM, the port reserved when the container was parked is the one of the app. A claimed container is
+     * replaced in background, so the pool refills itself after a burst
+     * @field create the creation of an app from its name, which reserves its id, its port and its docker instance
+     * @field warm the step building, loading and running the container of an app, without registering it
+     * @field discard the code removing the container of a parked app and giving back what was reserved for it
+     * @field alive tell if the container of a parked app still runs
+     * @field executor the executor of the refills
+     * @field sizes a map (app name, number of parked containers to keep)
+     * @field parked a map (app name, parked apps, the oldest first)
+     * @field warming a map (app name, number of containers being warmed)
+     * @field metrics a map (app name, hits, misses and start latencies)
+     */
+    private static final class Metrics {
+        /**
+         * class which represent the hits, the misses and the start latencies of a pooled app
+         * @field hits the number of starts which claimed a parked container
+         * @field misses the number of starts which found no parked container
+         * @field hitStarts the number of measured starts with a claim
+         * @field hitMillis the total time of the measured starts with a claim
+         * @field missStarts the number of measured starts without a claim
+         * @field missMillis the total time of the measured starts without a claim
+         * @field error the last error of a refill, null if there is none
+         */
+        private long hits;
+        private long misses;
+        private long hitStarts;
+        private long hitMillis;
+        private long missStarts;
+        private long missMillis;
+        private String error;
+    }
+
+    private final Function<String, ApplicationData> create;
+    private final StartPipeline.Step warm;
+    private final Consumer<ApplicationData> discard;
+    private final Predicate<ApplicationData> alive;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Integer> sizes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentLinkedDeque<ApplicationData>> parked = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> warming = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of WarmPool, the pools given by the settings start to fill
+     * @param settings the LocalKube settings (sizes of the pools and threads of the refills)
+     * @param create the creation of an app from its name
+     * @param warm the step building, loading and running the container of an app, without registering it
+     * @param discard the code removing the container of a parked app and giving back what was reserved for it
+     * @param alive tell if the container of a parked app still runs
+     */
+    public WarmPool(LocalKubeSettings settings, Function<String, ApplicationData> create, StartPipeline.Step warm,
+                    Consumer<ApplicationData> discard, Predicate<ApplicationData> alive){
+        this(settings.poolThreads(), create, warm, discard, alive);
+        resize(settings.poolSizes());
+    }
+
+    /**
+     * Constructor of WarmPool, empty
+     * @param threads the number of containers warmed at the same time
+     * @param create the creation of an app from its name
+     * @param warm the step building, loading and running the container of an app, without registering it
+     * @param discard the code removing the container of a parked app and giving back what was reserved for it
+     * @param alive tell if the container of a parked app still runs
+     * @throws LKArgumentsException when the number of threads is not positive
+     */
+    public WarmPool(int threads, Function<String, ApplicationData> create, StartPipeline.Step warm,
+                    Consumer<ApplicationData> discard, Predicate<ApplicationData> alive){
+        if (threads <= 0){ throw new LKArgumentsException("Threads cannot be <= 0, " + threads); }
+        this.create = requireNonNull(create);
+        this.warm = requireNonNull(warm);
+        this.discard = requireNonNull(discard);
+        this.alive = requireNonNull(alive);
+        var counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            var thread = new Thread(r, "lk-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * set the number of parked containers of apps, the pools fill or shrink in background (0 empties the pool of an app)
+     * @param desired a map (app name, number of parked containers to keep)
+     */
+    public void resize(Map<String, Integer> desired){
+        requireNonNull(desired);
+        desired.forEach((app, size) -> {
+            if (size == 0){ sizes.remove(app); } else { sizes.put(app, size); }
+            metrics.computeIfAbsent(app, k -> new Metrics());
+            shrink(app);
+            refill(app);
+        });
+    }
+
+    /**
+     * claim a parked container for a start, the dead ones are discarded
+     * @param spec the app as it was asked ("name:port" or "name"), only a start without port can claim a container
+     * @return the parked app, empty when there is none (a miss is counted for a pooled app)
+     */
+    public Optional<ApplicationData> claim(String spec){
+        requireNonNull(spec);
+        if (spec.indexOf(':') != -1 || !sizes.containsKey(spec)){ return Optional.empty(); }
+        var apps = parked.getOrDefault(spec, new ConcurrentLinkedDeque<>());
+        for (var app = apps.pollFirst(); app != null; app = apps.pollFirst()){
+            if (alive.test(app)){
+                count(spec, true);
+                refill(spec);
+                return Optional.of(app);
+            }
+            discard.accept(app);
+        }
+        count(spec, false);
+        refill(spec);
+        return Optional.empty();
+    }
+
+    /**
+     * record the latency of a start of a pooled app
+     * @param app the app name
+     * @param hit true if the start claimed a parked container
+     * @param millis the time of the start
+     */
+    public void started(String app, boolean hit, long millis){
+        var m = metrics.get(requireNonNull(app));
+        if (m == null){ return; }
+        synchronized (m) {
+            if (hit){
+                m.hitStarts++;
+                m.hitMillis += millis;
+            } else {
+                m.missStarts++;
+                m.missMillis += millis;
+            }
+        }
+    }
+
+    /**
+     * count a claim
+     * @param app the app name
+     * @param hit true if a parked container was claimed
+     */
+    private void count(String app, boolean hit){
+        var m = metrics.computeIfAbsent(app, k -> new Metrics());
+        synchronized (m) {
+            if (hit){ m.hits++; } else { m.misses++; }
+        }
+    }
+
+    /**
+     * warm containers in background until the parked and warming containers of an app reach its size
+     * @param app the app name
+     */
+    private void refill(String app){
+        var counter = warming.computeIfAbsent(app, k -> new AtomicInteger());
+        synchronized (counter) {
+            var missing = sizes.getOrDefault(app, 0) - parked(app).size() - counter.get();
+            for (var i = 0; i < missing; i++){
+                counter.incrementAndGet();
+                executor.execute(() -> warmOne(app, counter));
+            }
+        }
+    }
+
+    /**
+     * warm a container and park it, it is discarded if the pool got smaller in the meantime
+     * @param app the app name
+     * @param counter the number of containers of the app being warmed
+     */
+    private void warmOne(String app, AtomicInteger counter){
+        ApplicationData created = null;
+        try {
+            created = create.apply(app);
+            warm.apply(created);
+            park(app, created);
+        } catch (Exception e) {
+            if (created != null){ discard.accept(created); }
+            var error = e instanceof LKArgumentsException ? e.getMessage() : e.toString();
+            var m = metrics.computeIfAbsent(app, k -> new Metrics());
+            synchronized (m) {
+                m.error = error;
+            }
+            LKArgumentsException.report("Warm pool of " + app + " not refilled : " + error);
+        } finally {
+            counter.decrementAndGet();
+        }
+    }
+
+    /**
+     * park a warmed container, or discard it if the pool is full
+     * @param app the app name
+     * @param warmed the warmed app
+     */
+    private void park(String app, ApplicationData warmed){
+        var apps = parked(app);
+        synchronized (apps) {
+            if (apps.size() < sizes.getOrDefault(app, 0)){
+                apps.addLast(warmed);
+                return;
+            }
+        }
+        discard.accept(warmed);
+    }
+
+    /**
+     * discard the parked containers of an app above its size, the newest first
+     * @param app the app name
+     */
+    private void shrink(String app){
+        var apps = parked(app);
+        var extra = new ArrayList<ApplicationData>();
+        synchronized (apps) {
+            while (apps.size() > sizes.getOrDefault(app, 0)){
+                extra.add(apps.pollLast());
+            }
+        }
+        extra.stream().filter(Objects::nonNull).forEach(discard);
+    }
+
+    /**
+     * the parked containers of an app
+     * @param app the app name
+     * @return the parked apps, the oldest first
+     */
+    private ConcurrentLinkedDeque<ApplicationData> parked(String app){
+        return parked.computeIfAbsent(app, k -> new ConcurrentLinkedDeque<>());
+    }
+
+    /**
+     * empty all the pools (when LocalKube ends), the parked containers are discarded
+     */
+    public void drain(){
+        sizes.clear();
+        parked.keySet().forEach(this::shrink);
+    }
+
+    /**
+     * the statistics of the pools
+     * @return the size, the parked and warming containers, the hits, the misses and the start latencies of each pooled app
+     */
+    public List<JsonResponses.Pool> stats(){
+        return new TreeMap<>(metrics).entrySet().stream().map(e -> {
+            var app = e.getKey();
+            var m = e.getValue();
+            synchronized (m) {
+                var claims = m.hits + m.misses;
+                return new JsonResponses.Pool(app, sizes.getOrDefault(app, 0), parked(app).size(),
+                        warming.getOrDefault(app, new AtomicInteger()).get(), m.hits, m.misses,
+                        claims == 0 ? null : (double) m.hits / claims,
+                        m.hitStarts == 0 ? null : m.hitMillis / m.hitStarts,
+                        m.missStarts == 0 ? null : m.missMillis / m.missStarts, m.error);
+            }
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * string format (json format) of the statistics of the pools
+     * @return the json statistics format
+     */
+    @Override
+    public String toString(){
+        return stats().stream().map(pool -> "{\n\tapp:" + pool.app()
+                + ",\n\tsize:" + pool.size() + ",\n\tparked:" + pool.parked() + ",\n\twarming:" + pool.warming()
+                + ",\n\thits:" + pool.hits() + ",\n\tmisses:" + pool.misses()
+                + (pool.hitRate() == null ? "" : ",\n\thit-rate:" + String.format(Locale.ROOT, "%.2f", pool.hitRate()))
+                + (pool.hitLatencyMillis() == null ? "" : ",\n\thit-latency:" + pool.hitLatencyMillis() + "ms")
+                + (pool.missLatencyMillis() == null ? "" : ",\n\tmiss-latency:" + pool.missLatencyMillis() + "ms")
+                + (pool.error() == null ? "" : ",\n\terror:" + pool.error())
+                + "\n}").collect(Collectors.joining(",\n", "[\n", "\n]"));
+    }
+}
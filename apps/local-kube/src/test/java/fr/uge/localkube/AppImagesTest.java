@@ -0,0 +1,86 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppImagesTest {
+    private static ApplicationData app(int id, int port){
+        return new ApplicationData(id, "HelloWorld:" + port, port, "HelloWorld-" + id);
+    }
+
+    @Test @Tag("image")
+    public void shouldShareTheImageOfAJarBetweenInstances(@TempDir Path dir) throws IOException {
+        Files.write(dir.resolve("HelloWorld.jar"), new byte[]{1, 2, 3});
+        var images = new AppImages(dir, dir.resolve("tars"), AppImages.Target.TAR, "unix:///var/run/docker.sock");
+        var image = images.image(app(1, 8081));
+        assertAll(
+                () -> assertTrue(image.matches("helloworld:[0-9a-f]{12}"), image),
+                () -> assertEquals(image, images.image(app(2, 8082))),
+                () -> assertEquals(dir.resolve("tars").resolve(image.replace(':', '-') + ".tar"), images.tar(image))
+        );
+    }
+
+    @Test @Tag("image")
+    public void shouldTagANewJarWithANewDigest(@TempDir Path dir) throws IOException {
+        var jar = dir.resolve("HelloWorld.jar");
+        Files.write(jar, new byte[]{1, 2, 3});
+        var images = new AppImages(dir, dir, AppImages.Target.TAR, "unix:///var/run/docker.sock");
+        var first = images.image(app(1, 8081));
+        Files.write(jar, new byte[]{1, 2, 4});
+        Files.setLastModifiedTime(jar, FileTime.from(Instant.now().plusSeconds(60)));
+        assertNotEquals(first, images.image(app(2, 8082)));
+    }
+
+    @Test @Tag("image")
+    public void shouldGetErrorWhenTheJarIsMissing(@TempDir Path dir){
+        var images = new AppImages(dir, dir, AppImages.Target.TAR, "unix:///var/run/docker.sock");
+        assertThrows(LKArgumentsException.class, () -> images.image(app(1, 8081)));
+    }
+
+    @Test @Tag("image")
+    public void shouldCountTheBuildsLoadsAndReuses(@TempDir Path dir){
+        var images = new AppImages(dir, dir, AppImages.Target.TAR, "unix:///var/run/docker.sock");
+        assertFalse(images.isBuilt("helloworld:3f9a1c0b2d4e"));
+        images.built("helloworld:3f9a1c0b2d4e", 3000);
+        assertFalse(images.isLoaded("helloworld:3f9a1c0b2d4e"));
+        images.loaded("helloworld:3f9a1c0b2d4e", 800);
+        images.loaded("helloworld:3f9a1c0b2d4e", 900);
+        assertAll(
+                () -> assertTrue(images.isBuilt("helloworld:3f9a1c0b2d4e")),
+                () -> assertTrue(images.isLoaded("helloworld:3f9a1c0b2d4e")),
+                () -> assertEquals(new JsonResponses.Images(AppImages.Target.TAR, 1, 1, 1, 1, 3000L, 800L), images.stats()),
+                () -> assertSame(images.lock("helloworld:3f9a1c0b2d4e"), images.lock("helloworld:3f9a1c0b2d4e"))
+        );
+    }
+
+    @Test @Tag("image")
+    public void shouldLoadAnImageBuiltIntoTheDaemon(@TempDir Path dir){
+        var images = new AppImages(dir, dir, AppImages.Target.DAEMON, "unix:///var/run/docker.sock");
+        images.built("helloworld:3f9a1c0b2d4e", 3500);
+        assertAll(
+                () -> assertTrue(images.isLoaded("helloworld:3f9a1c0b2d4e")),
+                () -> assertEquals(new JsonResponses.Images(AppImages.Target.DAEMON, 1, 1, 0, 1, 3500L, null), images.stats())
+        );
+    }
+
+    @Test @Tag("image")
+    public void shouldReadTheTargetOfTheSettings(@TempDir Path dir){
+        var daemon = new LocalKubeSettings(Map.of("localkube.image.target", "daemon")::get);
+        var invalid = new LocalKubeSettings(Map.of("localkube.image.target", "registry")::get);
+        assertAll(
+                () -> assertEquals(AppImages.Target.TAR, new AppImages(dir, dir, new LocalKubeSettings(Map.<String, String>of()::get)).target()),
+                () -> assertEquals(AppImages.Target.DAEMON, new AppImages(dir, dir, daemon).target()),
+                () -> assertThrows(LKArgumentsException.class, () -> new AppImages(dir, dir, invalid))
+        );
+    }
+}
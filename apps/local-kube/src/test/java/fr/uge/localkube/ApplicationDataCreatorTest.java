@@ -3,6 +3,7 @@ package fr.uge.localkube;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -145,4 +146,170 @@ class ApplicationDataCreatorTest {
         test.add(app);
         assertEquals("[\n{\n\tid:1,\n\tapp:hello:8081,\n\tport:8081,\n\tdocker-instance:hello-1\n}\n]", test.toString());
     }
-}
\ No newline at end of file
+
+    @Test @Tag("state")
+    public void shouldFollowTheStatesOfAnApp(){
+        var test = new ApplicationDataCreator();
+        var app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+        test.add(app);
+        var running = test.state(1);
+        test.stop(1);
+        var stopped = test.state(1);
+        test.kill(1);
+        assertAll(
+                () -> assertEquals(ApplicationDataCreator.State.RUNNING, running),
+                () -> assertEquals(ApplicationDataCreator.State.STOPPED, stopped),
+                () -> assertEquals(ApplicationDataCreator.State.KILLED, test.state(1))
+        );
+    }
+
+    @Test @Tag("find")
+    public void shouldFindRunningAppsWithTheIndexes(){
+        var test = new ApplicationDataCreator();
+        var app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+        var app2 = new ApplicationData(2, "hello:8082", 8082, "hello-2");
+        test.add(app); test.add(app2);
+        test.stop(2);
+        assertAll(
+                () -> assertEquals(List.of(app), test.find("byId", "1")),
+                () -> assertEquals(List.of(app), test.find("byInstance", "hello-1")),
+                () -> assertEquals(List.of(app), test.find("byApp", "hello:8081")),
+                () -> assertEquals(List.of(), test.find("byApp", "other:8081")),
+                () -> assertEquals(List.of(app), test.find("byName", "hello")),
+                () -> assertEquals(List.of(app), test.find("hello-1")),
+                () -> assertEquals(List.of(), test.find("hello-2"))
+        );
+    }
+
+    @Test @Tag("find")
+    public void shouldGetErrorWhenFindingWithUnknownField(){
+        assertThrows(LKArgumentsException.class,
+                () -> new ApplicationDataCreator().find("byPort", "8081"));
+    }
+
+    @Test @Tag("getAppDatas")
+    public void shouldKeepSnapshotsImmutable(){
+        var test = new ApplicationDataCreator();
+        var app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+        test.add(app);
+        var snapshot = test.getAppDatas();
+        test.stop(1);
+        assertAll(
+                () -> assertEquals(List.of(app), snapshot),
+                () -> assertEquals(List.of(), test.getAppDatas()),
+                () -> assertThrows(UnsupportedOperationException.class, () -> snapshot.add(app))
+        );
+    }
+
+    @Test @Tag("add")
+    public void shouldAddConcurrentlyWithoutLosingApps() throws InterruptedException {
+        var test = new ApplicationDataCreator();
+        var threads = new ArrayList<Thread>();
+        for (var t = 0; t < 8; t++){
+            var first = t * 100;
+            threads.add(new Thread(() -> {
+                for (var i = first + 1; i <= first + 100; i++){
+                    test.add(new ApplicationData(i, "hello:" + (9000 + i), 9000 + i, "hello-" + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (var thread : threads){ thread.join(); }
+        assertEquals(800, test.getAppDatas().size());
+    }
+
+    @Test @Tag("toApplicationData")
+    public void shouldRecycleIdOnlyAfterKill(){
+        var test = new ApplicationDataCreator();
+        var app = test.toApplicationData("{\"app\": \"hello:8081\"}");
+        test.add(app);
+        test.stop(app.id());
+        var afterStop = test.toApplicationData("{\"app\": \"hello:8082\"}");
+        test.kill(app.id());
+        var afterKill = test.toApplicationData("{\"app\": \"hello:8083\"}");
+        assertAll(
+                () -> assertEquals(2, afterStop.id()),
+                () -> assertEquals(1, afterKill.id())
+        );
+    }
+
+    @Test @Tag("toApplicationData")
+    public void shouldGetErrorWhenMaxAppsIsReached(){
+        var test = new ApplicationDataCreator(1, new PortPool(8081, 9080, port -> true));
+        test.toApplicationData("{\"app\": \"hello:8081\"}");
+        assertThrows(LKArgumentsException.class,
+                () -> test.toApplicationData("{\"app\": \"hello:8082\"}"));
+    }
+
+    @Test @Tag("abandon")
+    public void shouldRecycleIdOfAbandonedApp(){
+        var test = new ApplicationDataCreator();
+        var app = test.toApplicationData("{\"app\": \"hello:8081\"}");
+        test.abandon(app);
+        assertEquals(1, test.toApplicationData("{\"app\": \"hello:8082\"}").id());
+    }
+
+    @Test @Tag("toApplicationData")
+    public void shouldGivePortWhenProcessingWithoutPort(){
+        var test = new ApplicationDataCreator(10, new PortPool(9001, 9010, port -> true));
+        var app = test.toApplicationData("{\"app\": \"hello\"}");
+        var app2 = test.toApplicationData("{\"app\": \"hello\"}");
+        assertAll(
+                () -> assertEquals(new ApplicationData(1, "hello:9001", 9001, "hello-1"), app),
+                () -> assertEquals(new ApplicationData(2, "hello:9002", 9002, "hello-2"), app2)
+        );
+    }
+
+    @Test @Tag("toApplicationData")
+    public void shouldGetErrorBeforeCountingInstanceWhenPortIsTaken(){
+        var test = new ApplicationDataCreator();
+        test.toApplicationData("{\"app\": \"hello:8081\"}");
+        assertThrows(LKArgumentsException.class, () -> test.toApplicationData("{\"app\": \"hello:8081\"}"));
+        assertEquals(new ApplicationData(2, "hello:8082", 8082, "hello-2"), test.toApplicationData("{\"app\":\"hello:8082\"}"));
+    }
+
+    @Test @Tag("toApplicationData")
+    public void shouldGiveAnotherPortWhenTheGivenOneIsTakenMeanwhile(){
+        var creator = new ApplicationDataCreator[1];
+        var pool = new PortPool(9001, 9010, port -> true){
+            @Override
+            public synchronized int acquire(){
+                var port = super.acquire();
+                if (port == 9001){ creator[0].add(creator[0].fromSpec("world:9001")); }
+                return port;
+            }
+        };
+        var test = creator[0] = new ApplicationDataCreator(10, pool);
+        var app = test.fromSpec("hello");
+        assertAll(
+                () -> assertEquals(9002, app.port()),
+                () -> assertEquals("world-1", test.getAppDatas().get(0).dockerInstance()),
+                () -> assertThrows(LKArgumentsException.class, () -> test.fromSpec("nginx:9002"))
+        );
+    }
+
+    @Test @Tag("kill")
+    public void shouldGiveBackThePortWhenKilling(){
+        var test = new ApplicationDataCreator(10, new PortPool(9001, 9001, port -> true));
+        var app = test.toApplicationData("{\"app\": \"hello\"}");
+        test.add(app);
+        test.stop(app.id());
+        assertThrows(LKArgumentsException.class, () -> test.toApplicationData("{\"app\": \"hello\"}"));
+        test.kill(app.id());
+        assertEquals(9001, test.toApplicationData("{\"app\": \"hello\"}").port());
+    }
+
+    @Test @Tag("stopAll")
+    public void shouldStopOnlySelectedApps(){
+        var test = new ApplicationDataCreator();
+        var app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+        var app2 = new ApplicationData(2, "world:8082", 8082, "world-1");
+        test.add(app); test.add(app2);
+        assertAll(
+                () -> assertEquals(List.of(app2), test.stopAll(new AppSelector("world", null, null)::matches)),
+                () -> assertEquals(List.of(app), test.getAppDatas()),
+                () -> assertEquals(List.of(), test.killAll(new AppSelector("hello", null, null)::matches)),
+                () -> assertEquals(List.of(app2), test.killAll(new AppSelector(null, null, List.of(2))::matches))
+        );
+    }
+}
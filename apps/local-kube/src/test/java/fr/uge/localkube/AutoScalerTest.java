@@ -0,0 +1,144 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoScalerTest {
+    private static AutoScaler scaler(ApplicationDataCreator creator, List<String> failing){
+        return new AutoScaler(60_000, 10, creator::getAppDatas, names -> names.stream().map(name -> {
+            var app = creator.fromSpec(name);
+            if (failing.contains(name)){
+                creator.abandon(app);
+                return new StartResult(name, app, 0, "docker run of " + app.dockerInstance() + " failed with status 125");
+            }
+            creator.add(app);
+            return new StartResult(name, app, 0, null);
+        }).collect(Collectors.toList()), apps -> {
+            var ids = apps.stream().map(ApplicationData::id).collect(Collectors.toSet());
+            var stopped = creator.stopAll(app -> ids.contains(app.id()));
+            creator.killAll(app -> ids.contains(app.id()));
+            return stopped.stream().map(app -> new ContainerResult(app, 0, 0, null)).collect(Collectors.toList());
+        });
+    }
+
+    private static long running(ApplicationDataCreator creator, String name){
+        return creator.getAppDatas().stream().filter(app -> app.getNameApp().equals(name)).count();
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldStartTheMissingInstances(){
+        var creator = new ApplicationDataCreator();
+        var scaler = scaler(creator, List.of());
+        scaler.update(Map.of("hello", 3, "world", 1));
+        scaler.reconcile();
+        var status = scaler.status();
+        scaler.stop();
+        assertAll(
+                () -> assertEquals(3, running(creator, "hello")),
+                () -> assertEquals(1, running(creator, "world")),
+                () -> assertTrue(status.apps().stream().allMatch(JsonResponses.Scaled::converged)),
+                () -> assertTrue(status.apps().stream().allMatch(app -> app.convergenceMillis() != null)),
+                () -> assertEquals(4, status.actions().stream().filter(action -> action.action().equals("start")).count())
+        );
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldStopTheNewestExtraInstances(){
+        var creator = new ApplicationDataCreator();
+        List.of("hello:8081", "hello:8082", "hello:8083").forEach(spec -> creator.add(creator.fromSpec(spec)));
+        var scaler = scaler(creator, List.of());
+        scaler.update(Map.of("hello", 1));
+        scaler.reconcile();
+        var status = scaler.stop();
+        assertAll(
+                () -> assertEquals(List.of(1), creator.getAppDatas().stream().map(ApplicationData::id).collect(Collectors.toList())),
+                () -> assertEquals(List.of("hello-2", "hello-3"), status.actions().stream()
+                        .map(JsonResponses.ScaleAction::dockerInstance).sorted().collect(Collectors.toList())),
+                () -> assertEquals(ApplicationDataCreator.State.KILLED, creator.state(3))
+        );
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldReplaceAnInstanceWhichIsGone(){
+        var creator = new ApplicationDataCreator();
+        var scaler = scaler(creator, List.of());
+        scaler.update(Map.of("hello", 2));
+        scaler.reconcile();
+        creator.stop(creator.getAppDatas().get(0).id());
+        assertEquals(1, running(creator, "hello"));
+        scaler.reconcile();
+        scaler.stop();
+        assertEquals(2, running(creator, "hello"));
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldKeepTheErrorsOfTheFailedStarts(){
+        var creator = new ApplicationDataCreator();
+        var scaler = scaler(creator, List.of("world"));
+        scaler.update(Map.of("world", 2));
+        scaler.reconcile();
+        var status = scaler.stop();
+        assertAll(
+                () -> assertEquals(0, running(creator, "world")),
+                () -> assertFalse(status.apps().get(0).converged()),
+                () -> assertNull(status.apps().get(0).convergenceMillis()),
+                () -> assertTrue(status.actions().stream().allMatch(action -> action.error().startsWith("docker run of world-")))
+        );
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldKeepOnlyTheLastActions(){
+        var creator = new ApplicationDataCreator();
+        var scaler = scaler(creator, List.of());
+        scaler.update(Map.of("hello", 8));
+        scaler.reconcile();
+        scaler.update(Map.of("hello", 0));
+        scaler.reconcile();
+        var status = scaler.stop();
+        assertAll(
+                () -> assertEquals(0, running(creator, "hello")),
+                () -> assertEquals(10, status.actions().size()),
+                () -> assertEquals("stop", status.actions().get(9).action()),
+                () -> assertFalse(status.enabled())
+        );
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldConvergeOnItsOwnTick() throws InterruptedException {
+        var creator = new ApplicationDataCreator();
+        var starts = new CopyOnWriteArrayList<String>();
+        var scaler = new AutoScaler(20, 10, creator::getAppDatas, names -> names.stream().map(name -> {
+            var app = creator.fromSpec(name);
+            creator.add(app);
+            starts.add(app.dockerInstance());
+            return new StartResult(name, app, 0, null);
+        }).collect(Collectors.toList()), apps -> List.of());
+        scaler.update(Map.of("hello", 2));
+        for (var i = 0; i < 100 && running(creator, "hello") < 2; i++){
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        scaler.stop();
+        assertEquals(List.of("hello-1", "hello-2"), starts.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test @Tag("autoscale")
+    public void shouldRejectInvalidTargets(){
+        assertAll(
+                () -> assertEquals(Map.of("hello", 2, "world", 0), RequestDecoder.targets("{\"hello\": 2, \"world\": 0}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.targets("{}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.targets("{\"hello\": -1}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.targets("{\"hello\": \"2\"}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.targets("{\"hello:8081\": 2}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.targets("{\"hello\": null}")),
+                () -> assertThrows(LKArgumentsException.class, () -> new AutoScaler(0, 10, List::of, names -> List.of(), apps -> List.of()))
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaseImageStoreTest {
+    private static LocalKubeSettings settings(Path dir, boolean offline){
+        var properties = Map.of(
+                "localkube.base-image.directory", dir.resolve("base").toString(),
+                "localkube.jib.cache-directory", dir.resolve("cache").toString(),
+                "localkube.base-image.offline", String.valueOf(offline));
+        return new LocalKubeSettings(properties::get);
+    }
+
+    @Test @Tag("from")
+    public void shouldGetErrorWhenBaseImageIsMissingOffline(@TempDir Path dir){
+        var store = new BaseImageStore(settings(dir, true));
+        assertAll(
+                () -> assertThrows(LKArgumentsException.class, store::from),
+                () -> assertEquals(0, store.hits()),
+                () -> assertEquals(1, store.misses())
+        );
+    }
+
+    @Test @Tag("from")
+    public void shouldHitWhenBaseImageIsStored(@TempDir Path dir) throws Exception {
+        Files.createDirectories(dir.resolve("base"));
+        Files.createFile(dir.resolve("base").resolve("openjdk_15.tar"));
+        var store = new BaseImageStore(settings(dir, true));
+        store.from();
+        store.from();
+        assertAll(
+                () -> assertEquals(2, store.hits()),
+                () -> assertEquals(0, store.misses())
+        );
+    }
+
+    @Test @Tag("toString")
+    public void shouldHaveTheGreatDisplayOfCacheStatistics(@TempDir Path dir){
+        var store = new BaseImageStore(settings(dir, true));
+        assertEquals("{\n\tbase-image:openjdk:15,\n\tstore:" + dir.resolve("base").resolve("openjdk_15.tar")
+                + ",\n\thits:0,\n\tmisses:0\n}", store.toString());
+    }
+}
@@ -0,0 +1,113 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchStarterTest {
+    private static final StartPipeline.Step NOTHING = app -> { };
+
+    private static StartPipeline.Step sleep(long millis){
+        return app -> Thread.sleep(millis);
+    }
+
+    private static List<String> specs(int count){
+        return IntStream.range(0, count).mapToObj(i -> "hello:" + (8081 + i)).collect(Collectors.toList());
+    }
+
+    @Test @Tag("batch")
+    public void shouldStartAppsInParallel() throws InterruptedException {
+        var creator = new ApplicationDataCreator();
+        var starter = new BatchStarter(8, ApplicationData::dockerInstance, sleep(100), sleep(50), app -> {
+            Thread.sleep(50);
+            creator.add(app);
+        }, creator::abandon);
+        var begin = System.currentTimeMillis();
+        var results = starter.start(specs(8), creator::fromSpec);
+        var elapsed = System.currentTimeMillis() - begin;
+        assertAll(
+                () -> assertTrue(elapsed < 8 * 200 / 2, "batch took " + elapsed + "ms"),
+                () -> assertTrue(results.stream().allMatch(StartResult::isSuccess)),
+                () -> assertEquals(specs(8), results.stream().map(StartResult::spec).collect(Collectors.toList())),
+                () -> assertEquals(8, creator.getAppDatas().size())
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldBuildASharedImageOnce() throws InterruptedException {
+        var builds = new ConcurrentHashMap<String, AtomicInteger>();
+        var runs = new CopyOnWriteArrayList<String>();
+        var creator = new ApplicationDataCreator();
+        var starter = new BatchStarter(4, ApplicationData::getNameApp,
+                app -> { Thread.sleep(50); builds.computeIfAbsent(app.getNameApp(), k -> new AtomicInteger()).incrementAndGet(); },
+                NOTHING, app -> runs.add(app.dockerInstance()), creator::abandon);
+        var results = starter.start(List.of("hello:8081", "world:8082", "hello:8083", "hello:8084"), creator::fromSpec);
+        assertAll(
+                () -> assertTrue(results.stream().allMatch(StartResult::isSuccess)),
+                () -> assertEquals(1, builds.get("hello").get()),
+                () -> assertEquals(1, builds.get("world").get()),
+                () -> assertEquals(4, runs.size())
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldGiveBackAnAppWhoseImageIsUnknown() throws InterruptedException {
+        var creator = new ApplicationDataCreator();
+        var starter = new BatchStarter(2, app -> {
+            if (app.getNameApp().equals("world")){ throw new LKArgumentsException("The application world is not found"); }
+            return app.getNameApp();
+        }, NOTHING, NOTHING, creator::add, creator::abandon);
+        var results = starter.start(List.of("world:8081", "hello:8082"), creator::fromSpec);
+        assertAll(
+                () -> assertEquals("The application world is not found", results.get(0).error()),
+                () -> assertTrue(results.get(1).isSuccess()),
+                () -> assertEquals(1, creator.getAppDatas().size()),
+                () -> assertDoesNotThrow(() -> creator.fromSpec("world:8081"))
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldGiveTheErrorOfEachApp() throws InterruptedException {
+        var creator = new ApplicationDataCreator();
+        var starter = new BatchStarter(4, ApplicationData::dockerInstance, NOTHING, NOTHING, app -> {
+            if (app.port() == 8082){ throw new LKArgumentsException("docker run of " + app.dockerInstance() + " failed with status 125"); }
+            creator.add(app);
+        }, creator::abandon);
+        var results = starter.start(List.of("hello:8081", "hello:8082", ":8083", "hello:8081"), creator::fromSpec);
+        assertAll(
+                () -> assertTrue(results.get(0).isSuccess()),
+                () -> assertEquals("docker run of hello-2 failed with status 125", results.get(1).error()),
+                () -> assertNull(results.get(2).app()),
+                () -> assertFalse(results.get(2).isSuccess()),
+                () -> assertFalse(results.get(3).isSuccess()),
+                () -> assertEquals(ApplicationDataCreator.State.KILLED, creator.state(results.get(1).app().id())),
+                () -> assertEquals(1, creator.getAppDatas().size())
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldNotRunAppsWhoseImageFailed() throws InterruptedException {
+        var runs = new AtomicInteger();
+        var creator = new ApplicationDataCreator();
+        var starter = new BatchStarter(4, ApplicationData::getNameApp, app -> { throw new IllegalStateException("no jar"); },
+                NOTHING, app -> runs.incrementAndGet(), creator::abandon);
+        var results = starter.start(specs(3), creator::fromSpec);
+        assertAll(
+                () -> assertEquals(0, runs.get()),
+                () -> assertTrue(results.stream().allMatch(result -> "java.lang.IllegalStateException: no jar".equals(result.error())))
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldRejectInvalidParallelism(){
+        assertThrows(LKArgumentsException.class, () -> new BatchStarter(0, ApplicationData::dockerInstance, NOTHING, NOTHING, NOTHING, app -> { }));
+    }
+}
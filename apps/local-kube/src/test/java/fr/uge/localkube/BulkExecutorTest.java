@@ -0,0 +1,94 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkExecutorTest {
+    private static List<ApplicationData> apps(int count){
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new ApplicationData(i, "hello:" + (8080 + i), 8080 + i, "hello-" + i))
+                .collect(Collectors.toList());
+    }
+
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenParallelismIsNotPositive(){
+        assertThrows(LKArgumentsException.class, () -> new BulkExecutor(0, 1000));
+    }
+
+    @Test @Tag("run")
+    public void shouldKeepTheOrderOfTheApps() throws InterruptedException {
+        var results = new BulkExecutor(4, 1000).run(apps(20), app -> app.id() % 2);
+        assertAll(
+                () -> assertEquals(apps(20), results.stream().map(ContainerResult::app).collect(Collectors.toList())),
+                () -> assertEquals(0, results.get(1).status()),
+                () -> assertEquals(1, results.get(0).status()),
+                () -> assertFalse(results.get(0).isSuccess())
+        );
+    }
+
+    @Test @Tag("run")
+    public void shouldRunInParallel() throws InterruptedException {
+        var latch = new CountDownLatch(4);
+        var results = new BulkExecutor(4, 5000).run(apps(4), app -> {
+            latch.countDown();
+            return latch.await(2, TimeUnit.SECONDS) ? 0 : 1;
+        });
+        assertTrue(results.stream().allMatch(ContainerResult::isSuccess));
+    }
+
+    @Test @Tag("run")
+    public void shouldNotExceedTheParallelism() throws InterruptedException {
+        var current = new AtomicInteger();
+        var max = new AtomicInteger();
+        new BulkExecutor(3, 1000).run(apps(30), app -> {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            current.decrementAndGet();
+            return 0;
+        });
+        assertTrue(max.get() <= 3);
+    }
+
+    @Test @Tag("run")
+    public void shouldReportTimeoutOfASlowContainer() throws InterruptedException {
+        var results = new BulkExecutor(2, 100).run(apps(2), app -> {
+            if (app.id() == 1){ Thread.sleep(10_000); }
+            return 0;
+        });
+        assertAll(
+                () -> assertTrue(results.get(0).error().startsWith("timeout")),
+                () -> assertTrue(results.get(1).isSuccess())
+        );
+    }
+
+    @Test @Tag("run")
+    public void shouldReportErrorOfAnUnreachableDocker() throws InterruptedException {
+        var results = new BulkExecutor(2, 1000).run(apps(1), app -> { throw new IOException("no docker"); });
+        assertAll(
+                () -> assertEquals(-1, results.get(0).status()),
+                () -> assertTrue(results.get(0).toString().contains("error:java.io.IOException: no docker"))
+        );
+    }
+
+    @Test @Tag("selector")
+    public void shouldSelectAppsMatchingAllCriteria(){
+        var app = new ApplicationData(12, "hello:8081", 8081, "hello-12");
+        assertAll(
+                () -> assertTrue(AppSelector.all().matches(app)),
+                () -> assertTrue(new AppSelector("hello", "hello-1", List.of(12)).matches(app)),
+                () -> assertFalse(new AppSelector("hello", "hello-2", null).matches(app)),
+                () -> assertFalse(new AppSelector("world", null, null).matches(app)),
+                () -> assertFalse(new AppSelector(null, null, List.of(1, 2)).matches(app))
+        );
+    }
+}
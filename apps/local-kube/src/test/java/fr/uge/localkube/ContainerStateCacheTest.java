@@ -0,0 +1,179 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContainerStateCacheTest {
+    private static final class EventRuntime implements ContainerRuntime {
+        private final BlockingQueue<Map<String, String>> lists = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> sessions = new LinkedBlockingQueue<>();
+        private final AtomicInteger exists = new AtomicInteger();
+
+        @Override public int load(Path tar) { return 0; }
+        @Override public int start(String name) { return 0; }
+        @Override public int run(String name, int port, String image, Map<String, String> env) { return 0; }
+        @Override public int stop(String name) { return 0; }
+        @Override public int remove(String name) { return 0; }
+        @Override public InputStream logs(String name, long minutes) { return InputStream.nullInputStream(); }
+        @Override public InputStream follow(String name, long since) { return InputStream.nullInputStream(); }
+
+        @Override
+        public boolean exists(String name) {
+            exists.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public Map<String, String> containers() throws IOException, InterruptedException {
+            var list = lists.take();
+            if (list.isEmpty()){ throw new IOException("Cannot connect to the Docker daemon"); }
+            return list;
+        }
+
+        /** the events of a session, the session ends (the subscription breaks) at the line "EOF" */
+        @Override
+        public InputStream events(long since) {
+            return new InputStream() {
+                private ByteArrayInputStream line = new ByteArrayInputStream(new byte[0]);
+
+                @Override
+                public int read() throws IOException {
+                    var buffer = new byte[1];
+                    return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if (line.available() == 0){
+                        String event;
+                        try {
+                            event = sessions.take();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        if (event.equals("EOF")){ return -1; }
+                        line = new ByteArrayInputStream((event + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return line.read(buffer, offset, length);
+                }
+            };
+        }
+    }
+
+    private static String event(String action, String name){
+        return "{\"Type\":\"container\",\"Action\":\"" + action + "\",\"Actor\":{\"ID\":\"abc\",\"Attributes\":{\"image\":\"" + name
+                + "\",\"name\":\"" + name + "\"}},\"time\":1605000000}";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (var i = 0; i < 500 && !condition.getAsBoolean(); i++){
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test @Tag("events")
+    public void shouldFollowTheStatesOfTheContainers() throws InterruptedException {
+        var runtime = new EventRuntime();
+        var exited = new CopyOnWriteArrayList<String>();
+        runtime.lists.add(Map.of("hello-1", "running", "hello-2", "exited"));
+        var cache = new ContainerStateCache(runtime, 10, exited::add);
+        runtime.sessions.addAll(List.of(event("create", "world-1"), event("start", "world-1"), event("start", "hello-2"),
+                event("die", "hello-1"), event("destroy", "hello-1")));
+        await(() -> cache.stats().events() == 5);
+        assertAll(
+                () -> assertTrue(cache.isSynced()),
+                () -> assertEquals(Optional.of(ContainerStateCache.State.RUNNING), cache.state("world-1")),
+                () -> assertEquals(Optional.of(ContainerStateCache.State.RUNNING), cache.state("hello-2")),
+                () -> assertEquals(Optional.empty(), cache.state("hello-1")),
+                () -> assertEquals(List.of("hello-1"), exited),
+                () -> assertFalse(cache.mayRun("hello-1")),
+                () -> assertEquals(2, cache.stats().running())
+        );
+    }
+
+    @Test @Tag("events")
+    public void shouldResyncAfterAReconnection() throws InterruptedException {
+        var runtime = new EventRuntime();
+        var exited = new CopyOnWriteArrayList<String>();
+        runtime.lists.add(Map.of("hello-1", "running", "hello-2", "running"));
+        var cache = new ContainerStateCache(runtime, 10, exited::add);
+        runtime.sessions.add(event("start", "world-1"));
+        await(() -> cache.stats().events() == 1);
+        runtime.lists.add(Map.of("hello-1", "exited", "world-1", "running"));   // hello-1 died and hello-2 was removed while disconnected
+        runtime.sessions.add("EOF");
+        await(() -> cache.stats().resyncs() == 2 && cache.isSynced());
+        assertAll(
+                () -> assertEquals(List.of("hello-1", "hello-2"), exited.stream().sorted().collect(Collectors.toList())),
+                () -> assertEquals(Optional.of(ContainerStateCache.State.EXITED), cache.state("hello-1")),
+                () -> assertEquals(Optional.empty(), cache.state("hello-2")),
+                () -> assertEquals(Optional.of(ContainerStateCache.State.RUNNING), cache.state("world-1"))
+        );
+    }
+
+    @Test @Tag("events")
+    public void shouldAskDockerWhileNotSynced() throws IOException, InterruptedException {
+        var runtime = new EventRuntime();
+        runtime.lists.add(Map.of());
+        var cache = new ContainerStateCache(runtime, 60_000, name -> { });
+        await(() -> runtime.lists.isEmpty());
+        assertAll(
+                () -> assertFalse(cache.isSynced()),
+                () -> assertTrue(cache.exists("hello-1")),
+                () -> assertEquals(1, runtime.exists.get()),
+                () -> assertTrue(cache.mayRun("hello-1"))
+        );
+    }
+
+    @Test @Tag("events")
+    public void shouldReadTheContainersFromTheCacheOnceSynced() throws IOException, InterruptedException {
+        var runtime = new EventRuntime();
+        runtime.lists.add(Map.of("hello-1", "exited"));
+        var cache = new ContainerStateCache(runtime, 10, name -> { });
+        await(cache::isSynced);
+        cache.started("hello-2");
+        assertAll(
+                () -> assertTrue(cache.exists("hello-1")),
+                () -> assertTrue(cache.exists("hello-2")),
+                () -> assertFalse(cache.exists("hello-3")),
+                () -> assertEquals(0, runtime.exists.get()),
+                () -> assertTrue(cache.mayRun("hello-2")),
+                () -> assertFalse(cache.mayRun("hello-1"))
+        );
+    }
+
+    @Test @Tag("events")
+    public void shouldIgnoreTheOtherEvents() throws InterruptedException {
+        var runtime = new EventRuntime();
+        var exited = new CopyOnWriteArrayList<String>();
+        runtime.lists.add(Map.of("hello-1", "running"));
+        var cache = new ContainerStateCache(runtime, 10, exited::add);
+        await(cache::isSynced);
+        cache.apply(event("exec_start: sh -c ls", "hello-1"));
+        cache.apply(event("pause", "hello-1"));
+        cache.apply("{\"Type\":\"network\",\"Action\":\"destroy\",\"Actor\":{\"Attributes\":{\"name\":\"hello-1\"}}}");
+        cache.apply("not json");
+        cache.apply("");
+        assertAll(
+                () -> assertEquals(Optional.of(ContainerStateCache.State.PAUSED), cache.state("hello-1")),
+                () -> assertEquals(List.of(), exited)
+        );
+    }
+}
@@ -0,0 +1,244 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DockerEngineRuntimeTest {
+    private ServerSocket server;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+    /** a stub docker host answering each request line with the response given by the handler */
+    private String stub(Function<String, byte[]> handler) throws IOException {
+        server = new ServerSocket(0);
+        var thread = new Thread(() -> {
+            try {
+                while (true) {
+                    var socket = server.accept();
+                    connections.incrementAndGet();
+                    new Thread(() -> serve(socket, handler)).start();
+                }
+            } catch (IOException e) {
+                // server closed
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return "tcp://localhost:" + server.getLocalPort();
+    }
+
+    private void serve(Socket socket, Function<String, byte[]> handler) {
+        try (socket; var input = new BufferedInputStream(socket.getInputStream()); var output = socket.getOutputStream()) {
+            while (true) {
+                var request = EngineClient.readLine(input);
+                var length = 0;
+                for (var line = EngineClient.readLine(input); !line.isEmpty(); line = EngineClient.readLine(input)) {
+                    if (line.startsWith("Content-Length:")) { length = Integer.parseInt(line.substring(15).trim()); }
+                }
+                bodies.add(new String(input.readNBytes(length), StandardCharsets.UTF_8));
+                requests.add(request);
+                output.write(handler.apply(request));
+                output.flush();
+            }
+        } catch (IOException e) {
+            // connection closed by the client
+        }
+    }
+
+    private static byte[] response(String head, byte[] body) {
+        var out = new ByteArrayOutputStream();
+        out.writeBytes((head + "\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    private static byte[] frame(int stream, String text) {
+        var payload = text.getBytes(StandardCharsets.UTF_8);
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[] { (byte) stream, 0, 0, 0, 0, 0, (byte) (payload.length >> 8), (byte) payload.length });
+        out.writeBytes(payload);
+        return out.toByteArray();
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        if (server != null) { server.close(); }
+    }
+
+    @Test @Tag("engine")
+    public void shouldGetStatusZeroWhenStartSucceeds() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> response("HTTP/1.1 204 No Content", new byte[0]))));
+        assertAll(
+                () -> assertEquals(0, runtime.start("hello-1")),
+                () -> assertEquals("POST /containers/hello-1/start HTTP/1.1", requests.get(0))
+        );
+    }
+
+    @Test @Tag("engine")
+    public void shouldGetHttpStatusWhenStopFails() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> response("HTTP/1.1 404 Not Found",
+                "{\"message\":\"No such container\"}".getBytes(StandardCharsets.UTF_8)))));
+        assertEquals(404, runtime.stop("hello-1"));
+    }
+
+    @Test @Tag("engine")
+    public void shouldNotFindUnexistingContainer() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> r.contains("hello-1")
+                ? response("HTTP/1.1 200 OK", "{}".getBytes(StandardCharsets.UTF_8))
+                : response("HTTP/1.1 404 Not Found", new byte[0]))));
+        assertAll(
+                () -> assertTrue(runtime.exists("hello-1")),
+                () -> assertFalse(runtime.exists("hello-2"))
+        );
+    }
+
+    @Test @Tag("engine")
+    public void shouldReuseTheConnectionBetweenRequests() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> response("HTTP/1.1 204 No Content", new byte[0]))));
+        runtime.start("hello-1");
+        runtime.stop("hello-1");
+        runtime.remove("hello-1");
+        assertAll(
+                () -> assertEquals(3, requests.size()),
+                () -> assertEquals(1, connections.get())
+        );
+    }
+
+    @Test @Tag("engine")
+    public void shouldCreateThenStartWhenRunning() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> r.contains("create")
+                ? response("HTTP/1.1 201 Created", "{\"Id\":\"abc\"}".getBytes(StandardCharsets.UTF_8))
+                : response("HTTP/1.1 204 No Content", new byte[0]))));
+        assertAll(
+                () -> assertEquals(0, runtime.run("hello-1", 8081, "hello:3f9a1c0b2d4e", Map.of("LOCALKUBE_INSTANCE", "hello-1"))),
+                () -> assertEquals(List.of("POST /containers/create?name=hello-1 HTTP/1.1",
+                        "POST /containers/hello-1/start HTTP/1.1"), requests),
+                () -> assertTrue(bodies.get(0).startsWith("{\"Image\":\"hello:3f9a1c0b2d4e\",\"Env\":[\"LOCALKUBE_INSTANCE=hello-1\"],"), bodies.get(0))
+        );
+    }
+
+    @Test @Tag("engine")
+    public void shouldDemultiplexChunkedLogs() throws IOException {
+        var chunked = new ByteArrayOutputStream();
+        chunked.writeBytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        for (var frame : List.of(frame(1, "line 1\n"), frame(2, "line 2\n"))) {
+            chunked.writeBytes((Integer.toHexString(frame.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            chunked.writeBytes(frame);
+            chunked.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        chunked.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> chunked.toByteArray())));
+        try (var logs = runtime.logs("hello-1", 10)) {
+            assertEquals("line 1\nline 2\n", new String(logs.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test @Tag("engine")
+    public void shouldCloseAnEndlessBodyWithoutReadingIt() throws IOException {
+        var frame = frame(1, "line 1\n");
+        var head = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" + Integer.toHexString(frame.length) + "\r\n";
+        var endless = new ByteArrayOutputStream();
+        endless.writeBytes(head.getBytes(StandardCharsets.US_ASCII));
+        endless.writeBytes(frame);
+        endless.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));   // no last chunk, the logs are followed
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> r.contains("logs")
+                ? endless.toByteArray() : response("HTTP/1.1 204 No Content", new byte[0]))));
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            try (var logs = new BufferedReader(new InputStreamReader(runtime.follow("hello-1", 1605000000), StandardCharsets.UTF_8))) {
+                assertEquals("line 1", logs.readLine());
+            }
+        });
+        assertAll(
+                () -> assertEquals(0, runtime.start("hello-1")),
+                () -> assertEquals(2, connections.get())
+        );
+    }
+
+    private static byte[] chunkedFrames(boolean last, String... lines) {
+        var chunked = new ByteArrayOutputStream();
+        chunked.writeBytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        for (var line : lines) {
+            var frame = frame(1, line + "\n");
+            chunked.writeBytes((Integer.toHexString(frame.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            chunked.writeBytes(frame);
+            chunked.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        if (last) { chunked.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII)); }
+        return chunked.toByteArray();
+    }
+
+    private static final String[] TRACE = {
+            "2020-11-20 10:00:01.000 ERROR 1 --- [main] f.u.Hello : Say hi failed",
+            "java.lang.IllegalStateException: hi",
+            "\tat f.u.Hello.main(Hello.java:12)",
+            "2020-11-20 10:00:02.000  INFO 1 --- [main] f.u.Hello : Started Hello"
+    };
+
+    @Test @Tag("engine")
+    public void shouldFoldTheStackTraceOfFramedLogs() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> chunkedFrames(true, TRACE))));
+        try (var logs = new BufferedReader(new InputStreamReader(runtime.logs("hello-1", 10), StandardCharsets.UTF_8))) {
+            var entries = new SpringLogReader(logs);
+            var error = entries.next();
+            assertAll(
+                    () -> assertEquals("Say hi failed\njava.lang.IllegalStateException: hi\n\tat f.u.Hello.main(Hello.java:12)", error.message()),
+                    () -> assertEquals("Started Hello", entries.next().message()),
+                    () -> assertNull(entries.next())
+            );
+        }
+    }
+
+    @Test @Tag("engine")
+    public void shouldFoldTheReadableStackTraceOfFollowedFramedLogs() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> chunkedFrames(false, TRACE))));
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            try (var logs = new BufferedReader(new InputStreamReader(runtime.follow("hello-1", 1605000000), StandardCharsets.UTF_8))) {
+                var entries = new SpringLogReader(logs, true);
+                assertEquals("Say hi failed\njava.lang.IllegalStateException: hi\n\tat f.u.Hello.main(Hello.java:12)", entries.next().message());
+            }
+        });
+    }
+
+    @Test @Tag("engine")
+    public void shouldListTheContainersWithTheirState() throws IOException {
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> response("HTTP/1.1 200 OK",
+                "[{\"Id\":\"abc\",\"Names\":[\"/hello-1\"],\"State\":\"running\"},{\"Id\":\"def\",\"Names\":[\"/world-1\"],\"State\":\"exited\"}]"
+                        .getBytes(StandardCharsets.UTF_8)))));
+        assertAll(
+                () -> assertEquals(Map.of("hello-1", "running", "world-1", "exited"), runtime.containers()),
+                () -> assertEquals("GET /containers/json?all=1 HTTP/1.1", requests.get(0))
+        );
+    }
+
+    @Test @Tag("engine")
+    public void shouldStreamTheContainerEvents() throws IOException {
+        var event = "{\"Type\":\"container\",\"Action\":\"die\",\"Actor\":{\"Attributes\":{\"name\":\"hello-1\"}}}\n";
+        var runtime = new DockerEngineRuntime(new EngineClient(stub(r -> response("HTTP/1.1 200 OK", event.getBytes(StandardCharsets.UTF_8)))));
+        try (var events = runtime.events(1605000000)) {
+            assertAll(
+                    () -> assertEquals(event, new String(events.readAllBytes(), StandardCharsets.UTF_8)),
+                    () -> assertTrue(requests.get(0).startsWith("GET /events?since=1605000000&filters="))
+            );
+        }
+    }
+
+    @Test @Tag("engine")
+    public void shouldGetErrorWhenHostIsInvalid() {
+        assertThrows(LKArgumentsException.class, () -> new EngineClient("http://localhost:2375"));
+    }
+}
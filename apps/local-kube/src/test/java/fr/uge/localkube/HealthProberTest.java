@@ -0,0 +1,175 @@
+package fr.uge.localkube;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthProberTest {
+    private HttpServer server;
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/app/hello", exchange -> {
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer(){
+        server.stop(0);
+    }
+
+    private static LocalKubeSettings settings(String path, boolean replace){
+        var properties = Map.of(
+                "localkube.health.host", "127.0.0.1",
+                "localkube.health.path", path,
+                "localkube.health.interval-millis", "3600000",
+                "localkube.health.timeout-millis", "500",
+                "localkube.health.failures", "2",
+                "localkube.health.replace", String.valueOf(replace),
+                "localkube.health.threads", "1");
+        return new LocalKubeSettings(properties::get);
+    }
+
+    private ApplicationData app(int id){
+        return app(id, server.getAddress().getPort());
+    }
+
+    private static ApplicationData app(int id, int port){
+        return new ApplicationData(id, "hello:" + port, port, "hello-" + id);
+    }
+
+    private static int closedPort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test @Tag("health")
+    public void shouldMarkAnAnsweringInstanceHealthy() throws InterruptedException {
+        var prober = new HealthProber(settings("/app/hello", false), () -> List.of(app(1)), apps -> List.of());
+        prober.probeAll();
+        var health = prober.health().get(0);
+        assertAll(
+                () -> assertEquals(HealthProber.State.HEALTHY, health.state()),
+                () -> assertEquals(0, health.failures()),
+                () -> assertNotNull(health.latencyMillis()),
+                () -> assertNull(health.error())
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldMarkAnInstanceUnhealthyAfterFailuresInARow() throws InterruptedException {
+        var prober = new HealthProber(settings("/app/hello", false), () -> List.of(app(1)), apps -> List.of());
+        prober.probeAll();
+        status.set(503);
+        prober.probeAll();
+        assertEquals(HealthProber.State.HEALTHY, prober.state(1));
+        prober.probeAll();
+        var health = prober.health().get(0);
+        assertAll(
+                () -> assertEquals(HealthProber.State.UNHEALTHY, health.state()),
+                () -> assertEquals(2, health.failures()),
+                () -> assertEquals("HTTP 503", health.error())
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldGiveTimeToANewInstance() throws IOException, InterruptedException {
+        var port = closedPort();
+        var prober = new HealthProber(settings("/app/hello", false), () -> List.of(app(1, port)), apps -> List.of());
+        for (var i = 0; i < 3; i++){
+            prober.probeAll();
+        }
+        var health = prober.health().get(0);
+        assertAll(
+                () -> assertEquals(HealthProber.State.STARTING, health.state()),
+                () -> assertEquals(3, health.failures()),
+                () -> assertNull(health.latencyMillis()),
+                () -> assertTrue(health.error().startsWith("ConnectException"), health.error())
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldTimeOutASlowProbe() throws InterruptedException {
+        var prober = new HealthProber(settings("/slow", false), () -> List.of(app(1)), apps -> List.of());
+        var begin = System.currentTimeMillis();
+        prober.probeAll();
+        var elapsed = System.currentTimeMillis() - begin;
+        assertAll(
+                () -> assertTrue(elapsed < 1_500, "round took " + elapsed + "ms"),
+                () -> assertTrue(prober.health().get(0).error().startsWith("HttpTimeoutException"), prober.health().get(0).error())
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldProbeManyInstancesWithOneThread() throws InterruptedException {
+        var apps = IntStream.rangeClosed(1, 200).mapToObj(this::app).collect(Collectors.toList());
+        var prober = new HealthProber(settings("/app/hello", false), () -> apps, unhealthy -> List.of());
+        prober.probeAll();
+        assertAll(
+                () -> assertEquals(200, prober.health().size()),
+                () -> assertTrue(prober.health().stream().allMatch(health -> health.state() == HealthProber.State.HEALTHY))
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldReplaceTheUnhealthyInstances() throws InterruptedException {
+        var replaced = new CopyOnWriteArrayList<ApplicationData>();
+        var running = new CopyOnWriteArrayList<>(List.of(app(1), app(2)));
+        var prober = new HealthProber(settings("/app/hello", true), () -> running, apps -> {
+            replaced.addAll(apps);
+            return apps.stream().map(app -> new StartResult(app.app(), app(3), 0, null)).collect(Collectors.toList());
+        });
+        prober.probeAll();
+        status.set(500);
+        running.remove(1);
+        prober.probeAll();
+        prober.probeAll();
+        assertAll(
+                () -> assertEquals(List.of(app(1)), replaced),
+                () -> assertEquals(1, prober.replacements()),
+                () -> assertEquals(List.of(), prober.health())
+        );
+    }
+
+    @Test @Tag("health")
+    public void shouldForgetTheInstancesWhichAreGone() throws InterruptedException {
+        var running = new CopyOnWriteArrayList<>(List.of(app(1), app(2)));
+        var prober = new HealthProber(settings("/app/hello", false), () -> running, apps -> List.of());
+        prober.probeAll();
+        running.remove(0);
+        prober.probeAll();
+        assertEquals(List.of(2), prober.health().stream().map(JsonResponses.Health::id).collect(Collectors.toList()));
+    }
+}
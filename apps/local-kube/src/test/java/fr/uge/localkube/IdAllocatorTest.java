@@ -0,0 +1,95 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+    @Test @Tag("allocate")
+    public void shouldAllocateIdsFromOne(){
+        var ids = new IdAllocator();
+        assertAll(
+                () -> assertEquals(1, ids.allocate()),
+                () -> assertEquals(2, ids.allocate()),
+                () -> assertEquals(3, ids.allocate())
+        );
+    }
+
+    @Test @Tag("allocate")
+    public void shouldRecycleReleasedIds(){
+        var ids = new IdAllocator();
+        ids.allocate();
+        ids.allocate();
+        ids.release(1);
+        assertAll(
+                () -> assertEquals(1, ids.allocate()),
+                () -> assertEquals(3, ids.allocate())
+        );
+    }
+
+    @Test @Tag("allocate")
+    public void shouldGetErrorWhenCapacityIsReached(){
+        var ids = new IdAllocator(2);
+        ids.allocate();
+        ids.allocate();
+        assertThrows(LKArgumentsException.class, ids::allocate);
+        ids.release(2);
+        assertEquals(2, ids.allocate());
+    }
+
+    @Test @Tag("allocate")
+    public void shouldGetErrorWhenCapacityIsNotPositive(){
+        assertThrows(LKArgumentsException.class, () -> new IdAllocator(0));
+    }
+
+    @Test @Tag("release")
+    public void shouldIgnoreReleaseOfUnallocatedIds(){
+        var ids = new IdAllocator();
+        ids.allocate();
+        ids.release(1);
+        ids.release(1);
+        ids.release(42);
+        assertAll(
+                () -> assertEquals(0, ids.size()),
+                () -> assertEquals(1, ids.allocate()),
+                () -> assertEquals(2, ids.allocate())
+        );
+    }
+
+    @Test @Tag("allocate")
+    public void shouldAllocateMoreThanAThousandIds(){
+        var ids = new IdAllocator();
+        for (var i = 0; i < 100_000; i++){
+            ids.allocate();
+        }
+        assertAll(
+                () -> assertEquals(100_000, ids.size()),
+                () -> assertTrue(ids.isAllocated(100_000))
+        );
+    }
+
+    @Test @Tag("claim")
+    public void shouldClaimAnIdAndFreeTheSkippedOnes(){
+        var ids = new IdAllocator();
+        ids.claim(4);
+        ids.claim(2);
+        assertAll(
+                () -> assertTrue(ids.isAllocated(4)),
+                () -> assertEquals(2, ids.size()),
+                () -> assertEquals(1, ids.allocate()),
+                () -> assertEquals(3, ids.allocate()),
+                () -> assertEquals(5, ids.allocate())
+        );
+    }
+
+    @Test @Tag("claim")
+    public void shouldGetErrorWhenClaimingAnAllocatedId(){
+        var ids = new IdAllocator();
+        ids.allocate();
+        assertAll(
+                () -> assertThrows(LKArgumentsException.class, () -> ids.claim(1)),
+                () -> assertThrows(LKArgumentsException.class, () -> ids.claim(0))
+        );
+    }
+}
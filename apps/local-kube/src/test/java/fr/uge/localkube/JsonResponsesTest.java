@@ -0,0 +1,81 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonResponsesTest {
+    private static final ApplicationData APP = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        var out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test @Tag("json")
+    public void shouldWriteAnArrayOfApps() throws IOException {
+        var response = JsonResponses.array(JsonResponses.App.of(List.of(APP, new ApplicationData(2, "world:8082", 8082, "world-2"))));
+        assertAll(
+                () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
+                () -> assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType()),
+                () -> assertEquals("[{\"id\":1,\"app\":\"hello:8081\",\"port\":8081,\"docker-instance\":\"hello-1\"},"
+                        + "{\"id\":2,\"app\":\"world:8082\",\"port\":8082,\"docker-instance\":\"world-2\"}]", body(response))
+        );
+    }
+
+    @Test @Tag("json")
+    public void shouldWriteAnErrorWithABadRequestStatus() throws IOException {
+        var response = JsonResponses.error(new LKArgumentsException("No apps to stop"));
+        assertAll(
+                () -> assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode()),
+                () -> assertEquals("{\"error\":\"No apps to stop\"}", body(response))
+        );
+    }
+
+    @Test @Tag("json")
+    public void shouldLeaveOutTheMissingFields() throws IOException {
+        var results = JsonResponses.Result.of(List.of(new ContainerResult(APP, 0, 12, null), new ContainerResult(APP, -1, 30, "timeout after 30ms")));
+        assertEquals("[{\"id\":1,\"docker-instance\":\"hello-1\",\"status\":0,\"time-ms\":12},"
+                + "{\"id\":1,\"docker-instance\":\"hello-1\",\"status\":-1,\"time-ms\":30,\"error\":\"timeout after 30ms\"}]",
+                body(JsonResponses.array(results)));
+    }
+
+    @Test @Tag("json")
+    public void shouldEscapeTheLogMessages() throws IOException {
+        var logs = JsonResponses.AppLogs.of(APP, List.of(new JsonResponses.Entry("2020-11-20 10:00:00.000", "ERROR", "main", "f.u.Hello",
+                "Say \"hi\"\n\tat f.u.Hello.main(Hello.java:12)")));
+        assertEquals("{\"id\":1,\"app\":\"hello:8081\",\"port\":8081,\"docker-instance\":\"hello-1\",\"entries\":[{\"time\":\"2020-11-20 10:00:00.000\","
+                + "\"level\":\"ERROR\",\"thread\":\"main\",\"logger\":\"f.u.Hello\",\"message\":\"Say \\\"hi\\\"\\n\\tat f.u.Hello.main(Hello.java:12)\"}]}",
+                body(JsonResponses.value(logs)));
+    }
+
+    @Test @Tag("text")
+    public void shouldKeepTheTextFormatOfTheLogs(){
+        var logs = JsonResponses.AppLogs.of(APP, List.of(new JsonResponses.Entry("2020-11-20 10:00:00.000", "INFO", null, null, "Started")));
+        assertAll(
+                () -> assertEquals("{\n\tid:1,\n\tapp:hello:8081,\n\tport:8081,\n\tdocker-instance:hello-1\n\tmessage :\n\t"
+                        + "[2020-11-20 10:00:00.000] INFO : Started\n}", logs.toString()),
+                () -> assertEquals("{\n\tid:1,\n\tapp:hello:8081,\n\tport:8081,\n\tdocker-instance:hello-1,\n\terror:timeout after 10ms\n}",
+                        JsonResponses.AppLogs.error(APP, "timeout after 10ms").toString())
+        );
+    }
+
+    @Test @Tag("json")
+    public void shouldWriteTheProgressOfAJob() throws IOException {
+        var job = new StartJob(7, APP);
+        assertEquals("{\"job\":7,\"app\":\"hello:8081\",\"docker-instance\":\"hello-1\",\"status\":\"QUEUED\","
+                + "\"build\":{\"state\":\"pending\"},\"load\":{\"state\":\"pending\"},\"run\":{\"state\":\"pending\"}}",
+                body(JsonResponses.value(job.snapshot())));
+    }
+}
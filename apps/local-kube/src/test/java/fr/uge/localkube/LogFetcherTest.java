@@ -0,0 +1,127 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogFetcherTest {
+    private static List<ApplicationData> apps(int count){
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new ApplicationData(i, "hello:" + (8080 + i), 8080 + i, "hello-" + i))
+                .collect(Collectors.toList());
+    }
+
+    private static String error(ApplicationData app, String message){
+        return app.dockerInstance() + " " + message;
+    }
+
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenTimeoutIsNotPositive(){
+        assertThrows(LKArgumentsException.class, () -> new LogFetcher(1, 0));
+    }
+
+    @Test @Tag("fetch")
+    public void shouldKeepTheOrderOfTheApps() throws InterruptedException {
+        var logs = new LogFetcher(4, 1000).fetch(apps(20), (app, onTimeout) -> {
+            try {
+                Thread.sleep(20 - app.id());   // the last apps end first
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        assertEquals(apps(20).stream().map(ApplicationData::dockerInstance).collect(Collectors.toList()), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldFetchAtTheSameTime() throws InterruptedException {
+        var latch = new CountDownLatch(4);
+        var logs = new LogFetcher(4, 5000).fetch(apps(4), (app, onTimeout) -> {
+            latch.countDown();
+            try {
+                return latch.await(2, TimeUnit.SECONDS) ? "ok" : "alone";
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }, LogFetcherTest::error);
+        assertEquals(List.of("ok", "ok", "ok", "ok"), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldGivePartialResultsWhenAnAppIsTooLong() throws InterruptedException {
+        var end = new CountDownLatch(1);
+        var logs = new LogFetcher(2, 100).fetch(apps(3), (app, onTimeout) -> {
+            if (app.id() == 2){
+                try {
+                    end.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        end.countDown();
+        assertEquals(List.of("hello-1", "hello-2 timeout after 100ms", "hello-3"), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldGivePartialResultsWhenAnAppFails() throws InterruptedException {
+        var logs = new LogFetcher(2, 1000).fetch(apps(2), (app, onTimeout) -> {
+            if (app.id() == 1){ throw new IOException("no docker"); }
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        assertEquals(List.of("hello-1 java.io.IOException: no docker", "hello-2"), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldInterruptAFetchTooLongToFreeItsThread() throws InterruptedException {
+        var logs = new LogFetcher(1, 100).fetch(apps(2), (app, onTimeout) -> {
+            if (app.id() == 1){
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        assertEquals(List.of("hello-1 timeout after 100ms", "hello-2"), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldCloseTheStreamOfAFetchTooLong() throws InterruptedException {
+        var closed = new CountDownLatch(1);
+        var logs = new LogFetcher(1, 100).fetch(apps(2), (app, onTimeout) -> {
+            if (app.id() == 1){
+                onTimeout.accept(closed::countDown);
+                while (closed.getCount() != 0){ Thread.onSpinWait(); }  // a read deaf to the interrupts
+            }
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        assertEquals(List.of("hello-1 timeout after 100ms", "hello-2"), logs);
+    }
+
+    @Test @Tag("fetch")
+    public void shouldGiveUpTheFetchesAtTheDeadline() throws InterruptedException {
+        var end = new CountDownLatch(1);
+        var begin = System.nanoTime();
+        var logs = new LogFetcher(1, 100).fetch(apps(2), (app, onTimeout) -> {
+            while (end.getCount() != 0){ Thread.onSpinWait(); }     // a fetch which can't be ended
+            return app.dockerInstance();
+        }, LogFetcherTest::error);
+        var elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        end.countDown();
+        assertAll(
+                () -> assertEquals(List.of("hello-1 timeout after 100ms", "hello-2 timeout after 100ms"), logs),
+                () -> assertTrue(elapsed < 1000, "fetch took " + elapsed + "ms")
+        );
+    }
+}
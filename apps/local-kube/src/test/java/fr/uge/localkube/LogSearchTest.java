@@ -0,0 +1,101 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSearchTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static LogStore store(Path dir){
+        var store = new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256);
+        store.append(List.of(
+                new LogLine("hello", "hello-1", DAY, "INFO", "Started Hello in 2 seconds"),
+                new LogLine("hello", "hello-1", DAY + 1, "WARN", "Connection refused by the database"),
+                new LogLine("hello", "hello-2", 2 * DAY, "INFO", "Connection refused, connection retried"),
+                new LogLine("world", "world-1", 2 * DAY, "INFO", "Started World")));
+        return store;
+    }
+
+    private static List<String> messages(List<LogHit> hits){
+        return hits.stream().map(hit -> hit.line().message()).collect(Collectors.toList());
+    }
+
+    @Test @Tag("search")
+    public void shouldFindTermsInAllAppsAndDays(@TempDir Path dir){
+        var hits = store(dir).search("started", null, null, null, 0, Long.MAX_VALUE, 0, 20);
+        assertEquals(List.of("Started Hello in 2 seconds", "Started World"),
+                messages(hits).stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test @Tag("search")
+    public void shouldRankTheBestHitFirst(@TempDir Path dir){
+        var hits = store(dir).search("connection", "hello", null, null, 0, Long.MAX_VALUE, 0, 20);
+        assertEquals(List.of("Connection refused, connection retried", "Connection refused by the database"), messages(hits));
+    }
+
+    @Test @Tag("search")
+    public void shouldFindPhrases(@TempDir Path dir){
+        var hits = store(dir).search("\"refused by\"", null, null, null, 0, Long.MAX_VALUE, 0, 20);
+        assertEquals(List.of("Connection refused by the database"), messages(hits));
+    }
+
+    @Test @Tag("search")
+    public void shouldScopeByInstanceLevelAndTime(@TempDir Path dir){
+        var store = store(dir);
+        assertAll(
+                () -> assertEquals(List.of("Connection refused, connection retried"),
+                        messages(store.search("refused", null, "hello-2", null, 0, Long.MAX_VALUE, 0, 20))),
+                () -> assertEquals(List.of("Connection refused by the database"),
+                        messages(store.search("refused", null, null, "WARN", 0, Long.MAX_VALUE, 0, 20))),
+                () -> assertEquals(List.of("Connection refused by the database"),
+                        messages(store.search("refused", null, null, null, 0, 2 * DAY - 1, 0, 20))),
+                () -> assertEquals(List.of(), store.search("refused", "world", null, null, 0, Long.MAX_VALUE, 0, 20))
+        );
+    }
+
+    @Test @Tag("search")
+    public void shouldPaginateTheHits(@TempDir Path dir){
+        var store = new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256);
+        store.append(IntStream.range(0, 25).mapToObj(i -> new LogLine("hello", "hello-1", DAY + i, "INFO", "request " + i))
+                .collect(Collectors.toList()));
+        var all = messages(store.search("request", null, null, null, 0, Long.MAX_VALUE, 0, 25));
+        assertAll(
+                () -> assertEquals(all.subList(0, 10), messages(store.search("request", null, null, null, 0, Long.MAX_VALUE, 0, 10))),
+                () -> assertEquals(all.subList(20, 25), messages(store.search("request", null, null, null, 0, Long.MAX_VALUE, 2, 10))),
+                () -> assertEquals(List.of(), store.search("request", null, null, null, 0, Long.MAX_VALUE, 3, 10))
+        );
+    }
+
+    @Test @Tag("search")
+    public void shouldGetErrorWhenQueryIsInvalid(@TempDir Path dir){
+        var store = store(dir);
+        assertAll(
+                () -> assertThrows(LKArgumentsException.class, () -> store.search("\"unclosed", null, null, null, 0, Long.MAX_VALUE, 0, 20)),
+                () -> assertThrows(LKArgumentsException.class, () -> store.search(" ", null, null, null, 0, Long.MAX_VALUE, 0, 20)),
+                () -> assertThrows(LKArgumentsException.class, () -> store.search("started", null, null, null, 0, Long.MAX_VALUE, -1, 20))
+        );
+    }
+
+    @Test @Tag("search")
+    public void shouldIndexTheDaysStoredBeforeTheIndex(@TempDir Path dir){
+        store(dir);
+        var reopened = new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256);
+        assertEquals(2, reopened.search("started", null, null, null, 0, Long.MAX_VALUE, 0, 20).size());
+    }
+
+    @Test @Tag("toString")
+    public void shouldHaveTheGreatDisplayOfAHit(){
+        var hit = new LogHit(new LogLine("hello", "hello-1", LogLine.parseTime("2020-11-20 10:00:00.000", 0), "INFO", "Started"), -1.5);
+        assertEquals("{\n\tapp:hello,\n\tdocker-instance:hello-1,\n\ttime:2020-11-20 10:00:00.000,\n\tlevel:INFO,\n\tmessage:Started,\n\trank:-1.500\n}",
+                hit.toString());
+    }
+}
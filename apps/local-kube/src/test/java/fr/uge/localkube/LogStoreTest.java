@@ -0,0 +1,159 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStoreTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static LogLine line(String instance, long ts, String message){
+        return new LogLine(instance.split("-")[0], instance, ts, "INFO", message);
+    }
+
+    private static LogStore store(Path dir){
+        return new LogStore(dir, 7, Long.MAX_VALUE, 60_000, 256);
+    }
+
+    private static List<LogLine> lines(String instance, long ts, int count){
+        return IntStream.range(0, count).mapToObj(i -> line(instance, ts + i, "line " + i + " " + "x".repeat(100)))
+                .collect(Collectors.toList());
+    }
+
+    @Test @Tag("append")
+    public void shouldKeepLinesOfEachInstanceInOrder(@TempDir Path dir){
+        var store = store(dir.resolve("logs"));
+        var first = line("hello-1", 1000, "Started");
+        var second = line("hello-1", 2000, "Say hi");
+        store.append(List.of(first, line("world-1", 1500, "Started world"), line("hello-2", 1500, "Started hello-2")));
+        store.append(List.of(second));
+        assertAll(
+                () -> assertEquals(List.of(first, second), store.since("hello-1", 0)),
+                () -> assertEquals(List.of(second), store.since("hello-1", 2000)),
+                () -> assertEquals(List.of(), store.since("hello-3", 0)),
+                () -> assertEquals(List.of(), store.since("unknown-1", 0))
+        );
+    }
+
+    @Test @Tag("append")
+    public void shouldKeepLinesWhenReopening(@TempDir Path dir){
+        var line = line("hello-1", 1000, "Started");
+        store(dir).append(List.of(line));
+        assertEquals(List.of(line), store(dir).since("hello-1", 0));
+    }
+
+    @Test @Tag("since")
+    public void shouldSeeTheLinesAppendedAfterTheFormerReads(@TempDir Path dir){
+        var store = store(dir);
+        for (var i = 0; i < 10; i++){
+            store.append(List.of(line("hello-1", 1000 + i, "line " + i)));
+            var count = i + 1;
+            IntStream.range(0, 8).parallel()
+                    .forEach(reader -> assertEquals(count, store.since("hello-1", 0).size()));
+        }
+    }
+
+    @Test @Tag("partition")
+    public void shouldPartitionByAppAndDay(@TempDir Path dir){
+        var store = store(dir);
+        var yesterday = line("hello-1", 10 * DAY - 1, "yesterday");
+        var today = line("hello-1", 10 * DAY, "today");
+        store.append(List.of(yesterday, today, line("world-1", 10 * DAY, "world")));
+        assertAll(
+                () -> assertTrue(Files.exists(dir.resolve("hello.db"))),
+                () -> assertTrue(Files.exists(dir.resolve("world.db"))),
+                () -> assertEquals(List.of(yesterday, today), store.since("hello-1", 0)),
+                () -> assertEquals(List.of(today), store.since("hello-1", 10 * DAY)),
+                () -> assertTrue(store.toString().contains("partitions:3"))
+        );
+    }
+
+    @Test @Tag("retention")
+    public void shouldDropTheDaysOlderThanTheTTL(@TempDir Path dir){
+        var store = new LogStore(dir, 2, Long.MAX_VALUE, 60_000, 256);
+        var old = line("hello-1", 10 * DAY, "old");
+        var kept = line("hello-1", 11 * DAY, "kept");
+        store.append(List.of(old, kept));
+        store.maintain(12 * DAY + 1);
+        assertAll(
+                () -> assertEquals(List.of(kept), store.since("hello-1", 0)),
+                () -> assertTrue(store.toString().contains("dropped:1"))
+        );
+    }
+
+    @Test @Tag("retention")
+    public void shouldDropTheOldestDaysAboveTheSizeCap(@TempDir Path dir){
+        var probe = store(dir.resolve("probe"));
+        probe.append(lines("hello-1", 10 * DAY, 1000));
+        var oneDay = probe.usedBytes();
+        var store = new LogStore(dir.resolve("store"), 365, oneDay * 2, 60_000, 256);
+        store.append(lines("hello-1", 10 * DAY, 1000));
+        store.append(lines("world-1", 11 * DAY, 1000));
+        store.append(lines("hello-1", 12 * DAY, 1000));
+        store.maintain(12 * DAY);
+        assertAll(
+                () -> assertEquals(List.of(), store.since("hello-1", 10 * DAY).stream().filter(l -> l.ts() < 11 * DAY).collect(Collectors.toList())),
+                () -> assertEquals(1000, store.since("world-1", 0).size()),
+                () -> assertEquals(1000, store.since("hello-1", 0).size()),
+                () -> assertTrue(store.usedBytes() <= oneDay * 2)
+        );
+    }
+
+    @Test @Tag("retention")
+    public void shouldGiveBackTheSpaceOfDroppedDays(@TempDir Path dir) throws IOException {
+        var shard = new LogShard("hello", dir.resolve("hello.db"));
+        shard.append(lines("hello-1", 10 * DAY, 5000));
+        shard.append(lines("hello-1", 11 * DAY, 10));
+        shard.drop(LocalDate.of(1970, 1, 11));
+        var used = shard.usedBytes();
+        for (var i = 0; i < 1000; i++){
+            shard.vacuumStep(256);
+        }
+        shard.close();
+        assertAll(
+                () -> assertEquals(List.of(LocalDate.of(1970, 1, 12)), shard.days()),
+                () -> assertTrue(Files.size(dir.resolve("hello.db")) <= used * 2)
+        );
+    }
+
+    @Test @Tag("rate")
+    public void shouldMeasureTheIngestRate(@TempDir Path dir){
+        var store = store(dir);
+        assertEquals(0, store.rate());
+        store.append(lines("hello-1", 0, 1000));
+        assertAll(
+                () -> assertTrue(store.rate() > 0),
+                () -> assertTrue(store.toString().startsWith("{\n\tlines:1000,\n\tbatches:1,\n\trate:"))
+        );
+    }
+
+    @Test @Tag("time")
+    public void shouldReadTheTimeOfASpringBootLine(){
+        var ts = LogLine.parseTime("2020-11-20 10:00:01.250", 0);
+        assertAll(
+                () -> assertEquals("2020-11-20 10:00:01.250", new LogLine("hello", "hello-1", ts, "INFO", "").time()),
+                () -> assertEquals(42, LogLine.parseTime("not a time", 42))
+        );
+    }
+
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenConstructingLineWithNegativeTimestamp(){
+        assertThrows(LKArgumentsException.class, () -> line("hello-1", -1, "Started"));
+    }
+
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenRetentionIsNotPositive(@TempDir Path dir){
+        assertThrows(LKArgumentsException.class, () -> new LogStore(dir, 0, 1, 1, 1));
+    }
+}
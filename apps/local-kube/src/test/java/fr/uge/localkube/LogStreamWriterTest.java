@@ -0,0 +1,61 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStreamWriterTest {
+    private static final ApplicationData app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+    private static final String logs = "2020-11-20 10:00:00.000  INFO 1 --- [main] f.u.Hello : Started Hello\n"
+            + "not a log line\n"
+            + "2020-11-20 10:00:01.000  INFO 1 --- [main] f.u.Hello : Say \"hi\"\n";
+
+    private static String write(LogStreamWriter.Format format) throws IOException {
+        var out = new ByteArrayOutputStream();
+        new LogStreamWriter(out, format).write(app, new BufferedReader(new StringReader(logs)));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test @Tag("format")
+    public void shouldChooseTheFormatFromAcceptHeader(){
+        assertAll(
+                () -> assertEquals(LogStreamWriter.Format.NDJSON, LogStreamWriter.Format.of(null)),
+                () -> assertEquals(LogStreamWriter.Format.NDJSON, LogStreamWriter.Format.of("*/*")),
+                () -> assertEquals(LogStreamWriter.Format.SSE, LogStreamWriter.Format.of("text/event-stream"))
+        );
+    }
+
+    @Test @Tag("write")
+    public void shouldWriteOneJsonObjectPerEntry() throws IOException {
+        assertEquals("{\"id\":1,\"app\":\"hello:8081\",\"docker-instance\":\"hello-1\",\"time\":\"2020-11-20 10:00:00.000\","
+                + "\"level\":\"INFO\",\"thread\":\"main\",\"logger\":\"f.u.Hello\",\"message\":\"Started Hello\\nnot a log line\"}\n"
+                + "{\"id\":1,\"app\":\"hello:8081\",\"docker-instance\":\"hello-1\",\"time\":\"2020-11-20 10:00:01.000\","
+                + "\"level\":\"INFO\",\"thread\":\"main\",\"logger\":\"f.u.Hello\",\"message\":\"Say \\\"hi\\\"\"}\n",
+                write(LogStreamWriter.Format.NDJSON));
+    }
+
+    @Test @Tag("write")
+    public void shouldWriteServerSentEvents() throws IOException {
+        var events = write(LogStreamWriter.Format.SSE).split("\n\n");
+        assertAll(
+                () -> assertEquals(2, events.length),
+                () -> assertTrue(events[0].startsWith("data: {\"id\":1,")),
+                () -> assertTrue(events[1].endsWith("\"message\":\"Say \\\"hi\\\"\"}"))
+        );
+    }
+
+    @Test @Tag("error")
+    public void shouldWriteErrorOfAnApp() throws IOException {
+        var out = new ByteArrayOutputStream();
+        new LogStreamWriter(out, LogStreamWriter.Format.NDJSON).error(app, "no docker");
+        assertEquals("{\"id\":1,\"app\":\"hello:8081\",\"docker-instance\":\"hello-1\",\"error\":\"no docker\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
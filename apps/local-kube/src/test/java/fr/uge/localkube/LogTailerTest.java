@@ -0,0 +1,138 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTailerTest {
+    private static final ApplicationData app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+
+    private static final class FollowedRuntime implements ContainerRuntime {
+        private final String logs;
+        private final CountDownLatch end = new CountDownLatch(1);
+        private final List<CountDownLatch> streams = new CopyOnWriteArrayList<>();
+
+        private FollowedRuntime(String logs){
+            this.logs = logs;
+        }
+
+        @Override public int load(Path tar) { return 0; }
+        @Override public boolean exists(String name) { return true; }
+        @Override public int start(String name) { return 0; }
+        @Override public int run(String name, int port, String image, Map<String, String> env) { return 0; }
+        @Override public int stop(String name) { return 0; }
+        @Override public int remove(String name) { return 0; }
+        @Override public InputStream logs(String name, long minutes) { throw new AssertionError("logs are followed"); }
+        @Override public Map<String, String> containers() { return Map.of(); }
+        @Override public InputStream events(long since) { return InputStream.nullInputStream(); }
+
+        @Override
+        public InputStream follow(String name, long since) {
+            var lines = new ByteArrayInputStream(logs.getBytes(StandardCharsets.UTF_8));
+            var open = new CountDownLatch(1);
+            streams.add(open);
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    var buffer = new byte[1];
+                    return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if (lines.available() > 0){ return lines.read(buffer, offset, length); }
+                    try {
+                        while (open.getCount() != 0 && !end.await(10, TimeUnit.MILLISECONDS)){ }   // the container runs until the end of the test
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return -1;
+                }
+
+                @Override
+                public void close() {
+                    open.countDown();
+                }
+            };
+        }
+    }
+
+    private static List<LogLine> await(LogStore store, int count) throws InterruptedException {
+        var lines = store.since("hello-1", 0);
+        for (var i = 0; i < 500 && lines.size() < count; i++){
+            Thread.sleep(10);
+            lines = store.since("hello-1", 0);
+        }
+        return lines;
+    }
+
+    @Test @Tag("follow")
+    public void shouldStoreFollowedLines(@TempDir Path dir) throws InterruptedException {
+        var runtime = new FollowedRuntime("2020-11-20 10:00:00.000  INFO 1 --- [main] f.u.Hello : Started Hello\n"
+                + "2020-11-20 10:00:01.000 ERROR 1 --- [main] f.u.Hello : Say hi failed\n"
+                + "java.lang.IllegalStateException: hi\n"
+                + "\tat f.u.Hello.main(Hello.java:12)\n");
+        var store = new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256);
+        var tailer = new LogTailer(runtime, store, 10, 10);
+        tailer.follow(app, 0);
+        var lines = await(store, 2);
+        assertAll(
+                () -> assertTrue(tailer.isFollowed("hello-1")),
+                () -> assertEquals(2, lines.size()),
+                () -> assertEquals("Started Hello", lines.get(0).message()),
+                () -> assertEquals("2020-11-20 10:00:01.000", lines.get(1).time()),
+                () -> assertEquals("hello", lines.get(1).app()),
+                () -> assertEquals("ERROR", lines.get(1).level()),
+                () -> assertEquals("Say hi failed\njava.lang.IllegalStateException: hi\n\tat f.u.Hello.main(Hello.java:12)", lines.get(1).message())
+        );
+        runtime.end.countDown();
+    }
+
+    @Test @Tag("follow")
+    public void shouldForgetContainerWhenItsLogsEnd(@TempDir Path dir) throws InterruptedException {
+        var runtime = new FollowedRuntime("");
+        var tailer = new LogTailer(runtime, new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256), 10, 10);
+        tailer.follow(app, 0);
+        runtime.end.countDown();
+        for (var i = 0; i < 500 && tailer.isFollowed("hello-1"); i++){
+            Thread.sleep(10);
+        }
+        assertFalse(tailer.isFollowed("hello-1"));
+    }
+
+    @Test @Tag("follow")
+    public void shouldStopThePreviousFollowerOfAContainer(@TempDir Path dir) throws InterruptedException {
+        var runtime = new FollowedRuntime("");
+        var tailer = new LogTailer(runtime, new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256), 10, 10);
+        tailer.follow(app, 0);
+        for (var i = 0; i < 500 && runtime.streams.isEmpty(); i++){
+            Thread.sleep(10);
+        }
+        tailer.follow(app, 0);
+        var first = runtime.streams.get(0);
+        assertAll(
+                () -> assertTrue(first.await(5, TimeUnit.SECONDS)),
+                () -> assertTrue(tailer.isFollowed("hello-1"))
+        );
+        runtime.end.countDown();
+    }
+
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenBatchSizeIsNotPositive(@TempDir Path dir){
+        assertThrows(LKArgumentsException.class,
+                () -> new LogTailer(new FollowedRuntime(""), new LogStore(dir, 100_000, Long.MAX_VALUE, 60_000, 256), 0, 10));
+    }
+}
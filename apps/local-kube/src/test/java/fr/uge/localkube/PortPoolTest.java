@@ -0,0 +1,66 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortPoolTest {
+    @Test @Tag("constructor")
+    public void shouldGetErrorWhenRangeIsInvalid(){
+        assertAll(
+                () -> assertThrows(LKArgumentsException.class, () -> new PortPool(8080, 8090)),
+                () -> assertThrows(LKArgumentsException.class, () -> new PortPool(9000, 8999)),
+                () -> assertThrows(LKArgumentsException.class, () -> new PortPool(9000, 70000))
+        );
+    }
+
+    @Test @Tag("acquire")
+    public void shouldAcquirePortsInOrder(){
+        var pool = new PortPool(9001, 9003, port -> true);
+        assertAll(
+                () -> assertEquals(9001, pool.acquire()),
+                () -> assertEquals(9002, pool.acquire()),
+                () -> assertEquals(9003, pool.acquire()),
+                () -> assertThrows(LKArgumentsException.class, pool::acquire)
+        );
+    }
+
+    @Test @Tag("acquire")
+    public void shouldSkipPortsBusyOnHost(){
+        var pool = new PortPool(9001, 9003, port -> port != 9001);
+        assertEquals(9002, pool.acquire());
+    }
+
+    @Test @Tag("acquire")
+    public void shouldSkipReservedPorts(){
+        var pool = new PortPool(9001, 9003, port -> true);
+        pool.reserve(9001);
+        assertAll(
+                () -> assertFalse(pool.reserve(9001)),
+                () -> assertTrue(pool.reserve(12000)),
+                () -> assertEquals(9002, pool.acquire())
+        );
+    }
+
+    @Test @Tag("release")
+    public void shouldAcquireReleasedPortAgain(){
+        var pool = new PortPool(9001, 9002, port -> true);
+        pool.acquire();
+        pool.acquire();
+        pool.release(9001);
+        assertEquals(9001, pool.acquire());
+    }
+
+    @Test @Tag("acquire")
+    public void shouldNotGiveAPortListenedOnTheHost() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            var port = socket.getLocalPort();
+            var pool = new PortPool(port, port);
+            assertThrows(LKArgumentsException.class, pool::acquire);
+        }
+    }
+}
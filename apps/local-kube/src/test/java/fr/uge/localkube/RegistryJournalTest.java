@@ -0,0 +1,105 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryJournalTest {
+    private static ApplicationDataCreator creator(Path dir, int snapshotEvery){
+        return new ApplicationDataCreator(Integer.MAX_VALUE, new PortPool(8081, 10080), new RegistryJournal(dir, snapshotEvery));
+    }
+
+    private static List<String> instances(List<ApplicationData> apps){
+        return apps.stream().map(ApplicationData::dockerInstance).collect(Collectors.toList());
+    }
+
+    @Test @Tag("journal")
+    public void shouldReplayTheRegistryAfterARestart(@TempDir Path dir){
+        var before = creator(dir, 1000);
+        for (var spec : List.of("hello", "hello", "world:9500", "hello")){
+            before.add(before.fromSpec(spec));
+        }
+        before.stop(2);
+        before.stop(4);
+        before.kill(4);
+        var after = creator(dir, 1000);
+        assertAll(
+                () -> assertEquals(before.getAppDatas(), after.getAppDatas()),
+                () -> assertEquals(List.of("hello-2"), instances(after.getStoppedApps())),
+                () -> assertEquals(ApplicationDataCreator.State.KILLED, after.state(4)),
+                () -> assertEquals("hello-4", after.fromSpec("hello").dockerInstance()),
+                () -> assertThrows(LKArgumentsException.class, () -> after.fromSpec("world:9500")),
+                () -> assertThrows(LKArgumentsException.class, () -> after.fromSpec("nginx:8082"))
+        );
+    }
+
+    @Test @Tag("journal")
+    public void shouldNotReuseTheInstanceOfAFailedStart(@TempDir Path dir){
+        var before = creator(dir, 1000);
+        before.abandon(before.fromSpec("hello"));
+        assertEquals("hello-2", creator(dir, 1000).fromSpec("hello").dockerInstance());
+    }
+
+    @Test @Tag("journal")
+    public void shouldReplaceTheJournalByASnapshot(@TempDir Path dir) throws IOException {
+        var before = creator(dir, 4);
+        for (var i = 0; i < 5; i++){
+            before.add(before.fromSpec("hello"));
+        }
+        before.stop(1);
+        var journal = Files.readAllLines(dir.resolve("journal.jsonl"));
+        var after = creator(dir, 4);
+        assertAll(
+                () -> assertTrue(journal.size() < 4, journal.toString()),
+                () -> assertTrue(Files.exists(dir.resolve("snapshot.jsonl"))),
+                () -> assertEquals(before.getAppDatas(), after.getAppDatas()),
+                () -> assertEquals(List.of("hello-1"), instances(after.getStoppedApps())),
+                () -> assertEquals("hello-6", after.fromSpec("hello").dockerInstance())
+        );
+    }
+
+    @Test @Tag("journal")
+    public void shouldSkipATornRecord(@TempDir Path dir) throws IOException {
+        var before = creator(dir, 1000);
+        before.add(before.fromSpec("hello"));
+        Files.writeString(dir.resolve("journal.jsonl"), "{\"op\":\"add\",\"id\":2,\"app\":\"hel", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        var journal = new RegistryJournal(dir, 1000);
+        var after = new ApplicationDataCreator(Integer.MAX_VALUE, new PortPool(8081, 10080), journal);
+        assertAll(
+                () -> assertEquals(List.of("hello-1"), instances(after.getAppDatas())),
+                () -> assertEquals(2, journal.stats().replayed())
+        );
+    }
+
+    @Test @Tag("journal")
+    public void shouldReplayAThousandAppsQuickly(@TempDir Path dir){
+        var before = creator(dir, 300);
+        for (var i = 0; i < 1000; i++){
+            before.add(before.fromSpec("hello"));
+        }
+        var begin = System.currentTimeMillis();
+        var after = creator(dir, 300);
+        var elapsed = System.currentTimeMillis() - begin;
+        assertAll(
+                () -> assertEquals(1000, after.getAppDatas().size()),
+                () -> assertTrue(elapsed < 1_000, "replay took " + elapsed + "ms"),
+                () -> assertEquals("hello-1001", after.fromSpec("hello").dockerInstance())
+        );
+    }
+
+    @Test @Tag("journal")
+    public void shouldGetErrorWhenTheSnapshotIntervalIsNotPositive(@TempDir Path dir){
+        assertThrows(LKArgumentsException.class, () -> new RegistryJournal(dir, 0));
+    }
+}
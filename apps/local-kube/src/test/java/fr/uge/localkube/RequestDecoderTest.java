@@ -0,0 +1,71 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDecoderTest {
+
+    @Test @Tag("app")
+    public void shouldDecodeAppWhateverTheSpaces(){
+        assertAll(
+                () -> assertEquals("hello:8081", RequestDecoder.app("{\"app\":\"hello:8081\"}")),
+                () -> assertEquals("hello:18081", RequestDecoder.app("{ \"app\" :\n\t\"hello:18081\" }")),
+                () -> assertEquals("hello", RequestDecoder.app("{\"app\": \"hello\"}"))
+        );
+    }
+
+    @Test @Tag("app")
+    public void shouldRejectInvalidStartRequests(){
+        assertAll(
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.app("")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.app("{}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.app("{\"app\": 8081}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.app("{\"app\": \"hello\", \"port\": 8081}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.app("{\"app\" \"hello\"}"))
+        );
+    }
+
+    @Test @Tag("batch")
+    public void shouldDecodeBatchInOrder(){
+        assertAll(
+                () -> assertEquals(List.of("hello:8081", "world", "hello"), RequestDecoder.apps("[{\"app\": \"hello:8081\"}, {\"app\":\"world\"}, {\"app\": \"hello\"}]")),
+                () -> assertEquals(List.of(), RequestDecoder.apps("[]")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.apps("{\"app\": \"hello\"}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.apps("[{\"app\": \"hello\"}, {}]")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.apps("[{\"app\": \"hello\"}, null]"))
+        );
+    }
+
+    @Test @Tag("id")
+    public void shouldDecodeIdWhateverTheFieldOrder(){
+        assertAll(
+                () -> assertEquals(1, RequestDecoder.id("{\"id\":1}")),
+                () -> assertEquals(42, RequestDecoder.id("{ \"id\" : 42 }"))
+        );
+    }
+
+    @Test @Tag("id")
+    public void shouldRejectIdWhichIsNotAnInteger(){
+        var e = assertThrows(LKArgumentsException.class, () -> RequestDecoder.id("{\"id\": \"1\"}"));
+        assertAll(
+                () -> assertEquals("Input format for id is Integer, get : {\"id\": \"1\"}", e.getMessage()),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.id("{\"id\": 1.5}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.id("{\"id\": null}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.id("{}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.id("null"))
+        );
+    }
+
+    @Test @Tag("selector")
+    public void shouldDecodeSelector(){
+        assertAll(
+                () -> assertEquals(new AppSelector("hello", null, List.of(1, 2)), RequestDecoder.selector("{\"ids\": [1, 2], \"app\": \"hello\"}")),
+                () -> assertEquals(AppSelector.all(), RequestDecoder.selector("{}")),
+                () -> assertThrows(LKArgumentsException.class, () -> RequestDecoder.selector("{\"ids\": [\"1\"]}"))
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fr.uge.localkube.SpringLogParser.Field.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpringLogParserTest {
+    private static final String LINE = "2020-11-20 10:00:00.123  WARN 12345 --- [           main] f.u.l.LocalKubeApplication    : Port 8081 in use";
+
+    private static List<SpringLogReader.Entry> entries(String text) throws IOException {
+        var reader = new SpringLogReader(new BufferedReader(new StringReader(text)));
+        var entries = new ArrayList<SpringLogReader.Entry>();
+        for (var entry = reader.next(); entry != null; entry = reader.next()){
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    @Test @Tag("parse")
+    public void shouldParseEachField(){
+        var parser = new SpringLogParser();
+        assertTrue(parser.parse(LINE));
+        assertAll(
+                () -> assertEquals("2020-11-20 10:00:00.123", parser.get(TIME)),
+                () -> assertEquals("WARN", parser.get(LEVEL)),
+                () -> assertEquals("12345", parser.get(PID)),
+                () -> assertEquals("main", parser.get(THREAD)),
+                () -> assertEquals("f.u.l.LocalKubeApplication", parser.get(LOGGER)),
+                () -> assertEquals("Port 8081 in use", parser.get(MESSAGE)),
+                () -> assertEquals(LINE.indexOf("Port"), parser.start(MESSAGE)),
+                () -> assertEquals(LINE.length(), parser.end(MESSAGE))
+        );
+    }
+
+    @Test @Tag("parse")
+    public void shouldParseAllLevels(){
+        var parser = new SpringLogParser();
+        for (var level : List.of("TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL")){
+            var line = "2020-11-20 10:00:00.000 " + " ".repeat(5 - level.length()) + level + " 1 --- [main] f.u.Hello : hi";
+            assertTrue(parser.parse(line), line);
+            assertSame(level, parser.level());
+        }
+    }
+
+    @Test @Tag("parse")
+    public void shouldRejectOtherLines(){
+        var parser = new SpringLogParser();
+        assertAll(
+                () -> assertFalse(parser.parse("")),
+                () -> assertFalse(parser.parse("\tat f.u.Hello.main(Hello.java:12)")),
+                () -> assertFalse(parser.parse("2020-11-20 10:00:00.000 NOTICE 1 --- [main] f.u.Hello : hi")),
+                () -> assertFalse(parser.parse("2020-11-20 10:00:00.000  INFO 1 [main] f.u.Hello : hi")),
+                () -> assertFalse(parser.parse("2020-11-20 10:00:00.000  INFO 1 --- [main] f.u.Hello hi")),
+                () -> assertFalse(parser.parse("2020/11/20 10:00:00.000  INFO 1 --- [main] f.u.Hello : hi"))
+        );
+    }
+
+    @Test @Tag("parse")
+    public void shouldForgetTheFieldsOfALineNotParsed(){
+        var parser = new SpringLogParser();
+        assertTrue(parser.parse(LINE));
+        assertFalse(parser.parse("not a log line"));
+        assertThrows(IllegalStateException.class, () -> parser.get(MESSAGE));
+    }
+
+    @Test @Tag("read")
+    public void shouldFoldStackTracesIntoTheirEntry() throws IOException {
+        var entries = entries("2020-11-20 10:00:00.000 ERROR 1 --- [main] f.u.Hello : Failed\n"
+                + "java.lang.IllegalStateException: hi\n"
+                + "\tat f.u.Hello.main(Hello.java:12)\n"
+                + "\n"
+                + "2020-11-20 10:00:01.000  INFO 1 --- [main] f.u.Hello : Done\n");
+        assertAll(
+                () -> assertEquals(2, entries.size()),
+                () -> assertEquals("ERROR", entries.get(0).level()),
+                () -> assertEquals("Failed\njava.lang.IllegalStateException: hi\n\tat f.u.Hello.main(Hello.java:12)", entries.get(0).message()),
+                () -> assertEquals("2020-11-20 10:00:01.000", entries.get(1).time()),
+                () -> assertEquals("Done", entries.get(1).message())
+        );
+    }
+
+    @Test @Tag("read")
+    public void shouldSkipLinesBeforeTheFirstEntry() throws IOException {
+        var entries = entries("  .   ____          _\n"
+                + "2020-11-20 10:00:00.000  INFO 1 --- [main] f.u.Hello : Started\n");
+        assertAll(
+                () -> assertEquals(1, entries.size()),
+                () -> assertEquals("Started", entries.get(0).message())
+        );
+    }
+}
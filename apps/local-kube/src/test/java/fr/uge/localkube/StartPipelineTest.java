@@ -0,0 +1,82 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartPipelineTest {
+    private static final ApplicationData app = new ApplicationData(1, "hello:8081", 8081, "hello-1");
+
+    private static StartJob await(StartJob job) throws InterruptedException {
+        for (var i = 0; i < 500 && !job.isOver(); i++){
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    @Test @Tag("submit")
+    public void shouldGetErrorWhenSubmittingNullApp(){
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> {}, a -> {}, a -> {}, a -> {});
+        assertThrows(NullPointerException.class, () -> pipeline.submit(null));
+    }
+
+    @Test @Tag("submit")
+    public void shouldRunAllStagesWhenSubmitting() throws InterruptedException {
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> {}, a -> {}, a -> {}, a -> {});
+        var job = await(pipeline.submit(app));
+        assertAll(
+                () -> assertEquals(StartJob.Stage.DONE, job.stage()),
+                () -> assertTrue(job.toString().contains("build:done")),
+                () -> assertTrue(job.toString().contains("run:done"))
+        );
+    }
+
+    @Test @Tag("submit")
+    public void shouldReturnBeforeTheStagesAreDone() throws InterruptedException {
+        var latch = new CountDownLatch(1);
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> latch.await(), a -> {}, a -> {}, a -> {});
+        var job = pipeline.submit(app);
+        assertFalse(job.isOver());
+        latch.countDown();
+        assertEquals(StartJob.Stage.DONE, await(job).stage());
+    }
+
+    @Test @Tag("submit")
+    public void shouldFailWhenAStageFails() throws InterruptedException {
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> {},
+                a -> { throw new LKArgumentsException("no docker"); }, a -> fail("run after a failed load"), a -> {});
+        var job = await(pipeline.submit(app));
+        assertAll(
+                () -> assertEquals(StartJob.Stage.FAILED, job.stage()),
+                () -> assertTrue(job.toString().contains("run:pending")),
+                () -> assertTrue(job.toString().contains("error:no docker"))
+        );
+    }
+
+    @Test @Tag("submit")
+    public void shouldReportTheStageWhichFailed() throws InterruptedException {
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> { throw new LKArgumentsException("no base image"); },
+                a -> fail("load after a failed build"), a -> fail("run after a failed build"), a -> {});
+        var job = await(pipeline.submit(app));
+        var snapshot = job.snapshot();
+        assertAll(
+                () -> assertEquals("failed", snapshot.build().state()),
+                () -> assertNotNull(snapshot.build().millis()),
+                () -> assertEquals("pending", snapshot.load().state()),
+                () -> assertTrue(job.toString().matches("(?s).*build:failed \\d+ms.*"), job.toString())
+        );
+    }
+
+    @Test @Tag("job")
+    public void shouldFindSubmittedJob(){
+        var pipeline = new StartPipeline(new LocalKubeSettings(), a -> {}, a -> {}, a -> {}, a -> {});
+        var job = pipeline.submit(app);
+        assertAll(
+                () -> assertEquals(job, pipeline.job(job.id()).orElseThrow()),
+                () -> assertTrue(pipeline.job(job.id() + 1).isEmpty())
+        );
+    }
+}
@@ -0,0 +1,165 @@
+package fr.uge.localkube;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmPoolTest {
+    private final ApplicationDataCreator appDatas = new ApplicationDataCreator(100, new PortPool(8081, 8180));
+    private final List<ApplicationData> warmed = new CopyOnWriteArrayList<>();
+    private final List<ApplicationData> discarded = new CopyOnWriteArrayList<>();
+    private final Set<String> dead = ConcurrentHashMap.newKeySet();
+
+    private WarmPool pool(StartPipeline.Step warm){
+        return new WarmPool(1, appDatas::fromSpec, app -> {
+            warm.apply(app);
+            warmed.add(app);
+        }, app -> {
+            discarded.add(app);
+            appDatas.abandon(app);
+        }, app -> !dead.contains(app.dockerInstance()));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (var i = 0; i < 500 && !condition.getAsBoolean(); i++){
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static JsonResponses.Pool stats(WarmPool pool, String app){
+        return pool.stats().stream().filter(stats -> stats.app().equals(app)).findFirst().orElseThrow();
+    }
+
+    @Test @Tag("pool")
+    public void shouldFillThePoolsInBackground() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 2, "world", 1));
+        await(() -> stats(pool, "hello").parked() == 2 && stats(pool, "world").parked() == 1);
+        assertAll(
+                () -> assertEquals(3, warmed.size()),
+                () -> assertEquals(0, stats(pool, "hello").warming()),
+                () -> assertNull(stats(pool, "hello").hitRate()),
+                () -> assertEquals(List.of(), appDatas.getAppDatas())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldClaimTheOldestParkedContainerThenRefill() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 2));
+        await(() -> stats(pool, "hello").parked() == 2);
+        var oldest = warmed.get(0);
+        var claimed = pool.claim("hello");
+        await(() -> stats(pool, "hello").parked() == 2);
+        assertAll(
+                () -> assertEquals(oldest, claimed.orElseThrow()),
+                () -> assertEquals(3, warmed.size()),
+                () -> assertEquals(1, stats(pool, "hello").hits()),
+                () -> assertEquals(0, stats(pool, "hello").misses()),
+                () -> assertEquals(1.0, stats(pool, "hello").hitRate())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldNotClaimForAStartWithPortOrAnUnpooledApp() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 1));
+        await(() -> stats(pool, "hello").parked() == 1);
+        assertAll(
+                () -> assertTrue(pool.claim("hello:9000").isEmpty()),
+                () -> assertTrue(pool.claim("world").isEmpty()),
+                () -> assertEquals(1, stats(pool, "hello").parked()),
+                () -> assertEquals(0, stats(pool, "hello").misses()),
+                () -> assertEquals(List.of("hello"), pool.stats().stream().map(JsonResponses.Pool::app).collect(Collectors.toList()))
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldCountAMissWhileThePoolIsWarming() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var pool = pool(app -> release.await());
+        pool.resize(Map.of("hello", 1));
+        var claimed = pool.claim("hello");
+        var stats = stats(pool, "hello");
+        release.countDown();
+        assertAll(
+                () -> assertTrue(claimed.isEmpty()),
+                () -> assertEquals(1, stats.misses()),
+                () -> assertEquals(1, stats.warming()),
+                () -> assertEquals(0.0, stats.hitRate())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldDiscardTheDeadParkedContainers() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 2));
+        await(() -> stats(pool, "hello").parked() == 2);
+        var first = warmed.get(0);
+        dead.add(first.dockerInstance());
+        var claimed = pool.claim("hello");
+        assertAll(
+                () -> assertEquals(warmed.get(1), claimed.orElseThrow()),
+                () -> assertEquals(List.of(first), discarded),
+                () -> assertEquals(1, stats(pool, "hello").hits())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldShrinkThenDrainThePools() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 3));
+        await(() -> stats(pool, "hello").parked() == 3);
+        pool.resize(Map.of("hello", 1));
+        assertAll(
+                () -> assertEquals(List.of(warmed.get(2), warmed.get(1)), discarded),
+                () -> assertEquals(1, stats(pool, "hello").parked())
+        );
+        pool.drain();
+        assertAll(
+                () -> assertEquals(3, discarded.size()),
+                () -> assertEquals(0, stats(pool, "hello").size()),
+                () -> assertEquals(0, stats(pool, "hello").parked()),
+                () -> assertTrue(pool.claim("hello").isEmpty())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldReportAFailedRefill() throws InterruptedException {
+        var pool = pool(app -> { throw new LKArgumentsException("docker load of " + app.dockerInstance() + " failed with status 1"); });
+        pool.resize(Map.of("hello", 1));
+        await(() -> stats(pool, "hello").error() != null && stats(pool, "hello").warming() == 0);
+        assertAll(
+                () -> assertEquals("docker load of hello-1 failed with status 1", stats(pool, "hello").error()),
+                () -> assertEquals(1, discarded.size()),
+                () -> assertEquals(0, stats(pool, "hello").parked())
+        );
+    }
+
+    @Test @Tag("pool")
+    public void shouldAverageTheStartLatencies() throws InterruptedException {
+        var pool = pool(app -> { });
+        pool.resize(Map.of("hello", 1));
+        pool.started("hello", true, 10);
+        pool.started("hello", true, 30);
+        pool.started("hello", false, 4000);
+        pool.started("world", false, 4000);
+        var stats = stats(pool, "hello");
+        assertAll(
+                () -> assertEquals(20, stats.hitLatencyMillis()),
+                () -> assertEquals(4000, stats.missLatencyMillis()),
+                () -> assertEquals(1, pool.stats().size())
+        );
+    }
+}